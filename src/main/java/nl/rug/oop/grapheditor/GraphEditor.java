@@ -1,20 +1,101 @@
-package nl.rug.oop.grapheditor;
-
-import nl.rug.oop.grapheditor.model.GraphModel;
-import nl.rug.oop.grapheditor.view.GraphFrame;
-
-public class GraphEditor {
-
-    public static void main(String[] args) {
-
-        GraphModel graph;
-        //It's important to quote the path on the CLI,
-        // especially if the path contains white space
-        if (args.length > 0) {
-            graph = new GraphModel(args[0]);
-        } else {
-            graph = new GraphModel();
-        }
-        new GraphFrame(graph);
-    }
-}
\ No newline at end of file
+package nl.rug.oop.grapheditor;
+
+import nl.rug.oop.grapheditor.model.GraphModel;
+import nl.rug.oop.grapheditor.view.GraphFrame;
+import nl.rug.oop.grapheditor.view.GraphImageExporter;
+
+import java.io.File;
+import java.io.IOException;
+
+public class GraphEditor {
+    private static final String USAGE =
+            "Usage: GraphEditor [graph file] [--export image file] [--scale pixels for each unit of the graph]";
+
+    /**
+     * It opens the editor, or it exports the graph as an image or as an SVG drawing without opening any window:
+     * GraphEditor [graph file] [--export image file] [--scale pixels for each unit of the graph]
+     * An export needs a graph file, and it ends with a non-zero status if the graph can't be read or exported.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        String path = null;
+        String exportPath = null;
+        double scale = 1;
+        //It's important to quote the paths on the CLI,
+        // especially if the path contains white space
+        for (int i = 0; i < args.length; i++) {
+            if ("--export".equals(args[i]) && i + 1 < args.length) {
+                exportPath = args[++i];
+            } else if ("--scale".equals(args[i]) && i + 1 < args.length) {
+                scale = parseScale(args[++i]);
+            } else if (args[i].startsWith("--") || path != null) {
+                exitWithUsage("Unexpected argument " + args[i]);
+            } else {
+                path = args[i];
+            }
+        }
+        if (exportPath != null && path == null)
+            exitWithUsage("There is no graph file to export");
+
+        if (exportPath != null) {
+            //no window is needed, so it also runs on a machine without a screen
+            System.setProperty("java.awt.headless", "true");
+        }
+
+        GraphModel graph;
+        if (path != null) {
+            graph = new GraphModel(path);
+        } else {
+            graph = new GraphModel();
+        }
+
+        if (exportPath == null) {
+            new GraphFrame(graph);
+            return;
+        }
+        if (graph.hasLoadFailed()) {
+            //an empty image would look like a successful export
+            System.exit(1);
+        }
+        try {
+            GraphImageExporter.exportFile(graph.getSnapshot(), scale, new File(exportPath));
+        } catch (IOException | RuntimeException e) {
+            System.out.println("It hasn't been possible to export the graph, try again");
+            System.exit(1);
+        } catch (OutOfMemoryError e) {
+            //the rows of the image are kept in memory while they are written
+            System.out.println("The image is too big to be exported, try a smaller scale");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * It reads the scale of the export, it must be a positive number
+     *
+     * @param argument the argument following --scale
+     * @return the scale
+     */
+    private static double parseScale(String argument) {
+        try {
+            double scale = Double.parseDouble(argument);
+            if (scale > 0 && !Double.isInfinite(scale))
+                return scale;
+        } catch (NumberFormatException e) {
+            //the usage is printed below
+        }
+        exitWithUsage("The scale must be a positive number: " + argument);
+        return 0;
+    }
+
+    /**
+     * It prints what is wrong with the arguments and how to use them, then it ends the program
+     *
+     * @param message what is wrong with the arguments
+     */
+    private static void exitWithUsage(String message) {
+        System.out.println(message);
+        System.out.println(USAGE);
+        System.exit(1);
+    }
+}
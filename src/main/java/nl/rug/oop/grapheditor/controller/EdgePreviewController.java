@@ -0,0 +1,37 @@
+package nl.rug.oop.grapheditor.controller;
+
+import nl.rug.oop.grapheditor.view.GraphPanel;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseMotionAdapter;
+
+/**
+ * EdgePreviewController moves the end of the edge being added to the mouse.
+ * It listens to the panel and to the labels of the nodes, which would otherwise hide the movements
+ * of the mouse from the panel, so the preview only changes when the mouse moves.
+ */
+public class EdgePreviewController extends MouseMotionAdapter {
+    private final GraphPanel panel;
+
+    /**
+     * Constructor for the controller of the preview of a panel
+     *
+     * @param panel the panel showing the preview
+     */
+    public EdgePreviewController(GraphPanel panel) {
+        this.panel = panel;
+    }
+
+    /**
+     * It moves the end of the preview to the mouse
+     *
+     * @param e mouse event, of the panel or of one of its labels
+     */
+    @Override
+    public void mouseMoved(MouseEvent e) {
+        Point point = SwingUtilities.convertPoint(e.getComponent(), e.getPoint(), panel);
+        panel.moveEdgePreview(point.x, point.y);
+    }
+}
@@ -2,22 +2,36 @@ package nl.rug.oop.grapheditor.controller;
 
 import nl.rug.oop.grapheditor.controller.items.Redo;
 import nl.rug.oop.grapheditor.controller.items.Undo;
+import nl.rug.oop.grapheditor.controller.items.analysis.ConnectedComponent;
+import nl.rug.oop.grapheditor.controller.items.analysis.ReachableNodes;
+import nl.rug.oop.grapheditor.controller.items.analysis.StronglyConnectedComponent;
+import nl.rug.oop.grapheditor.controller.items.analysis.TopologicalOrder;
+import nl.rug.oop.grapheditor.controller.items.io.ExportImage;
 import nl.rug.oop.grapheditor.controller.items.io.LoadGraph;
 import nl.rug.oop.grapheditor.controller.items.io.ResetGraph;
 import nl.rug.oop.grapheditor.controller.items.io.SaveGraph;
 import nl.rug.oop.grapheditor.controller.items.select.NodesDeselection;
 import nl.rug.oop.grapheditor.controller.items.select.NodesSelection;
+import nl.rug.oop.grapheditor.controller.items.view.PaintedNodes;
+import nl.rug.oop.grapheditor.controller.items.view.ResetView;
+import nl.rug.oop.grapheditor.controller.items.view.ShowMetrics;
 import nl.rug.oop.grapheditor.model.GraphModel;
+import nl.rug.oop.grapheditor.model.algorithms.GraphAlgorithms;
+import nl.rug.oop.grapheditor.view.GraphPanel;
 
 import javax.swing.*;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.List;
 
 public class MenuBar extends JMenuBar implements PropertyChangeListener {
     private final JMenuItem undo;
     private final JMenuItem redo;
     private final JMenuItem select;
     private final JMenuItem deselect;
+    private final JMenuItem reachable;
+    private final JMenuItem connectedComponent;
+    private final JMenuItem stronglyConnectedComponent;
     private final GraphModel graph;
 
     /**
@@ -25,8 +39,9 @@ public class MenuBar extends JMenuBar implements PropertyChangeListener {
      *
      * @param graph the graph model that is edited by these actions
      * @param frame the frame of the mnu bar
+     * @param panel the panel showing the graph
      */
-    public MenuBar(GraphModel graph, JFrame frame) {
+    public MenuBar(GraphModel graph, JFrame frame, GraphPanel panel) {
         super();
         this.graph = graph;
         graph.addPropertyChangeListener(this);
@@ -37,12 +52,20 @@ public class MenuBar extends JMenuBar implements PropertyChangeListener {
 
         NodeColorer colorChooser = new NodeColorer(graph, frame);
 
+        GraphAlgorithms algorithms = new GraphAlgorithms();
+        reachable = new ReachableNodes(graph, algorithms);
+        connectedComponent = new ConnectedComponent(graph, algorithms);
+        stronglyConnectedComponent = new StronglyConnectedComponent(graph, algorithms);
+
         JMenu file = new JMenu("File");
         JMenu edit = new JMenu("Edit");
+        JMenu analysis = new JMenu("Analysis");
+        JMenu view = new JMenu("View");
 
         file.add(new SaveGraph(graph));
         file.add(new LoadGraph(graph));
         file.add(new ResetGraph(graph));
+        file.add(new ExportImage(graph));
 
         edit.add(select);
         edit.add(deselect);
@@ -50,10 +73,21 @@ public class MenuBar extends JMenuBar implements PropertyChangeListener {
         edit.add(undo);
         edit.add(redo);
 
+        analysis.add(reachable);
+        analysis.add(connectedComponent);
+        analysis.add(stronglyConnectedComponent);
+        analysis.add(new TopologicalOrder(graph, algorithms));
+
+        view.add(new PaintedNodes(panel));
+        view.add(new ResetView(panel));
+        view.add(new ShowMetrics(panel));
+
         updateItemStatus(0);
 
         add(file);
         add(edit);
+        add(analysis);
+        add(view);
     }
 
     /**
@@ -62,6 +96,9 @@ public class MenuBar extends JMenuBar implements PropertyChangeListener {
     private void updateItemStatus(Integer numSelectedNodes) {
         select.setEnabled(numSelectedNodes != graph.getNumNodes());
         deselect.setEnabled(numSelectedNodes != 0);
+        reachable.setEnabled(numSelectedNodes != 0);
+        connectedComponent.setEnabled(numSelectedNodes != 0);
+        stronglyConnectedComponent.setEnabled(numSelectedNodes != 0);
         undo.setEnabled(graph.isUndoable());
         redo.setEnabled(graph.canRedo());
     }
@@ -75,6 +112,13 @@ public class MenuBar extends JMenuBar implements PropertyChangeListener {
      */
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
+        if ("batch".equals(evt.getPropertyName())) {
+            //the batch contains the last event of each property, in order
+            for (Object event : (List<?>) evt.getNewValue()) {
+                propertyChange((PropertyChangeEvent) event);
+            }
+            return;
+        }
 
         switch (evt.getPropertyName()) {
             case "nodeSelected":
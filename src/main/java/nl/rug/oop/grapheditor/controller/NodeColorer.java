@@ -25,7 +25,7 @@ public class NodeColorer extends JMenuItem {
             Color initialColor = graph.getSelectedNodes().get(0).getBackgroundColor();
             color = JColorChooser.showDialog(frame, "Select a color", initialColor);
             if (color != null) {
-                ColorChangeUndoable changeColor = new ColorChangeUndoable(graph, initialColor, color);
+                ColorChangeUndoable changeColor = new ColorChangeUndoable(graph, color);
                 graph.addOperation(changeColor);
             }
         });
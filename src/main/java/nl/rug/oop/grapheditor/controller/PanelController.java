@@ -0,0 +1,148 @@
+package nl.rug.oop.grapheditor.controller;
+
+import nl.rug.oop.grapheditor.model.CompressedGraph;
+import nl.rug.oop.grapheditor.model.GraphModel;
+import nl.rug.oop.grapheditor.model.Node;
+import nl.rug.oop.grapheditor.view.GraphPanel;
+
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * PanelController is the single mouse listener of a panel that paints the nodes itself.
+ * It finds the node under the mouse with the spatial index of the graph and it forwards the event
+ * to a SelectionController of that node, translated so that it looks like an event of a NodeLabel.
+ * Like for the labels, a drag keeps going to the node where the mouse has been pressed.
+ * The events are converted in the coordinates of the graph first, so they work with any zoom of the view.
+ * Dragging where there is no node moves the view, and the mouse wheel zooms it.
+ * While nodes are dragged, the panel is told which ones move, so it can draw the rest from an image.
+ */
+public class PanelController extends MouseAdapter {
+    private static final double ZOOM_STEP = 1.1;
+
+    private final GraphModel graph;
+    private final GraphPanel panel;
+    private Node pressedNode;
+    private SelectionController pressedController;
+    private Point panningFrom;
+    private boolean dragging;
+
+    /**
+     * Constructor for the controller of a panel
+     *
+     * @param graph the graph shown by the panel
+     * @param panel the panel
+     */
+    public PanelController(GraphModel graph, GraphPanel panel) {
+        this.graph = graph;
+        this.panel = panel;
+    }
+
+    /**
+     * It finds the node under the point. When nodes overlap it returns the one painted on top,
+     * which is the one that comes first in the graph, as it happens for the labels.
+     *
+     * @param x horizontal coordinate of the point in the graph
+     * @param y vertical coordinate of the point in the graph
+     * @return the node under the point, null if there is none
+     */
+    public Node nodeAt(int x, int y) {
+        Node top = null;
+        int topIndex = Integer.MAX_VALUE;
+        CompressedGraph compressed = null;
+        for (Node node : graph.getSpatialIndex().nodesAt(x, y)) {
+            if (top == null) {
+                top = node;
+                continue;
+            }
+            if (compressed == null) {
+                compressed = graph.getCompressedGraph();
+                topIndex = compressed.indexOf(top);
+            }
+            int index = compressed.indexOf(node);
+            if (index < topIndex) {
+                top = node;
+                topIndex = index;
+            }
+        }
+        return top;
+    }
+
+    @Override
+    public void mousePressed(MouseEvent e) {
+        Point point = panel.toGraph(e.getX(), e.getY());
+        pressedNode = nodeAt(point.x, point.y);
+        pressedController = pressedNode == null ? null : new SelectionController(pressedNode);
+        panningFrom = pressedNode == null ? e.getPoint() : null;
+    }
+
+    @Override
+    public void mouseDragged(MouseEvent e) {
+        if (pressedController != null) {
+            if (!dragging) {
+                dragging = true;
+                panel.beginDrag(movingNodes());
+            }
+            pressedController.mouseDragged(toNode(e, pressedNode));
+        } else if (panningFrom != null) {
+            panel.pan(e.getX() - panningFrom.x, e.getY() - panningFrom.y);
+            panningFrom = e.getPoint();
+        }
+    }
+
+    @Override
+    public void mouseReleased(MouseEvent e) {
+        if (pressedController != null)
+            pressedController.mouseReleased(toNode(e, pressedNode));
+        if (dragging)
+            panel.endDrag();
+        dragging = false;
+        pressedNode = null;
+        pressedController = null;
+        panningFrom = null;
+    }
+
+    @Override
+    public void mouseClicked(MouseEvent e) {
+        Point point = panel.toGraph(e.getX(), e.getY());
+        Node node = nodeAt(point.x, point.y);
+        if (node != null)
+            new SelectionController(node).mouseClicked(toNode(e, node));
+    }
+
+    @Override
+    public void mouseWheelMoved(MouseWheelEvent e) {
+        panel.zoom(Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+    }
+
+    /**
+     * It finds the nodes that a drag of the pressed node moves, like the SelectionController does:
+     * all the selected nodes if the pressed node is selected, the pressed node if nothing is selected
+     *
+     * @return the nodes moved by the drag, empty if the drag doesn't move any node
+     */
+    private Collection<Node> movingNodes() {
+        if (pressedNode.getSelected())
+            return graph.getSelectedNodes();
+        if (graph.getNumSelectedNodes() == 0)
+            return Collections.singleton(pressedNode);
+        return Collections.emptyList();
+    }
+
+    /**
+     * It translates an event of the panel in the coordinates of a node
+     *
+     * @param e    event of the panel
+     * @param node node receiving the event
+     * @return the same event, relative to the top left corner of the node in the graph
+     */
+    private MouseEvent toNode(MouseEvent e, Node node) {
+        Point point = panel.toGraph(e.getX(), e.getY());
+        return new MouseEvent(e.getComponent(), e.getID(), e.getWhen(), e.getModifiersEx(),
+                point.x - node.getX(), point.y - node.getY(), e.getClickCount(), e.isPopupTrigger(), e.getButton());
+    }
+}
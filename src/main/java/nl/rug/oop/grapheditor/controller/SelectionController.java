@@ -4,20 +4,19 @@ import nl.rug.oop.grapheditor.controller.undoRedo.MovingNodeUndoable;
 import nl.rug.oop.grapheditor.controller.undoRedo.RenameNodeUndoable;
 import nl.rug.oop.grapheditor.controller.undoRedo.add.AddEdgeUndoable;
 import nl.rug.oop.grapheditor.model.GraphModel;
+import nl.rug.oop.grapheditor.model.GraphVersion;
 import nl.rug.oop.grapheditor.model.Node;
 
 import javax.swing.*;
-import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
 
 public class SelectionController extends MouseAdapter {
 
 
     private final Node node;
     private static GraphModel graph;
-    private ArrayList<Rectangle> coordinates;
+    private GraphVersion versionBeforeDragging;
     private boolean startDragging;
 
     /**
@@ -62,16 +61,8 @@ public class SelectionController extends MouseAdapter {
     @Override
     public void mouseReleased(MouseEvent e) {
         super.mouseReleased(e);
-        if (startDragging && node.getSelected()) {
-            ArrayList<Rectangle> newCoordinates = graph.getSelectedNodesShape();
-            MovingNodeUndoable movingNode = new MovingNodeUndoable(graph, coordinates, newCoordinates);
-            graph.addOperation(movingNode);
-
-            startDragging = false;
-        } else if (startDragging && graph.getNumSelectedNodes() == 0) {
-            ArrayList<Rectangle> newCoordinates = new ArrayList<>();
-            newCoordinates.add(node.getShape());
-            MovingNodeUndoable movingNode = new MovingNodeUndoable(graph, node, coordinates, newCoordinates);
+        if (startDragging && (node.getSelected() || graph.getNumSelectedNodes() == 0)) {
+            MovingNodeUndoable movingNode = new MovingNodeUndoable(graph, versionBeforeDragging);
             graph.addOperation(movingNode);
 
             startDragging = false;
@@ -86,15 +77,10 @@ public class SelectionController extends MouseAdapter {
     @Override
     public void mouseDragged(MouseEvent e) {
         super.mouseDragged(e);
-        //save only one time the initial coordinates
+        //save only one time the version of the graph before moving
         if (!startDragging) {
             startDragging = true;
-            if (graph.getNumSelectedNodes() == 0) {
-                coordinates = new ArrayList<>();
-                coordinates.add(node.getShape());
-            } else {
-                coordinates = graph.getSelectedNodesShape();
-            }
+            versionBeforeDragging = graph.getGraphVersion();
         }
         if (node.getSelected()) {
             graph.moveSelectedNodes(graph.getSelectedNodes(), e.getX(), e.getY());
@@ -11,6 +11,7 @@ import nl.rug.oop.grapheditor.model.GraphModel;
 import javax.swing.*;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.List;
 
 public class ToolMenu extends JToolBar implements PropertyChangeListener {
     private final JMenuItem removeNode;
@@ -75,6 +76,13 @@ public class ToolMenu extends JToolBar implements PropertyChangeListener {
      */
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
+        if ("batch".equals(evt.getPropertyName())) {
+            //the batch contains the last event of each property, in order
+            for (Object event : (List<?>) evt.getNewValue()) {
+                propertyChange((PropertyChangeEvent) event);
+            }
+            return;
+        }
         switch (evt.getPropertyName()) {
             case "nodeSelected":
             case "addOperation":
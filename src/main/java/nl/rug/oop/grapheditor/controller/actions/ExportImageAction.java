@@ -0,0 +1,90 @@
+package nl.rug.oop.grapheditor.controller.actions;
+
+import nl.rug.oop.grapheditor.model.GraphModel;
+import nl.rug.oop.grapheditor.model.GraphSnapshot;
+import nl.rug.oop.grapheditor.view.GraphImageExporter;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * ExportImageAction asks for an image file and draws the whole graph in it, one pixel for each unit of the graph.
+ * An SVG file receives a vector drawing of the graph instead.
+ * The image is drawn in the background on a snapshot of the graph, so the editor keeps responding on big graphs.
+ */
+public class ExportImageAction extends AbstractAction {
+    private final GraphModel graph;
+    private JFileChooser chooser;
+
+    /**
+     * Constructor for the export image action
+     *
+     * @param graph the graph being exported
+     */
+    public ExportImageAction(GraphModel graph) {
+        super("Export Image");
+        this.graph = graph;
+    }
+
+    /**
+     * Action performed event, exports the graph as an image
+     *
+     * @param e the event that triggered the action
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        File file = getImageFile();
+        if (file == null)
+            return;
+        GraphSnapshot snapshot = graph.getSnapshot();
+
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                GraphImageExporter.exportFile(snapshot, 1, file);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException e) {
+                    System.out.println("It hasn't been possible to export the graph, try again");
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * It asks for the image file with a file chooser, which is created the first time it is needed.
+     * If the name of the file has no extension, the one of the chosen format is added.
+     *
+     * @return the file chosen by the user, null if the user didn't choose any
+     */
+    private File getImageFile() {
+        if (chooser == null) {
+            chooser = new JFileChooser();
+            chooser.setCurrentDirectory(new File("."));
+            chooser.setAcceptAllFileFilterUsed(false);
+            chooser.addChoosableFileFilter(new FileNameExtensionFilter("PNG Images", "png"));
+            chooser.addChoosableFileFilter(new FileNameExtensionFilter("JPEG Images", "jpg", "jpeg"));
+            chooser.addChoosableFileFilter(new FileNameExtensionFilter("BMP Images", "bmp"));
+            chooser.addChoosableFileFilter(new FileNameExtensionFilter("SVG Drawings", "svg"));
+            chooser.setFileFilter(chooser.getChoosableFileFilters()[0]);
+        }
+        if (chooser.showSaveDialog(null) != JFileChooser.APPROVE_OPTION) {
+            System.out.println("The user decided to not export the graph");
+            return null;
+        }
+        File file = chooser.getSelectedFile();
+        if (file.getName().indexOf('.') == -1) {
+            String extension = ((FileNameExtensionFilter) chooser.getFileFilter()).getExtensions()[0];
+            file = new File(file.getPath() + "." + extension);
+        }
+        return file;
+    }
+}
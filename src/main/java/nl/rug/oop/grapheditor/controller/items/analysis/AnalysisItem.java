@@ -0,0 +1,81 @@
+package nl.rug.oop.grapheditor.controller.items.analysis;
+
+import nl.rug.oop.grapheditor.controller.undoRedo.select.SelectResultUndoable;
+import nl.rug.oop.grapheditor.model.GraphModel;
+import nl.rug.oop.grapheditor.model.GraphSnapshot;
+import nl.rug.oop.grapheditor.model.Node;
+import nl.rug.oop.grapheditor.model.algorithms.GraphAlgorithms;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * AnalysisItem is a menu item that runs an algorithm on the graph and selects the nodes it finds.
+ * The algorithm runs in the background on a snapshot of the graph, so the editor keeps responding
+ * on big graphs; the selection is done on the event dispatch thread once the result is ready.
+ */
+public abstract class AnalysisItem extends JMenuItem {
+    private final GraphModel graph;
+    private final GraphAlgorithms algorithms;
+
+    /**
+     * Constructor for an analysis menu item
+     *
+     * @param name       text of the item
+     * @param graph      the graph to be analysed
+     * @param algorithms algorithms running the analysis
+     */
+    protected AnalysisItem(String name, GraphModel graph, GraphAlgorithms algorithms) {
+        super(name);
+        this.graph = graph;
+        this.algorithms = algorithms;
+
+        addActionListener(e -> analyse());
+    }
+
+    /**
+     * It takes a snapshot of the graph and runs the analysis in the background
+     */
+    private void analyse() {
+        GraphSnapshot snapshot = graph.getSnapshot();
+        int[] selected = GraphAlgorithms.indicesOf(snapshot, graph.getSelectedNodes());
+
+        new SwingWorker<List<Node>, Void>() {
+            @Override
+            protected List<Node> doInBackground() {
+                return analyse(algorithms, snapshot, selected);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    showResult(get(), snapshot);
+                } catch (InterruptedException | ExecutionException e) {
+                    System.out.println("It hasn't been possible to analyse the graph, try again");
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * It runs the analysis, it is called on a background thread
+     *
+     * @param algorithms algorithms running the analysis
+     * @param snapshot   snapshot of the graph
+     * @param selected   dense indices of the selected nodes
+     * @return the nodes found by the analysis
+     */
+    protected abstract List<Node> analyse(GraphAlgorithms algorithms, GraphSnapshot snapshot, int[] selected);
+
+    /**
+     * It selects the nodes found by the analysis, it is called on the event dispatch thread
+     *
+     * @param result   the nodes found by the analysis
+     * @param snapshot snapshot the analysis has been run on
+     */
+    protected void showResult(List<Node> result, GraphSnapshot snapshot) {
+        SelectResultUndoable selectResult = new SelectResultUndoable(graph, result);
+        graph.addOperation(selectResult);
+    }
+}
@@ -0,0 +1,26 @@
+package nl.rug.oop.grapheditor.controller.items.analysis;
+
+import nl.rug.oop.grapheditor.model.GraphModel;
+import nl.rug.oop.grapheditor.model.GraphSnapshot;
+import nl.rug.oop.grapheditor.model.Node;
+import nl.rug.oop.grapheditor.model.algorithms.GraphAlgorithms;
+
+import java.util.List;
+
+public class ReachableNodes extends AnalysisItem {
+
+    /**
+     * Constructor for a menu item that selects all the nodes reachable from the selected nodes
+     *
+     * @param graph      the graph the user is selecting from
+     * @param algorithms algorithms running the analysis
+     */
+    public ReachableNodes(GraphModel graph, GraphAlgorithms algorithms) {
+        super("Select reachable nodes", graph, algorithms);
+    }
+
+    @Override
+    protected List<Node> analyse(GraphAlgorithms algorithms, GraphSnapshot snapshot, int[] selected) {
+        return GraphAlgorithms.nodesOf(snapshot, algorithms.reachable(snapshot, selected, true));
+    }
+}
@@ -0,0 +1,27 @@
+package nl.rug.oop.grapheditor.controller.items.analysis;
+
+import nl.rug.oop.grapheditor.model.GraphModel;
+import nl.rug.oop.grapheditor.model.GraphSnapshot;
+import nl.rug.oop.grapheditor.model.Node;
+import nl.rug.oop.grapheditor.model.algorithms.GraphAlgorithms;
+
+import java.util.List;
+
+public class StronglyConnectedComponent extends AnalysisItem {
+
+    /**
+     * Constructor for a menu item that selects the strongly connected components of the selected nodes
+     *
+     * @param graph      the graph the user is selecting from
+     * @param algorithms algorithms running the analysis
+     */
+    public StronglyConnectedComponent(GraphModel graph, GraphAlgorithms algorithms) {
+        super("Select strongly connected component", graph, algorithms);
+    }
+
+    @Override
+    protected List<Node> analyse(GraphAlgorithms algorithms, GraphSnapshot snapshot, int[] selected) {
+        int[] components = algorithms.stronglyConnectedComponents(snapshot);
+        return GraphAlgorithms.nodesOf(snapshot, GraphAlgorithms.componentsOf(components, selected));
+    }
+}
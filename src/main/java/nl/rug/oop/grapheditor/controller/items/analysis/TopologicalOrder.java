@@ -0,0 +1,43 @@
+package nl.rug.oop.grapheditor.controller.items.analysis;
+
+import nl.rug.oop.grapheditor.model.GraphModel;
+import nl.rug.oop.grapheditor.model.GraphSnapshot;
+import nl.rug.oop.grapheditor.model.Node;
+import nl.rug.oop.grapheditor.model.algorithms.GraphAlgorithms;
+
+import javax.swing.*;
+import java.util.List;
+
+public class TopologicalOrder extends AnalysisItem {
+
+    /**
+     * Constructor for a menu item that selects the nodes in topological order,
+     * so that the order of the selection is the order of the edges
+     *
+     * @param graph      the graph the user is selecting from
+     * @param algorithms algorithms running the analysis
+     */
+    public TopologicalOrder(GraphModel graph, GraphAlgorithms algorithms) {
+        super("Select in topological order", graph, algorithms);
+    }
+
+    @Override
+    protected List<Node> analyse(GraphAlgorithms algorithms, GraphSnapshot snapshot, int[] selected) {
+        return GraphAlgorithms.nodesOf(snapshot, algorithms.topologicalOrder(snapshot));
+    }
+
+    /**
+     * It selects the sorted nodes and it tells the user how many nodes couldn't be sorted because of cycles
+     *
+     * @param result   the sorted nodes
+     * @param snapshot snapshot the analysis has been run on
+     */
+    @Override
+    protected void showResult(List<Node> result, GraphSnapshot snapshot) {
+        super.showResult(result, snapshot);
+        int unsorted = snapshot.getNumNodes() - result.size();
+        if (unsorted > 0)
+            JOptionPane.showMessageDialog(this, "The graph has cycles, " + unsorted
+                    + " nodes can't be sorted and have not been selected.");
+    }
+}
@@ -0,0 +1,23 @@
+package nl.rug.oop.grapheditor.controller.items.io;
+
+import nl.rug.oop.grapheditor.controller.actions.ExportImageAction;
+import nl.rug.oop.grapheditor.model.GraphModel;
+
+import javax.swing.*;
+import java.awt.event.InputEvent;
+
+import static java.awt.event.KeyEvent.VK_E;
+
+public class ExportImage extends JMenuItem {
+
+    /**
+     * Constructor for a menu item that allows the user to export the graph as an image
+     *
+     * @param graph the graph that will be drawn in the image
+     */
+    public ExportImage(GraphModel graph) {
+        super(new ExportImageAction(graph));
+        setAccelerator(KeyStroke.getKeyStroke(
+                VK_E, InputEvent.CTRL_DOWN_MASK));
+    }
+}
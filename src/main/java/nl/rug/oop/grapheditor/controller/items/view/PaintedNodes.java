@@ -0,0 +1,20 @@
+package nl.rug.oop.grapheditor.controller.items.view;
+
+import nl.rug.oop.grapheditor.view.GraphPanel;
+
+import javax.swing.*;
+
+public class PaintedNodes extends JCheckBoxMenuItem {
+
+    /**
+     * Constructor for a menu item that switches between painting the nodes directly
+     * and showing a label for each node
+     *
+     * @param panel the panel showing the graph
+     */
+    public PaintedNodes(GraphPanel panel) {
+        super("Paint nodes directly", panel.isPaintedNodes());
+
+        addActionListener(e -> panel.setPaintedNodes(isSelected()));
+    }
+}
@@ -0,0 +1,19 @@
+package nl.rug.oop.grapheditor.controller.items.view;
+
+import nl.rug.oop.grapheditor.view.GraphPanel;
+
+import javax.swing.*;
+
+public class ResetView extends JMenuItem {
+
+    /**
+     * Constructor for a menu item that brings the view of the graph back to no zoom and no movement
+     *
+     * @param panel the panel showing the graph
+     */
+    public ResetView(GraphPanel panel) {
+        super("Reset zoom");
+
+        addActionListener(e -> panel.resetView());
+    }
+}
@@ -0,0 +1,20 @@
+package nl.rug.oop.grapheditor.controller.items.view;
+
+import nl.rug.oop.grapheditor.view.GraphPanel;
+
+import javax.swing.*;
+
+public class ShowMetrics extends JCheckBoxMenuItem {
+
+    /**
+     * Constructor for a menu item that shows or hides the metrics of the panel:
+     * paint times, nodes and edges drawn, events fired and time spent by the listeners
+     *
+     * @param panel the panel showing the graph
+     */
+    public ShowMetrics(GraphPanel panel) {
+        super("Show metrics", panel.getMetrics() != null);
+
+        addActionListener(e -> panel.setMetricsShown(isSelected()));
+    }
+}
@@ -1,36 +1,31 @@
 package nl.rug.oop.grapheditor.controller.undoRedo;
 
 import nl.rug.oop.grapheditor.model.GraphModel;
-import nl.rug.oop.grapheditor.model.Node;
+import nl.rug.oop.grapheditor.model.GraphVersion;
 
 import javax.swing.undo.AbstractUndoableEdit;
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
 import java.awt.*;
-import java.util.ArrayList;
 
 public class ColorChangeUndoable extends AbstractUndoableEdit {
     private final GraphModel graph;
-    private final ArrayList<Node> selectedNodes;
-    private final Color oldColor;
-    private final Color newColor;
+    private final GraphVersion before;
+    private final GraphVersion after;
 
 
     /**
      * Constructor that changes the colors of all the selected nodes
      *
      * @param graph    the graph that is being edited
-     * @param oldColor the old color of the nodes
      * @param newColor the new color of the nodes
      */
-    public ColorChangeUndoable(GraphModel graph, Color oldColor, Color newColor) {
+    public ColorChangeUndoable(GraphModel graph, Color newColor) {
         this.graph = graph;
 
-        this.oldColor = oldColor;
-        this.newColor = newColor;
-
-        selectedNodes = graph.getSelectedNodes();
-        graph.changeSelectedNodesColor(selectedNodes, newColor);
+        before = graph.getGraphVersion();
+        graph.changeSelectedNodesColor(graph.getSelectedNodes(), newColor);
+        after = graph.getGraphVersion();
         graph.deselectNodes();
     }
 
@@ -42,7 +37,7 @@ public class ColorChangeUndoable extends AbstractUndoableEdit {
     @Override
     public void undo() throws CannotUndoException {
         super.undo();
-        graph.changeSelectedNodesColor(selectedNodes, oldColor);
+        graph.restoreVersion(before);
     }
 
     /**
@@ -53,7 +48,7 @@ public class ColorChangeUndoable extends AbstractUndoableEdit {
     @Override
     public void redo() throws CannotRedoException {
         super.redo();
-        graph.changeSelectedNodesColor(selectedNodes, newColor);
+        graph.restoreVersion(after);
         graph.deselectNodes();
     }
 }
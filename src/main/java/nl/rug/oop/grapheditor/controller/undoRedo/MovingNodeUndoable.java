@@ -1,56 +1,32 @@
 package nl.rug.oop.grapheditor.controller.undoRedo;
 
 import nl.rug.oop.grapheditor.model.GraphModel;
-import nl.rug.oop.grapheditor.model.Node;
+import nl.rug.oop.grapheditor.model.GraphVersion;
 
 import javax.swing.undo.AbstractUndoableEdit;
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
-import java.awt.*;
-import java.util.ArrayList;
 
 public class MovingNodeUndoable extends AbstractUndoableEdit {
     private final GraphModel graph;
-    private ArrayList<Node> selectedNodes;
-    private final ArrayList<Rectangle> oldCoordinates;
-    private final ArrayList<Rectangle> newCoordinates;
+    private final GraphVersion before;
+    private final GraphVersion after;
     private final int numNodesSelected;
 
     /**
-     * Constructor that initialize the edge to be deleted
+     * Constructor for nodes that have already been moved, the current version of the graph
+     * is the one after the move
      *
-     * @param graph Current graph
+     * @param graph  Current graph
+     * @param before version of the graph before the nodes started moving
      */
-    public MovingNodeUndoable(GraphModel graph, ArrayList<Rectangle> oldCoordinates, ArrayList<Rectangle> newCoordinates) {
+    public MovingNodeUndoable(GraphModel graph, GraphVersion before) {
         this.graph = graph;
 
-        this.oldCoordinates = oldCoordinates;
-        this.newCoordinates = newCoordinates;
+        this.before = before;
+        after = graph.getGraphVersion();
 
         numNodesSelected = graph.getNumSelectedNodes();
-        selectedNodes = graph.getSelectedNodes();
-
-    }
-
-    /**
-     * Constructor that initializes moving an unselected node
-     *
-     * @param graph          Current graph
-     * @param unselectedNode an unselected node being moved
-     * @param oldCoordinates old position
-     * @param newCoordinates new position
-     */
-    public MovingNodeUndoable(GraphModel graph, Node unselectedNode, ArrayList<Rectangle> oldCoordinates, ArrayList<Rectangle> newCoordinates) {
-        this.graph = graph;
-
-        this.oldCoordinates = oldCoordinates;
-        this.newCoordinates = newCoordinates;
-
-        numNodesSelected = graph.getNumSelectedNodes();
-        if (numNodesSelected == 0) {
-            selectedNodes = new ArrayList<>();
-            selectedNodes.add(unselectedNode);
-        }
     }
 
     /**
@@ -62,7 +38,7 @@ public class MovingNodeUndoable extends AbstractUndoableEdit {
     public void undo() throws CannotUndoException {
         super.undo();
         graph.setNumNodesSelected(numNodesSelected);
-        graph.resetShapeSelectedNodes(selectedNodes, oldCoordinates);
+        graph.restoreVersion(before);
     }
 
     /**
@@ -73,6 +49,6 @@ public class MovingNodeUndoable extends AbstractUndoableEdit {
     @Override
     public void redo() throws CannotRedoException {
         super.redo();
-        graph.resetShapeSelectedNodes(selectedNodes, newCoordinates);
+        graph.restoreVersion(after);
     }
-}
\ No newline at end of file
+}
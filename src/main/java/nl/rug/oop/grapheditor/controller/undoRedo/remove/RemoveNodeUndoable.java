@@ -1,23 +1,21 @@
 package nl.rug.oop.grapheditor.controller.undoRedo.remove;
 
-import nl.rug.oop.grapheditor.model.Edge;
 import nl.rug.oop.grapheditor.model.GraphModel;
-import nl.rug.oop.grapheditor.model.Node;
+import nl.rug.oop.grapheditor.model.GraphVersion;
 
 import javax.swing.undo.AbstractUndoableEdit;
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
-import java.util.ArrayList;
-import java.util.stream.Collectors;
 
 public class RemoveNodeUndoable extends AbstractUndoableEdit {
     private final GraphModel graph;
-    private final ArrayList<Node> selectedNodes;
-    private final ArrayList<Edge> edgeSelectedNodes;
+    private final GraphVersion before;
+    private final GraphVersion after;
     private final int numNodesSelected;
 
     /**
-     * Constructor that initialises the node to be removed
+     * Constructor that removes the selected nodes, keeping the versions of the graph
+     * before and after the removal
      *
      * @param graph the graph the user is editing
      */
@@ -25,10 +23,10 @@ public class RemoveNodeUndoable extends AbstractUndoableEdit {
         this.graph = graph;
 
         numNodesSelected = graph.getNumSelectedNodes();
-        selectedNodes = graph.getNodes().stream().filter(Node::getSelected).collect(Collectors.toCollection(ArrayList::new));
-        edgeSelectedNodes = graph.edgesSelectedNodes();
+        before = graph.getGraphVersion();
 
-        graph.removeSelectedNodes(selectedNodes);
+        graph.removeSelectedNodes(graph.getSelectedNodes());
+        after = graph.getGraphVersion();
     }
 
     /**
@@ -40,8 +38,7 @@ public class RemoveNodeUndoable extends AbstractUndoableEdit {
     public void undo() throws CannotUndoException {
         super.undo();
         graph.setNumNodesSelected(numNodesSelected);
-        selectedNodes.forEach(graph::addNewNode);
-        edgeSelectedNodes.forEach(graph::addEdge);
+        graph.restoreVersion(before);
     }
 
     /**
@@ -52,7 +49,8 @@ public class RemoveNodeUndoable extends AbstractUndoableEdit {
     @Override
     public void redo() throws CannotRedoException {
         super.redo();
-        graph.removeSelectedNodes(selectedNodes);
+        graph.restoreVersion(after);
+        graph.setNumNodesSelected(0);
     }
 
 }
@@ -0,0 +1,52 @@
+package nl.rug.oop.grapheditor.controller.undoRedo.select;
+
+import nl.rug.oop.grapheditor.model.GraphModel;
+import nl.rug.oop.grapheditor.model.Node;
+
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SelectResultUndoable extends AbstractUndoableEdit {
+    private final GraphModel graph;
+    private final ArrayList<Node> previousSelection;
+    private final List<Node> result;
+
+    /**
+     * Constructor for the undoable selection of the result of an analysis of the graph
+     *
+     * @param graph  the graph the user is selecting from
+     * @param result the nodes found by the analysis, in the order they will be selected
+     */
+    public SelectResultUndoable(GraphModel graph, List<Node> result) {
+        this.graph = graph;
+        this.result = result;
+
+        previousSelection = graph.getSelectedNodes();
+        graph.selectNodes(result);
+    }
+
+    /**
+     * Method to undo this action
+     *
+     * @throws CannotUndoException if the action cannot be undone
+     */
+    @Override
+    public void undo() throws CannotUndoException {
+        super.undo();
+        graph.selectNodes(previousSelection);
+    }
+
+    /**
+     * Method to redo this action
+     *
+     * @throws CannotRedoException if the action cannot be redone
+     */
+    @Override
+    public void redo() throws CannotRedoException {
+        super.redo();
+        graph.selectNodes(result);
+    }
+}
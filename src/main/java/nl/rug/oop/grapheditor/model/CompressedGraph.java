@@ -0,0 +1,198 @@
+package nl.rug.oop.grapheditor.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * CompressedGraph is a read-only, compressed sparse row (CSR) representation of the structure of a graph.
+ * Every node gets a dense index from 0 to the number of nodes, following the order of the nodes in the graph.
+ * The outgoing edges of the node i are the targets stored in the positions from outStart(i) to outEnd(i),
+ * the incoming edges are stored in the same way in a reverse CSR.
+ * It is built by the GraphModel when it's needed and thrown away as soon as nodes or edges are added or removed.
+ */
+public class CompressedGraph {
+    private final Node[] nodes;
+    private final int[] indexById;
+    private final int[] outOffsets;
+    private final int[] outTargets;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final int[] inEdges;
+
+    /**
+     * The constructor builds the forward and the reverse CSR in O(N+E)
+     *
+     * @param graphNodes nodes of the graph
+     * @param graphEdges edges of the graph
+     * @param idBound    an upper bound (exclusive) for the ids of the nodes
+     */
+    CompressedGraph(Collection<Node> graphNodes, Collection<Edge> graphEdges, int idBound) {
+        int numNodes = graphNodes.size();
+        int numEdges = graphEdges.size();
+
+        nodes = graphNodes.toArray(new Node[0]);
+        indexById = new int[idBound];
+        Arrays.fill(indexById, -1);
+        for (int i = 0; i < numNodes; i++) {
+            indexById[nodes[i].getId()] = i;
+        }
+
+        int[] sources = new int[numEdges];
+        int[] targets = new int[numEdges];
+        int e = 0;
+        for (Edge edge : graphEdges) {
+            sources[e] = indexById[edge.getEndpoint1().getId()];
+            targets[e] = indexById[edge.getEndpoint2().getId()];
+            e++;
+        }
+
+        outOffsets = offsets(sources, numNodes);
+        outTargets = new int[numEdges];
+        int[] cursor = Arrays.copyOf(outOffsets, numNodes);
+        for (e = 0; e < numEdges; e++) {
+            outTargets[cursor[sources[e]]++] = targets[e];
+        }
+
+        inOffsets = offsets(targets, numNodes);
+        inSources = new int[numEdges];
+        inEdges = new int[numEdges];
+        cursor = Arrays.copyOf(inOffsets, numNodes);
+        for (int source = 0; source < numNodes; source++) {
+            for (int position = outOffsets[source]; position < outOffsets[source + 1]; position++) {
+                int slot = cursor[outTargets[position]]++;
+                inSources[slot] = source;
+                inEdges[slot] = position;
+            }
+        }
+    }
+
+    /**
+     * It computes the offsets of a CSR by counting how many times each node appears
+     *
+     * @param endpoints an endpoint for each edge
+     * @param numNodes  number of nodes
+     * @return an array of numNodes + 1 offsets, the last one is the number of edges
+     */
+    private static int[] offsets(int[] endpoints, int numNodes) {
+        int[] offsets = new int[numNodes + 1];
+        for (int endpoint : endpoints) {
+            offsets[endpoint + 1]++;
+        }
+        for (int i = 0; i < numNodes; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        return offsets;
+    }
+
+    /**
+     * Getter for the number of nodes
+     *
+     * @return number of nodes
+     */
+    public int getNumNodes() {
+        return nodes.length;
+    }
+
+    /**
+     * Getter for the number of edges
+     *
+     * @return number of edges
+     */
+    public int getNumEdges() {
+        return outTargets.length;
+    }
+
+    /**
+     * Getter for the node with the dense index
+     *
+     * @param index dense index of the node
+     * @return the node
+     */
+    public Node getNode(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * It finds the dense index of a node
+     *
+     * @param node node of the graph
+     * @return the dense index of the node, -1 if the node was not part of the graph when this CSR was built
+     */
+    public int indexOf(Node node) {
+        int id = node.getId();
+        if (id < 0 || id >= indexById.length)
+            return -1;
+        int index = indexById[id];
+        return index != -1 && nodes[index] == node ? index : -1;
+    }
+
+    /**
+     * First position of the outgoing edges of a node
+     *
+     * @param index dense index of the node
+     * @return first position, inclusive
+     */
+    public int outStart(int index) {
+        return outOffsets[index];
+    }
+
+    /**
+     * Last position of the outgoing edges of a node
+     *
+     * @param index dense index of the node
+     * @return last position, exclusive
+     */
+    public int outEnd(int index) {
+        return outOffsets[index + 1];
+    }
+
+    /**
+     * Getter for the ending node of an edge
+     *
+     * @param position position of the edge in the forward CSR
+     * @return dense index of the ending node
+     */
+    public int target(int position) {
+        return outTargets[position];
+    }
+
+    /**
+     * First position of the incoming edges of a node
+     *
+     * @param index dense index of the node
+     * @return first position, inclusive
+     */
+    public int inStart(int index) {
+        return inOffsets[index];
+    }
+
+    /**
+     * Last position of the incoming edges of a node
+     *
+     * @param index dense index of the node
+     * @return last position, exclusive
+     */
+    public int inEnd(int index) {
+        return inOffsets[index + 1];
+    }
+
+    /**
+     * Getter for the starting node of an incoming edge
+     *
+     * @param position position of the edge in the reverse CSR
+     * @return dense index of the starting node
+     */
+    public int source(int position) {
+        return inSources[position];
+    }
+
+    /**
+     * It maps an edge of the reverse CSR to its position in the forward CSR
+     *
+     * @param position position of the edge in the reverse CSR
+     * @return position of the same edge in the forward CSR
+     */
+    public int forwardPosition(int position) {
+        return inEdges[position];
+    }
+}
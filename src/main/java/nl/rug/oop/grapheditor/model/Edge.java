@@ -75,6 +75,7 @@ public class Edge {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(endpoint1, endpoint2);
+        //the same value as Objects.hash(endpoint1, endpoint2), without creating an array for every call
+        return 31 * (31 + Objects.hashCode(endpoint1)) + Objects.hashCode(endpoint2);
     }
 }
@@ -0,0 +1,59 @@
+package nl.rug.oop.grapheditor.model;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+
+/**
+ * EventMonitor is told about every event fired by a graph and by its nodes, and about the time each listener
+ * spends handling it, the listeners of all the nodes of the graph included. While a graph has a monitor, its events are delivered to the listeners one by one
+ * so that each of them can be timed; without a monitor they are fired as usual.
+ */
+public interface EventMonitor {
+
+    /**
+     * It is called when an event is about to be delivered to the listeners
+     *
+     * @param event the event
+     */
+    void eventFired(PropertyChangeEvent event);
+
+    /**
+     * It is called after a listener has handled an event
+     *
+     * @param listener the listener
+     * @param event    the event
+     * @param nanos    time spent by the listener, in nanoseconds
+     */
+    void listenerCalled(PropertyChangeListener listener, PropertyChangeEvent event, long nanos);
+
+    /**
+     * It is called after a listener of all the nodes of the graph has handled the change of a node.
+     * Those changes don't have an event object, so the change is also counted as fired here.
+     *
+     * @param listener     the listener
+     * @param propertyName name of the event of the node describing the change
+     * @param nanos        time spent by the listener, in nanoseconds
+     */
+    void nodeListenerCalled(NodeListener listener, String propertyName, long nanos);
+
+    /**
+     * It delivers an event to the listeners of a property change support, timing each of them.
+     * Like the property change support, it doesn't deliver an event whose old and new values are equal.
+     *
+     * @param support the listeners
+     * @param event   the event
+     */
+    default void fire(PropertyChangeSupport support, PropertyChangeEvent event) {
+        Object oldValue = event.getOldValue();
+        Object newValue = event.getNewValue();
+        if (oldValue != null && newValue != null && oldValue.equals(newValue))
+            return;
+        eventFired(event);
+        for (PropertyChangeListener listener : support.getPropertyChangeListeners()) {
+            long start = System.nanoTime();
+            listener.propertyChange(event);
+            listenerCalled(listener, event, System.nanoTime() - start);
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package nl.rug.oop.grapheditor.model;
 
-import nl.rug.oop.grapheditor.model.io.GraphFileFormat;
+import nl.rug.oop.grapheditor.model.io.GraphBuilder;
 import nl.rug.oop.grapheditor.model.io.GraphLoader;
 import nl.rug.oop.grapheditor.model.io.GraphSaver;
 
@@ -10,32 +10,83 @@ import java.awt.*;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * GraphModel contains all the information about the current graph and all the methods in order
  * to add more nodes or edit the current state. Edges are added in order to be a directed graph.
+ * The graph is edited only by the event dispatch thread, holding the write lock of the graph while it changes.
+ * Other threads can read a consistent graph by taking a snapshot or by holding the read lock.
+ * The graph can also produce an immutable version of itself, which shares with the previous version
+ * everything that hasn't changed, and go back to any version it has produced.
  */
 public class GraphModel {
-    private ArrayList<Node> nodes;
-    private ArrayList<Edge> edges;
+    //initial capacity of the adjacency set of a node
+    private static final int ADJACENCY_CAPACITY = 4;
+    //shortest lines of a ".graph" file: "0 0 0 0 a" and "0 0", with their new line
+    private static final int MIN_NODE_BYTES = 10;
+    private static final int MIN_EDGE_BYTES = 4;
+    //the structures are never sized for more nodes or edges than this before they arrive
+    private static final int PRESIZE_LIMIT = 1 << 22;
+    private LinkedHashMap<Integer, Node> nodes;
+    private NodeStore nodeStore;
+    private SpatialIndex spatialIndex;
+    private LinkedHashSet<Edge> edges;
+    private HashMap<Node, LinkedHashSet<Edge>> outgoingEdges;
+    private HashMap<Node, LinkedHashSet<Edge>> incomingEdges;
+    private volatile CompressedGraph compressedGraph;
+    private volatile GraphSnapshot snapshot;
+    private GraphVersion version;
+    private LinkedHashSet<Edge> dirtyEdges;
+    private boolean allEdgesDirty;
+    private final ReentrantReadWriteLock lock;
+    private LinkedHashSet<Node> selection;
     private int numNodesSelected;
     private Node nodeA;
     private boolean isAddingNewEdge;
+    private boolean loadFailed;
     private UndoManager undoManager;
+    private int batchDepth;
+    private final LinkedHashMap<String, PropertyChangeEvent> batchedEvents;
     private final PropertyChangeSupport propertyChangeSupport;
+    private EventMonitor eventMonitor;
 
     /**
      * The constructor simply initialize the nodes array.
      */
     public GraphModel() {
-        nodes = new ArrayList<>();
-        edges = new ArrayList<>();
+        lock = new ReentrantReadWriteLock();
+        nodes = new LinkedHashMap<>();
+        nodeStore = new NodeStore(lock);
+        spatialIndex = new SpatialIndex();
+        nodeStore.setSpatialIndex(spatialIndex);
+        edges = new LinkedHashSet<>();
+        outgoingEdges = new HashMap<>();
+        incomingEdges = new HashMap<>();
+        version = GraphVersion.empty();
+        dirtyEdges = new LinkedHashSet<>();
+        allEdgesDirty = false;
+        selection = new LinkedHashSet<>();
         numNodesSelected = 0;
         isAddingNewEdge = false;
         undoManager = new UndoManager();
+        batchDepth = 0;
+        batchedEvents = new LinkedHashMap<>();
         propertyChangeSupport = new PropertyChangeSupport(this);
     }
 
@@ -53,13 +104,28 @@ public class GraphModel {
      * It resets the current graph to load properly a new graph
      */
     public void resetGraph() {
-        nodes = new ArrayList<>();
-        edges = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            nodes = new LinkedHashMap<>();
+            nodeStore = new NodeStore(lock, nodeStore);
+            spatialIndex = new SpatialIndex();
+            nodeStore.setSpatialIndex(spatialIndex);
+            edges = new LinkedHashSet<>();
+            outgoingEdges = new HashMap<>();
+            incomingEdges = new HashMap<>();
+            compressedGraph = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        version = GraphVersion.empty();
+        dirtyEdges = new LinkedHashSet<>();
+        allEdgesDirty = false;
+        selection = new LinkedHashSet<>();
         numNodesSelected = 0;
         isAddingNewEdge = false;
         undoManager = new UndoManager();
         PropertyChangeEvent event = new PropertyChangeEvent(this, "resetGraph", null, null);
-        propertyChangeSupport.firePropertyChange(event);
+        firePropertyChange(event);
     }
 
     /**
@@ -70,7 +136,7 @@ public class GraphModel {
     public void addOperation(UndoableEdit operation) {
         undoManager.addEdit(operation);
         PropertyChangeEvent event = new PropertyChangeEvent(this, "addOperation", null, numNodesSelected);
-        propertyChangeSupport.firePropertyChange(event);
+        firePropertyChange(event);
     }
 
     /**
@@ -95,27 +161,117 @@ public class GraphModel {
      * Will undo the last action added to the undo manager if it is undoable
      */
     public void undo() {
-        deselectNodes();
+        batch(() -> {
+            deselectNodes();
 
-        PropertyChangeEvent event = new PropertyChangeEvent(this, "undo", null, numNodesSelected);
-        propertyChangeSupport.firePropertyChange(event);
+            PropertyChangeEvent event = new PropertyChangeEvent(this, "undo", null, numNodesSelected);
+            firePropertyChange(event);
 
-        if (isUndoable()) {
-            undoManager.undo();
-        }
+            if (isUndoable()) {
+                undoManager.undo();
+            }
+        });
     }
 
     /**
      * Will redo the last action that was undone by the undo command
      */
     public void redo() {
+        batch(() -> {
+            if (canRedo()) {
+                undoManager.redo();
+            }
+
+            PropertyChangeEvent event = new PropertyChangeEvent(this, "redo", null, numNodesSelected);
+            firePropertyChange(event);
+        });
+    }
+
+    /**
+     * It starts a batch of changes. Until the batch is committed, the events of the graph are not fired
+     * but collected, keeping only the last event of each property.
+     * Batches can be nested, only the outermost commit publishes the changes.
+     */
+    public void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * It commits the current batch. When the outermost batch is committed a single "batch" event is fired,
+     * its new value is the list of the last event of each property fired during the batch,
+     * in the order they have been fired.
+     */
+    public void commitBatch() {
+        if (batchDepth == 0)
+            throw new IllegalStateException("commitBatch called without a matching beginBatch");
+        if (--batchDepth > 0)
+            return;
+
+        ArrayList<PropertyChangeEvent> summary = new ArrayList<>(batchedEvents.values());
+        batchedEvents.clear();
+        deliver(new PropertyChangeEvent(this, "batch", null, summary));
+    }
+
+    /**
+     * It runs the operation inside a batch, so that a single event is fired at the end
+     *
+     * @param operation changes to be applied to the graph
+     */
+    public void batch(Runnable operation) {
+        beginBatch();
+        try {
+            operation.run();
+        } finally {
+            commitBatch();
+        }
+    }
 
-        if (canRedo()) {
-            undoManager.redo();
+    /**
+     * Checks if a batch of changes is in progress.
+     * Listeners of the nodes can use it to ignore the events of the nodes until the batch is committed.
+     *
+     * @return True if the changes are currently batched
+     */
+    public boolean isBatching() {
+        return batchDepth > 0;
+    }
+
+    /**
+     * It fires the event, or it collects it if a batch is in progress
+     *
+     * @param event event to be fired
+     */
+    private void firePropertyChange(PropertyChangeEvent event) {
+        if (batchDepth > 0) {
+            //removing it first keeps the events ordered by their last occurrence
+            batchedEvents.remove(event.getPropertyName());
+            batchedEvents.put(event.getPropertyName(), event);
+            return;
         }
+        deliver(event);
+    }
 
-        PropertyChangeEvent event = new PropertyChangeEvent(this, "redo", null, numNodesSelected);
-        propertyChangeSupport.firePropertyChange(event);
+    /**
+     * It delivers the event to the listeners, through the monitor if there is one
+     *
+     * @param event event to be delivered
+     */
+    private void deliver(PropertyChangeEvent event) {
+        if (eventMonitor != null)
+            eventMonitor.fire(propertyChangeSupport, event);
+        else
+            propertyChangeSupport.firePropertyChange(event);
+    }
+
+    /**
+     * Setter for the monitor of the events of the graph and of its nodes.
+     * While there is a monitor, the time spent by every listener is measured.
+     *
+     * @param eventMonitor the monitor, null to stop monitoring
+     */
+    public void setEventMonitor(EventMonitor eventMonitor) {
+        this.eventMonitor = eventMonitor;
+        nodeStore.setEventMonitor(eventMonitor);
     }
 
 
@@ -127,7 +283,12 @@ public class GraphModel {
      * @param name      Name of the node
      */
     public void addNode(Point position, Dimension dimension, String name) {
-        nodes.add(new Node(name, position, dimension));
+        lock.writeLock().lock();
+        try {
+            putNode(new Node(nodeStore, name, position, dimension));
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -136,22 +297,272 @@ public class GraphModel {
      * @param node node to be added
      */
     public void addNewNode(Node node) {
-        nodes.add(node);
+        putNode(node);
         PropertyChangeEvent event = new PropertyChangeEvent(this, "addNode", null, node);
-        propertyChangeSupport.firePropertyChange(event);
+        firePropertyChange(event);
+    }
+
+    /**
+     * It stores the node in the graph. A node that has never been part of the graph is moved
+     * inside the node store of the graph and gets a new id, a node that is added again (e.g. by an undo)
+     * keeps its old one.
+     *
+     * @param node node to be stored
+     */
+    private void putNode(Node node) {
+        lock.writeLock().lock();
+        try {
+            if (!node.isStoredIn(nodeStore))
+                node.attach(nodeStore);
+            nodes.put(node.getId(), node);
+            spatialIndex.insert(node);
+            nodeStore.markDirty(node.getId());
+            structureChanged();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        //a node removed while it was selected comes back selected
+        if (node.getSelected())
+            selection.add(node);
+    }
+
+    /**
+     * It removes the node from the graph. The edges of the node must have already been removed.
+     *
+     * @param node node to be removed
+     */
+    private void deleteNode(Node node) {
+        lock.writeLock().lock();
+        try {
+            nodes.remove(node.getId());
+            spatialIndex.remove(node);
+            nodeStore.markDirty(node.getId());
+            structureChanged();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        selection.remove(node);
+    }
+
+    /**
+     * It must be called, holding the write lock, every time nodes or edges are added or removed.
+     * It drops the CSR of the graph and it counts a new version.
+     */
+    private void structureChanged() {
+        compressedGraph = null;
+        nodeStore.modified();
+    }
+
+    /**
+     * Getter for the spatial index of the nodes of the graph.
+     * It answers which nodes contain a point, intersect a rectangle or are the nearest to a point.
+     *
+     * @return the spatial index of the graph
+     */
+    public SpatialIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * Getter for the compressed sparse row representation of the graph.
+     * It is built again only if nodes or edges have been added or removed since the last call.
+     *
+     * @return the CSR of the current graph
+     */
+    public CompressedGraph getCompressedGraph() {
+        CompressedGraph current = compressedGraph;
+        if (current == null) {
+            lock.readLock().lock();
+            try {
+                current = new CompressedGraph(nodes.values(), edges, nodeStore.size());
+                compressedGraph = current;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        return current;
+    }
+
+    /**
+     * It returns an immutable snapshot of the graph, that can be read by any thread.
+     * If the graph hasn't changed since the last snapshot, the same snapshot is returned,
+     * otherwise only the node columns are copied: the structure is shared until nodes or edges change.
+     *
+     * @return a consistent snapshot of the current graph
+     */
+    public GraphSnapshot getSnapshot() {
+        lock.readLock().lock();
+        try {
+            GraphSnapshot current = snapshot;
+            long version = nodeStore.getModCount();
+            if (current == null || current.getVersion() != version) {
+                current = new GraphSnapshot(version, getCompressedGraph(), nodeStore.copyColumns());
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * It returns the immutable version of the current graph. Only the nodes and the edges changed since
+     * the last version are written in the new one, every other part is shared with the last version,
+     * so the cost depends on the number of changes and not on the size of the graph.
+     * It must be called by the event dispatch thread.
+     *
+     * @return the version of the current graph
+     */
+    public GraphVersion getGraphVersion() {
+        BitSet dirtyNodes = nodeStore.getDirty();
+        if (dirtyNodes.isEmpty() && dirtyEdges.isEmpty() && !allEdgesDirty)
+            return version;
+
+        GraphVersion current = version;
+        for (int id = dirtyNodes.nextSetBit(0); id >= 0; id = dirtyNodes.nextSetBit(id + 1)) {
+            Node node = nodes.get(id);
+            if (node == null)
+                current = current.withoutNode(id);
+            else
+                current = current.withNode(new GraphVersion.NodeState(node, node.getX(), node.getY(),
+                        node.getWidth(), node.getHeight(), nodeStore.getColor(id), node.getName()));
+        }
+        //after a load every edge is new, so the edges of the graph are written without being marked one by one
+        if (allEdgesDirty) {
+            for (Edge edge : edges) {
+                current = current.withEdge(edge);
+            }
+        }
+        for (Edge edge : dirtyEdges) {
+            if (edges.contains(edge))
+                current = current.withEdge(edge);
+            else
+                current = current.withoutEdge(edge);
+        }
+        nodeStore.clearDirty();
+        dirtyEdges.clear();
+        allEdgesDirty = false;
+        version = current;
+        return current;
+    }
+
+    /**
+     * It brings the graph back to a version it has produced before, e.g. to undo or redo an operation.
+     * Only the differences between the current version and the target are applied,
+     * inside a batch, and a single "restoreVersion" event is fired.
+     *
+     * @param target version to be restored
+     */
+    public void restoreVersion(GraphVersion target) {
+        ArrayList<Edge> removedEdges = new ArrayList<>();
+        ArrayList<Edge> addedEdges = new ArrayList<>();
+        ArrayList<Node> removedNodes = new ArrayList<>();
+        ArrayList<GraphVersion.NodeState> changedNodes = new ArrayList<>();
+        ArrayList<Node> addedNodes = new ArrayList<>();
+
+        getGraphVersion().diff(target, new GraphVersion.Visitor() {
+            @Override
+            public void nodeAdded(GraphVersion.NodeState state) {
+                addedNodes.add(state.getNode());
+                changedNodes.add(state);
+            }
+
+            @Override
+            public void nodeRemoved(GraphVersion.NodeState state) {
+                removedNodes.add(state.getNode());
+            }
+
+            @Override
+            public void nodeChanged(GraphVersion.NodeState oldState, GraphVersion.NodeState newState) {
+                changedNodes.add(newState);
+            }
+
+            @Override
+            public void edgeAdded(Edge edge) {
+                addedEdges.add(edge);
+            }
+
+            @Override
+            public void edgeRemoved(Edge edge) {
+                removedEdges.add(edge);
+            }
+        });
+
+        batch(() -> {
+            //the edges go first, so that no edge is left without one of its nodes
+            removedEdges.forEach(this::unlinkEdge);
+            removedNodes.forEach(this::deleteNode);
+            addedNodes.forEach(this::putNode);
+            changedNodes.forEach(this::restoreNodeState);
+            addedEdges.forEach(this::linkEdge);
+
+            nodeStore.clearDirty();
+            dirtyEdges.clear();
+            version = target;
+
+            PropertyChangeEvent event = new PropertyChangeEvent(this, "restoreVersion", null, target);
+            firePropertyChange(event);
+        });
+    }
+
+    /**
+     * It sets the shape, the name and the color of a node to the ones stored in a version
+     *
+     * @param state state of the node in the version
+     */
+    private void restoreNodeState(GraphVersion.NodeState state) {
+        Node node = state.getNode();
+        if (node.getX() != state.getX() || node.getY() != state.getY()
+                || node.getWidth() != state.getWidth() || node.getHeight() != state.getHeight())
+            node.setShape(new Rectangle(state.getX(), state.getY(), state.getWidth(), state.getHeight()));
+        if (!Objects.equals(state.getName(), node.getName()))
+            node.setName(state.getName());
+        if (nodeStore.getColor(node.getId()) != state.getColor())
+            node.setBackgroundColor(new Color(state.getColor(), true));
+    }
+
+    /**
+     * Getter for the read lock of the graph. A thread other than the event dispatch thread
+     * that wants to walk the live nodes and edges must hold it.
+     *
+     * @return the read lock of the graph
+     */
+    public Lock readLock() {
+        return lock.readLock();
+    }
+
+    /**
+     * Getter for a node of the graph by its id
+     *
+     * @param id id of the node
+     * @return the node with that id, null if the node is not part of the graph
+     */
+    public Node getNode(int id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * It checks if the node is currently part of the graph
+     *
+     * @param node node to be checked
+     * @return True if the node is part of the graph, false otherwise
+     */
+    public boolean containsNode(Node node) {
+        return node != null && nodes.get(node.getId()) == node;
     }
 
     /**
      * Method to add a new edge to the graph from a file.
+     * While loading, the ids of the nodes follow the order of the file, starting from 0.
      *
      * @param index1 Index of the start node of the edge.
-     *               It indicate the position inside the nodes array.
+     *               It indicate the position of the node inside the file.
      * @param index2 Index of the end node of the edge.
-     *               It indicate the position inside the nodes array.
+     *               It indicate the position of the node inside the file.
      */
     public void addEdge(int index1, int index2) {
         Edge newEdge = new Edge(nodes.get(index1), nodes.get(index2));
-        edges.add(newEdge);
+        linkEdge(newEdge);
     }
 
     /**
@@ -160,12 +571,11 @@ public class GraphModel {
      * @param edge edge that needs to be added to the graph
      */
     public void addEdge(Edge edge) {
-        if (edges.contains(edge))
+        if (!linkEdge(edge))
             return;
 
-        edges.add(edge);
         PropertyChangeEvent event = new PropertyChangeEvent(this, "addEdge", null, edge);
-        propertyChangeSupport.firePropertyChange(event);
+        firePropertyChange(event);
     }
 
     /**
@@ -188,7 +598,7 @@ public class GraphModel {
         nodeA = getNodeA();
         isAddingNewEdge = true;
         PropertyChangeEvent event = new PropertyChangeEvent(this, "newEdgeCreation", null, null);
-        propertyChangeSupport.firePropertyChange(event);
+        firePropertyChange(event);
     }
 
     /**
@@ -197,8 +607,8 @@ public class GraphModel {
      * @return Node that is the endpoint of a edge
      */
     public Node getEndPointEdge() {
-        for (Node node : nodes) {
-            if (node.getSelected() && node != nodeA)
+        for (Node node : selection) {
+            if (node != nodeA)
                 return node;
         }
         return null;
@@ -210,11 +620,7 @@ public class GraphModel {
      * @return Node that is the startPoint of an edge
      */
     public Node getNodeA() {
-        for (Node node : nodes) {
-            if (node.getSelected())
-                return node;
-        }
-        return null;
+        return selection.isEmpty() ? null : selection.iterator().next();
     }
 
     /**
@@ -233,8 +639,17 @@ public class GraphModel {
      * @return an array or rectangles that represent the locations of each selected node
      */
     public ArrayList<Rectangle> getSelectedNodesShape() {
-        return nodes.stream().filter(Node::getSelected).map(Node::getShape).
-                collect(Collectors.toCollection(ArrayList::new));
+        return selection.stream().map(Node::getShape).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Returns if the last file chosen to be loaded couldn't be read, the graph is then empty.
+     * A path that isn't a graph file counts as a failure, a file chooser closed without a choice doesn't.
+     *
+     * @return if the last load has failed
+     */
+    public boolean hasLoadFailed() {
+        return loadFailed;
     }
 
     /**
@@ -259,12 +674,112 @@ public class GraphModel {
         return edges.contains(new Edge(nodeA, nodeB));
     }
 
+    /**
+     * It stores the edge in the edge set and in the adjacency sets of its endpoints
+     *
+     * @param edge edge to be stored
+     * @return True if the edge was not already part of the graph, false otherwise
+     */
+    private boolean linkEdge(Edge edge) {
+        lock.writeLock().lock();
+        try {
+            if (!storeEdge(edge))
+                return false;
+            structureChanged();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * It stores the edge in the edge set and in the adjacency sets of its endpoints,
+     * without counting a new version. It must be called holding the write lock.
+     *
+     * @param edge edge to be stored
+     * @return True if the edge was not already part of the graph, false otherwise
+     */
+    private boolean storeEdge(Edge edge) {
+        if (!edges.add(edge))
+            return false;
+        outgoingEdges.computeIfAbsent(edge.getEndpoint1(), x -> newAdjacencySet()).add(edge);
+        incomingEdges.computeIfAbsent(edge.getEndpoint2(), x -> newAdjacencySet()).add(edge);
+        dirtyEdges.add(edge);
+        return true;
+    }
+
+    /**
+     * It creates the adjacency set of a node. Most nodes have few edges, so the set starts small
+     * and grows only for the nodes with many edges.
+     *
+     * @return an empty adjacency set
+     */
+    private static LinkedHashSet<Edge> newAdjacencySet() {
+        return new LinkedHashSet<>(ADJACENCY_CAPACITY);
+    }
+
+    /**
+     * It removes the edge from the edge set and from the adjacency sets of its endpoints
+     *
+     * @param edge edge to be removed
+     */
+    private void unlinkEdge(Edge edge) {
+        lock.writeLock().lock();
+        try {
+            if (!edges.remove(edge))
+                return;
+            removeFromAdjacency(outgoingEdges, edge.getEndpoint1(), edge);
+            removeFromAdjacency(incomingEdges, edge.getEndpoint2(), edge);
+            dirtyEdges.add(edge);
+            structureChanged();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * It removes the edge from the adjacency set of a node, dropping the set once it is empty
+     *
+     * @param adjacency outgoing or incoming adjacency map
+     * @param node      node owning the adjacency set
+     * @param edge      edge to be removed
+     */
+    private void removeFromAdjacency(HashMap<Node, LinkedHashSet<Edge>> adjacency, Node node, Edge edge) {
+        LinkedHashSet<Edge> nodeEdges = adjacency.get(node);
+        if (nodeEdges == null)
+            return;
+        nodeEdges.remove(edge);
+        if (nodeEdges.isEmpty())
+            adjacency.remove(node);
+    }
+
+    /**
+     * Getter for the edges that start from the node
+     *
+     * @param node starting node
+     * @return a read-only view of the outgoing edges of the node
+     */
+    public Set<Edge> getOutgoingEdges(Node node) {
+        LinkedHashSet<Edge> nodeEdges = outgoingEdges.get(node);
+        return nodeEdges == null ? Collections.emptySet() : Collections.unmodifiableSet(nodeEdges);
+    }
+
+    /**
+     * Getter for the edges that end in the node
+     *
+     * @param node ending node
+     * @return a read-only view of the incoming edges of the node
+     */
+    public Set<Edge> getIncomingEdges(Node node) {
+        LinkedHashSet<Edge> nodeEdges = incomingEdges.get(node);
+        return nodeEdges == null ? Collections.emptySet() : Collections.unmodifiableSet(nodeEdges);
+    }
+
     /**
      * Method to deselect all the nodes that are currently selected
      */
     public void deselectNodes() {
-        Predicate<Node> isSelected = Node::getSelected;
-        nodes.stream().filter(isSelected).forEach(this::selectedNode);
+        batch(() -> new ArrayList<>(selection).forEach(this::selectedNode));
         numNodesSelected = 0;
         nodeA = null;
     }
@@ -274,11 +789,27 @@ public class GraphModel {
      */
     public void selectAllNodes() {
         Predicate<Node> isNotSelected = x -> !x.getSelected();
-        nodes.stream().filter(isNotSelected).forEach(this::selectedNode);
+        batch(() -> nodes.values().stream().filter(isNotSelected).forEach(this::selectedNode));
         numNodesSelected = nodes.size();
         nodeA = null;
     }
 
+    /**
+     * It makes the nodes the only selected nodes, in the given order.
+     * The nodes that are not part of the graph anymore are ignored.
+     *
+     * @param nodesToSelect nodes to be selected
+     */
+    public void selectNodes(Collection<Node> nodesToSelect) {
+        batch(() -> {
+            deselectNodes();
+            for (Node node : nodesToSelect) {
+                if (containsNode(node) && !node.getSelected())
+                    selectedNode(node);
+            }
+        });
+    }
+
     /**
      * Removes a node and fires a property change event
      *
@@ -286,9 +817,9 @@ public class GraphModel {
      */
     public void removeNode(Node node) {
         removeNodeEdges(node);
-        nodes.remove(node);
+        deleteNode(node);
         PropertyChangeEvent event = new PropertyChangeEvent(this, "removeNode", null, null);
-        propertyChangeSupport.firePropertyChange(event);
+        firePropertyChange(event);
     }
 
     /**
@@ -297,15 +828,13 @@ public class GraphModel {
      * @return all the edges of the nodes that are selected
      */
     public ArrayList<Edge> edgesSelectedNodes() {
-        ArrayList<Edge> edgesSelectedNodes = new ArrayList<>();
-        for (Node node : nodes) {
-            if (node.getSelected())
-                for (Edge edge : edges) {
-                    if (edge.getEndpoint1() == node || edge.getEndpoint2() == node)
-                        edgesSelectedNodes.add(edge);
-                }
+        //a set, so that an edge between two selected nodes is returned only once
+        LinkedHashSet<Edge> edgesSelectedNodes = new LinkedHashSet<>();
+        for (Node node : selection) {
+            edgesSelectedNodes.addAll(getOutgoingEdges(node));
+            edgesSelectedNodes.addAll(getIncomingEdges(node));
         }
-        return edgesSelectedNodes;
+        return new ArrayList<>(edgesSelectedNodes);
     }
 
     /**
@@ -313,16 +842,15 @@ public class GraphModel {
      * Before removing the nodes, it deletes all the edges related to them.
      */
     public void removeSelectedNodes(ArrayList<Node> selectedNodes) {
-        Predicate<Node> isSelected = Node::getSelected;
         //remove all the edges of the nodes
         selectedNodes.forEach(this::removeNodeEdges);
         //remove the nodes
-        nodes.removeIf(isSelected);
+        selectedNodes.forEach(this::deleteNode);
 
         numNodesSelected = 0;
 
         PropertyChangeEvent event = new PropertyChangeEvent(this, "removeNode", null, null);
-        propertyChangeSupport.firePropertyChange(event);
+        firePropertyChange(event);
     }
 
     /**
@@ -331,8 +859,17 @@ public class GraphModel {
      * @param node node that is the starting or the ending point
      */
     private void removeNodeEdges(Node node) {
-        Predicate<Edge> isEdgeFromNode = x -> x.getEndpoint1() == node || x.getEndpoint2() == node;
-        edges.removeIf(isEdgeFromNode);
+        lock.writeLock().lock();
+        try {
+            LinkedHashSet<Edge> nodeOutgoingEdges = outgoingEdges.remove(node);
+            LinkedHashSet<Edge> nodeIncomingEdges = incomingEdges.remove(node);
+            if (nodeOutgoingEdges != null)
+                nodeOutgoingEdges.forEach(this::unlinkEdge);
+            if (nodeIncomingEdges != null)
+                nodeIncomingEdges.forEach(this::unlinkEdge);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -341,11 +878,11 @@ public class GraphModel {
      * @param edge edge that needs to be removed
      */
     public void removeEdge(Edge edge) {
-        edges.remove(edge);
+        unlinkEdge(edge);
         deselectNodes();
         numNodesSelected = 0;
         PropertyChangeEvent event = new PropertyChangeEvent(this, "removeEdge", null, null);
-        propertyChangeSupport.firePropertyChange(event);
+        firePropertyChange(event);
     }
 
     /**
@@ -355,7 +892,7 @@ public class GraphModel {
      * @param y New Vertical y position of the nodes
      */
     public void moveSelectedNodes(ArrayList<Node> selectedNodes, int x, int y) {
-        selectedNodes.forEach(n -> n.move(x, y));
+        batch(() -> selectedNodes.forEach(n -> n.move(x, y)));
     }
 
     /**
@@ -370,34 +907,36 @@ public class GraphModel {
 
     /**
      * It reset the shape of the selectedNodes with the original shape.
-     * It looks the same node of selectedNodes inside the current list of nodes.
+     * It looks the same node of selectedNodes up by its id.
      * That is necessary to avoid bugs due to the fact during the execution many nodes
-     * could have been removed and the order is incorrect
+     * could have been removed
      *
      * @param selectedNodes nodes to be modified
      * @param shape         Original shape to be restore
      */
     public void resetShapeSelectedNodes(ArrayList<Node> selectedNodes, ArrayList<Rectangle> shape) {
-        for (int i = 0; i < selectedNodes.size(); i++) {
-            int index = nodes.indexOf(selectedNodes.get(i));
-            if (index == -1)
-                continue;
-            if (i < shape.size())
-                nodes.get(index).setShape(shape.get(i));
-        }
+        batch(() -> {
+            for (int i = 0; i < selectedNodes.size(); i++) {
+                Node node = selectedNodes.get(i);
+                if (!containsNode(node))
+                    continue;
+                if (i < shape.size())
+                    node.setShape(shape.get(i));
+            }
+        });
     }
 
     /**
-     * Method to get all the nodes that the user has selected
+     * Method to get all the nodes that the user has selected, in the order they have been selected
      *
      * @return arraylist of all nodes that are selected
      */
     public ArrayList<Node> getSelectedNodes() {
-        return nodes.stream().filter(Node::getSelected).collect(Collectors.toCollection(ArrayList::new));
+        return new ArrayList<>(selection);
     }
 
     /**
-     * Getter for the size of the nodes arraylist
+     * Getter for the number of nodes stored in the graph
      *
      * @return number of nodes in the graph
      */
@@ -407,27 +946,122 @@ public class GraphModel {
 
     /**
      * It asks the user to choose a ".graph" file.
-     * That file will be transformed into a GraphFileFormat object.
-     * The GraphFileFormat is read and the respective graph will be created
+     * The file is read while the graph is built: the structures of the graph are sized once
+     * with the numbers written at the start of the file and then filled with the nodes and the edges.
+     * If the file isn't a valid graph the graph is left empty.
      *
      * @param path path to the graph file, null otherwise
      */
     private void loadFromFile(String path) {
         GraphLoader loader = new GraphLoader();
-        GraphFileFormat graph = loader.loadGraph(path);
+        File file = loader.chooseGraphFile(path);
+        //a path given by the caller and rejected by the loader is a failure, a cancelled chooser isn't
+        loadFailed = file == null && path != null;
 
-        if (graph == null) {
-            //Probably the user decided to not choose any file or the file doesn't exist anymore
+        if (file == null) {
+            //Probably the user decided to not choose any file
+            return;
+        }
+        if (!file.isFile()) {
+            System.out.println("The selected file doesn't exist anymore, try another file or try later ");
+            loadFailed = true;
             return;
         }
 
         resetGraph();
 
-        loadNodes(graph);
-        loadEdges(graph);
+        boolean loaded = false;
+        lock.writeLock().lock();
+        try {
+            loader.readGraph(file, new FileGraphBuilder(file.length()));
+            loaded = true;
+        } catch (IOException e) {
+            System.out.println("It hasn't been possible to load the graph, try again");
+        } finally {
+            structureChanged();
+            lock.writeLock().unlock();
+        }
+        if (!loaded) {
+            //a graph read only in part is dropped
+            resetGraph();
+            loadFailed = true;
+        }
 
         PropertyChangeEvent event = new PropertyChangeEvent(this, "loadGraph", null, null);
-        propertyChangeSupport.firePropertyChange(event);
+        firePropertyChange(event);
+    }
+
+    /**
+     * The builder filling the graph while a file is read, it must be used holding the write lock
+     * of a graph that has just been reset. The nodes get the ids 0, 1, 2... in the order of the file.
+     * The structures are sized with the numbers at the start of the file, but never for more nodes or edges
+     * than the file could hold as the shortest lines of a text file, nor more than PRESIZE_LIMIT,
+     * so a file lying about its size can't fill the memory before being rejected.
+     * Past that they grow while the nodes and the edges arrive.
+     */
+    private class FileGraphBuilder implements GraphBuilder {
+        private final long fileSize;
+        private Node[] fileNodes;
+        private int numFileNodes;
+
+        /**
+         * Constructor for the builder
+         *
+         * @param fileSize size in bytes of the file being read
+         */
+        private FileGraphBuilder(long fileSize) {
+            this.fileSize = fileSize;
+        }
+
+        @Override
+        public void setSize(int numberNodes, int numberEdges) {
+            int expectedNodes = (int) Math.min(Math.min(numberNodes, fileSize / MIN_NODE_BYTES), PRESIZE_LIMIT);
+            int expectedEdges = (int) Math.min(Math.min(numberEdges, fileSize / MIN_EDGE_BYTES), PRESIZE_LIMIT);
+            fileNodes = new Node[expectedNodes];
+            nodeStore.ensureCapacity(expectedNodes);
+            nodes = new LinkedHashMap<>(hashCapacity(expectedNodes));
+            edges = new LinkedHashSet<>(hashCapacity(expectedEdges));
+            allEdgesDirty = true;
+            outgoingEdges = new HashMap<>(hashCapacity(expectedNodes));
+            incomingEdges = new HashMap<>(hashCapacity(expectedNodes));
+        }
+
+        @Override
+        public void addNode(int x, int y, int width, int height, String name) {
+            Node node = new Node(nodeStore, name, x, y, width, height);
+            if (numFileNodes == fileNodes.length)
+                fileNodes = Arrays.copyOf(fileNodes, Math.max(16, numFileNodes * 2));
+            fileNodes[numFileNodes++] = node;
+            nodes.put(node.getId(), node);
+            spatialIndex.insert(node);
+            nodeStore.markDirty(node.getId());
+        }
+
+        @Override
+        public void addNode(int x, int y, int width, int height, int color, String name) {
+            addNode(x, y, width, height, name);
+            nodeStore.setColor(fileNodes[numFileNodes - 1].getId(), color);
+        }
+
+        @Override
+        public void addEdge(int index1, int index2) {
+            Edge edge = new Edge(fileNodes[index1], fileNodes[index2]);
+            if (edges.add(edge)) {
+                outgoingEdges.computeIfAbsent(edge.getEndpoint1(), x -> newAdjacencySet()).add(edge);
+                incomingEdges.computeIfAbsent(edge.getEndpoint2(), x -> newAdjacencySet()).add(edge);
+            }
+        }
+    }
+
+    /**
+     * It finds the initial capacity that lets a hash map or a hash set contain a number of elements
+     * without growing
+     *
+     * @param numElements number of elements
+     * @return the initial capacity
+     */
+    private static int hashCapacity(int numElements) {
+        return (int) Math.min(Integer.MAX_VALUE, numElements / 0.75 + 1);
     }
 
     /**
@@ -436,10 +1070,13 @@ public class GraphModel {
      * @param node Node selected
      */
     public void selectedNode(Node node) {
-        if (node.getSelected())
+        if (node.getSelected()) {
             numNodesSelected--;
-        else
+            selection.remove(node);
+        } else {
             numNodesSelected++;
+            selection.add(node);
+        }
 
         node.setSelected();
 
@@ -453,7 +1090,7 @@ public class GraphModel {
         else
             event = new PropertyChangeEvent(this, "nodeSelected", null, numNodesSelected);
 
-        propertyChangeSupport.firePropertyChange(event);
+        firePropertyChange(event);
     }
 
     /**
@@ -467,92 +1104,16 @@ public class GraphModel {
             node.setBackgroundColor(color);
         }
         PropertyChangeEvent event = new PropertyChangeEvent(this, "changeNodesColor", null, color);
-        propertyChangeSupport.firePropertyChange(event);
-    }
-
-    /**
-     * It adds a Point object to the GraphFileFormat file
-     *
-     * @param graph GraphFileFormat file
-     * @param shape shape of the node
-     */
-    private void addPointGraphFile(GraphFileFormat graph, Rectangle shape) {
-        Point point;
-        point = new Point(shape.x, shape.y);
-        graph.addPoint(point);
-    }
-
-    /**
-     * It adds a Dimension object to the GraphFileFormat file
-     *
-     * @param graph GraphFileFormat file
-     * @param shape shape of the node
-     */
-    private void addDimensionGraphFile(GraphFileFormat graph, Rectangle shape) {
-        Dimension dimension;
-        dimension = new Dimension(shape.width, shape.height);
-        graph.addDimension(dimension);
-    }
-
-    /**
-     * It adds the name of the node to the GraphFileFormat file
-     *
-     * @param graph GraphFileFormat file
-     * @param node  The node from which the name should be saved
-     */
-    private void addNameGraphFile(GraphFileFormat graph, Node node) {
-        graph.addName(node.getName());
-    }
-
-    /**
-     * It adds the edges of graph to the GraphFileFormat file
-     *
-     * @param graph GraphFileFormat file
-     */
-    private void addEdgesGraphFile(GraphFileFormat graph) {
-
-        for (Edge edge : edges) {
-            graph.addIndex1Edge(nodes.indexOf(edge.getEndpoint1()));
-            graph.addIndex2Edge(nodes.indexOf(edge.getEndpoint2()));
-        }
-    }
-
-    /**
-     * It creates a GraphFileFormat which will be filled with the data of the graph.
-     * The data of the graph include the number of the nodes, the number of the edges,
-     * the nodes and the edges.
-     *
-     * @return GraphFileFormat file with all
-     * the information of the current graph
-     */
-    private GraphFileFormat createGraphFileFormat() {
-        GraphFileFormat graph = new GraphFileFormat();
-
-        Rectangle shape;
-        graph.setNumberNodes(nodes.size());
-        graph.setNumberEdges(edges.size());
-
-        for (Node node : nodes) {
-            shape = node.getShape();
-
-            addPointGraphFile(graph, shape);
-            addDimensionGraphFile(graph, shape);
-            addNameGraphFile(graph, node);
-        }
-        addEdgesGraphFile(graph);
-
-        return graph;
+        firePropertyChange(event);
     }
 
     /**
      * It allows to save the current graph.
+     * The file is written from a snapshot of the graph, without copying the graph first.
      */
     public void saveGraph() {
-        GraphFileFormat graph;
         GraphSaver saver = new GraphSaver();
-
-        graph = createGraphFileFormat();
-        saver.saveGraph(graph);
+        saver.saveGraph(getSnapshot());
     }
 
     /**
@@ -563,54 +1124,22 @@ public class GraphModel {
         loadFromFile(null);
     }
 
-    /**
-     * This method reads a GraphFileFormat object and will create all the edges
-     * specified inside that object.
-     *
-     * @param graph GraphFileFormat to be read.
-     *              It contains all the nodes and the edges of the graph
-     */
-    private void loadEdges(GraphFileFormat graph) {
-        ArrayList<Integer> index1Edge = graph.getIndex1Edge();
-        ArrayList<Integer> index2Edge = graph.getIndex2Edge();
-        for (int i = 0; i < graph.getNumberEdges(); i++) {
-            addEdge(index1Edge.get(i), index2Edge.get(i));
-        }
-    }
-
-    /**
-     * This method reads a GraphFileFormat object and will create all the nodes
-     * specified inside that object.
-     *
-     * @param graph GraphFileFormat to be read.
-     *              It contains all the nodes and the edges of the graph
-     */
-    private void loadNodes(GraphFileFormat graph) {
-        ArrayList<Point> points = graph.getCoordinates();
-        ArrayList<Dimension> dimensions = graph.getDimensions();
-        ArrayList<String> names = graph.getNames();
-        for (int i = 0; i < graph.getNumberNodes(); i++) {
-            addNode(points.get(i), dimensions.get(i), names.get(i));
-        }
-    }
-
-
     /**
      * Getter command for the nodes of the graph model
      *
-     * @return the nodes list of this model
+     * @return a read-only view of the nodes of this model, in the order they have been added
      */
-    public ArrayList<Node> getNodes() {
-        return nodes;
+    public Collection<Node> getNodes() {
+        return Collections.unmodifiableCollection(nodes.values());
     }
 
     /**
      * Getter command for the edges of the graph model
      *
-     * @return the edges list of this model
+     * @return a read-only view of the edges set of this model
      */
-    public ArrayList<Edge> getEdges() {
-        return edges;
+    public Set<Edge> getEdges() {
+        return Collections.unmodifiableSet(edges);
     }
 
     /**
@@ -631,7 +1160,7 @@ public class GraphModel {
         this.numNodesSelected = numNodesSelected;
 
         PropertyChangeEvent event = new PropertyChangeEvent(this, "nodeSelected", null, numNodesSelected);
-        propertyChangeSupport.firePropertyChange(event);
+        firePropertyChange(event);
     }
 
     /**
@@ -642,4 +1171,19 @@ public class GraphModel {
     public void addPropertyChangeListener(PropertyChangeListener listener) {
         propertyChangeSupport.addPropertyChangeListener(listener);
     }
+
+    /**
+     * It adds a listener of all the nodes of the graph, the nodes added later and the ones of a graph
+     * loaded later included. It is the way to follow every node without a listener on each of them.
+     *
+     * @param listener the listener
+     */
+    public void addNodeListener(NodeListener listener) {
+        lock.writeLock().lock();
+        try {
+            nodeStore.addNodeListener(listener);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 }
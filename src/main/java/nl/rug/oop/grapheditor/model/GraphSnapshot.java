@@ -0,0 +1,159 @@
+package nl.rug.oop.grapheditor.model;
+
+import nl.rug.oop.grapheditor.model.io.GraphSource;
+
+/**
+ * GraphSnapshot is an immutable copy of a graph at a given version, it can be read by any thread
+ * while the graph keeps being edited. The structure is the CSR of the graph, which is shared with the graph
+ * and with the other snapshots until nodes or edges are added or removed. The geometry, the colors
+ * and the names of the nodes are a copy of the columns of the node store.
+ * Nodes are identified by their dense index in the CSR, from 0 to the number of nodes.
+ */
+public class GraphSnapshot implements GraphSource {
+    private final long version;
+    private final CompressedGraph structure;
+    private final NodeStore columns;
+
+    /**
+     * Constructor for a snapshot, it is created by the graph while holding its read lock
+     *
+     * @param version   version of the graph
+     * @param structure CSR of the graph
+     * @param columns   copy of the node store of the graph
+     */
+    GraphSnapshot(long version, CompressedGraph structure, NodeStore columns) {
+        this.version = version;
+        this.structure = structure;
+        this.columns = columns;
+    }
+
+    /**
+     * Getter for the version of the graph copied by this snapshot.
+     * A graph that has not changed gives the same snapshot again.
+     *
+     * @return version of the graph
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Getter for the structure of the graph
+     *
+     * @return CSR with the outgoing and the incoming edges of every node
+     */
+    public CompressedGraph getStructure() {
+        return structure;
+    }
+
+    /**
+     * Getter for the number of nodes
+     *
+     * @return number of nodes
+     */
+    public int getNumNodes() {
+        return structure.getNumNodes();
+    }
+
+    /**
+     * Getter for the number of edges
+     *
+     * @return number of edges
+     */
+    public int getNumEdges() {
+        return structure.getNumEdges();
+    }
+
+    /**
+     * Getter for the node with the dense index. It is the live node of the graph,
+     * it can be used to act on the graph from the event dispatch thread.
+     *
+     * @param index dense index of the node
+     * @return the node
+     */
+    public Node getNode(int index) {
+        return structure.getNode(index);
+    }
+
+    /**
+     * @param index dense index of the node
+     * @return horizontal position of the node when the snapshot was taken
+     */
+    public int getX(int index) {
+        return columns.getX(slot(index));
+    }
+
+    /**
+     * @param index dense index of the node
+     * @return vertical position of the node when the snapshot was taken
+     */
+    public int getY(int index) {
+        return columns.getY(slot(index));
+    }
+
+    /**
+     * @param index dense index of the node
+     * @return width of the node when the snapshot was taken
+     */
+    public int getWidth(int index) {
+        return columns.getWidth(slot(index));
+    }
+
+    /**
+     * @param index dense index of the node
+     * @return height of the node when the snapshot was taken
+     */
+    public int getHeight(int index) {
+        return columns.getHeight(slot(index));
+    }
+
+    /**
+     * @param index dense index of the node
+     * @return color of the node when the snapshot was taken, packed as an ARGB int
+     */
+    public int getColor(int index) {
+        return columns.getColor(slot(index));
+    }
+
+    /**
+     * @param index dense index of the node
+     * @return name of the node when the snapshot was taken
+     */
+    public String getName(int index) {
+        return columns.getName(slot(index));
+    }
+
+    /**
+     * @param index dense index of the node
+     * @return first position of the outgoing edges of the node in the structure
+     */
+    public int outStart(int index) {
+        return structure.outStart(index);
+    }
+
+    /**
+     * @param index dense index of the node
+     * @return position after the last outgoing edge of the node in the structure
+     */
+    public int outEnd(int index) {
+        return structure.outEnd(index);
+    }
+
+    /**
+     * @param position position of an outgoing edge in the structure
+     * @return dense index of the end node of the edge
+     */
+    public int target(int position) {
+        return structure.target(position);
+    }
+
+    /**
+     * The slot of a node in the store of the graph is its id
+     *
+     * @param index dense index of the node
+     * @return slot of the node in the copied columns
+     */
+    private int slot(int index) {
+        return structure.getNode(index).getId();
+    }
+}
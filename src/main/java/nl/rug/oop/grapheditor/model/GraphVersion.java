@@ -0,0 +1,278 @@
+package nl.rug.oop.grapheditor.model;
+
+import java.util.Objects;
+
+/**
+ * GraphVersion is an immutable version of a graph: the state of every node by its id and every edge
+ * by the ids of its endpoints, stored in persistent maps. Consecutive versions share everything that
+ * hasn't changed between them, so producing a version after an operation, keeping it for undo and
+ * comparing two versions cost a time proportional to the changes, not to the size of the graph.
+ */
+public final class GraphVersion {
+    private static final GraphVersion EMPTY =
+            new GraphVersion(PersistentLongMap.empty(), PersistentLongMap.empty());
+
+    private final PersistentLongMap<NodeState> nodes;
+    private final PersistentLongMap<Edge> edges;
+
+    /**
+     * NodeState is the immutable state of a node inside a version
+     */
+    public static final class NodeState {
+        private final Node node;
+        private final int x, y, width, height;
+        private final int color;
+        private final String name;
+
+        /**
+         * Constructor for the state of a node
+         *
+         * @param node   the node
+         * @param x      horizontal position
+         * @param y      vertical position
+         * @param width  width of the node
+         * @param height height of the node
+         * @param color  color packed as an ARGB int
+         * @param name   name of the node
+         */
+        NodeState(Node node, int x, int y, int width, int height, int color, String name) {
+            this.node = node;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.color = color;
+            this.name = name;
+        }
+
+        /**
+         * Checks if the state describes the same node with the same values, so that
+         * an unchanged node can keep the state of the previous version
+         *
+         * @param other state to be compared
+         * @return True if the two states are equal
+         */
+        boolean sameAs(NodeState other) {
+            return other != null && node == other.node && x == other.x && y == other.y
+                    && width == other.width && height == other.height && color == other.color
+                    && Objects.equals(name, other.name);
+        }
+
+        public Node getNode() {
+            return node;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getColor() {
+            return color;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Interface used to visit the differences between two versions
+     */
+    public interface Visitor {
+        /**
+         * Called for a node that is only in the new version
+         *
+         * @param state state of the node in the new version
+         */
+        void nodeAdded(NodeState state);
+
+        /**
+         * Called for a node that is only in the old version
+         *
+         * @param state state of the node in the old version
+         */
+        void nodeRemoved(NodeState state);
+
+        /**
+         * Called for a node whose state is different in the two versions
+         *
+         * @param oldState state in the old version
+         * @param newState state in the new version
+         */
+        void nodeChanged(NodeState oldState, NodeState newState);
+
+        /**
+         * Called for an edge that is only in the new version
+         *
+         * @param edge the edge
+         */
+        void edgeAdded(Edge edge);
+
+        /**
+         * Called for an edge that is only in the old version
+         *
+         * @param edge the edge
+         */
+        void edgeRemoved(Edge edge);
+    }
+
+    private GraphVersion(PersistentLongMap<NodeState> nodes, PersistentLongMap<Edge> edges) {
+        this.nodes = nodes;
+        this.edges = edges;
+    }
+
+    /**
+     * Getter for the version of the empty graph
+     *
+     * @return the empty version
+     */
+    public static GraphVersion empty() {
+        return EMPTY;
+    }
+
+    /**
+     * It creates the version with a node set to a new state
+     *
+     * @param state new state of the node
+     * @return the new version
+     */
+    GraphVersion withNode(NodeState state) {
+        if (state.sameAs(nodes.get(state.getNode().getId())))
+            return this;
+        return new GraphVersion(nodes.put(state.getNode().getId(), state), edges);
+    }
+
+    /**
+     * It creates the version without a node
+     *
+     * @param id id of the node
+     * @return the new version
+     */
+    GraphVersion withoutNode(int id) {
+        PersistentLongMap<NodeState> newNodes = nodes.remove(id);
+        return newNodes == nodes ? this : new GraphVersion(newNodes, edges);
+    }
+
+    /**
+     * It creates the version with an edge
+     *
+     * @param edge the edge
+     * @return the new version
+     */
+    GraphVersion withEdge(Edge edge) {
+        PersistentLongMap<Edge> newEdges = edges.put(key(edge), edge);
+        return newEdges == edges ? this : new GraphVersion(nodes, newEdges);
+    }
+
+    /**
+     * It creates the version without an edge
+     *
+     * @param edge the edge
+     * @return the new version
+     */
+    GraphVersion withoutEdge(Edge edge) {
+        PersistentLongMap<Edge> newEdges = edges.remove(key(edge));
+        return newEdges == edges ? this : new GraphVersion(nodes, newEdges);
+    }
+
+    /**
+     * Getter for the number of nodes in the version
+     *
+     * @return number of nodes
+     */
+    public int getNumNodes() {
+        return nodes.size();
+    }
+
+    /**
+     * Getter for the number of edges in the version
+     *
+     * @return number of edges
+     */
+    public int getNumEdges() {
+        return edges.size();
+    }
+
+    /**
+     * Getter for the state of a node
+     *
+     * @param id id of the node
+     * @return the state of the node, null if the node is not part of this version
+     */
+    public NodeState getNodeState(int id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * Checks if an edge is part of the version
+     *
+     * @param edge the edge
+     * @return True if the version contains the edge
+     */
+    public boolean containsEdge(Edge edge) {
+        return edges.get(key(edge)) != null;
+    }
+
+    /**
+     * It finds the differences from this version to another one, skipping everything the two versions share
+     *
+     * @param other   the new version
+     * @param visitor visitor notified of every difference
+     */
+    public void diff(GraphVersion other, Visitor visitor) {
+        nodes.diff(other.nodes, new PersistentLongMap.DiffVisitor<NodeState>() {
+            @Override
+            public void added(long key, NodeState value) {
+                visitor.nodeAdded(value);
+            }
+
+            @Override
+            public void removed(long key, NodeState value) {
+                visitor.nodeRemoved(value);
+            }
+
+            @Override
+            public void changed(long key, NodeState oldValue, NodeState newValue) {
+                visitor.nodeChanged(oldValue, newValue);
+            }
+        });
+        edges.diff(other.edges, new PersistentLongMap.DiffVisitor<Edge>() {
+            @Override
+            public void added(long key, Edge value) {
+                visitor.edgeAdded(value);
+            }
+
+            @Override
+            public void removed(long key, Edge value) {
+                visitor.edgeRemoved(value);
+            }
+
+            @Override
+            public void changed(long key, Edge oldValue, Edge newValue) {
+                //equal edges between the same nodes, nothing to do
+            }
+        });
+    }
+
+    /**
+     * The key of an edge is made of the ids of its endpoints
+     *
+     * @param edge the edge
+     * @return the key of the edge in the map of the edges
+     */
+    private static long key(Edge edge) {
+        return ((long) edge.getEndpoint1().getId() << 32) | (edge.getEndpoint2().getId() & 0xFFFFFFFFL);
+    }
+}
@@ -4,32 +4,35 @@ import java.awt.*;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Node Class encapsulates a String that is a name. The node has its shape that currently, it's a rectangle.
- * It contains also all the edge from itself or from other nodes(undirected graphs).
+ * The name, the shape and the color are not stored inside the node but in a slot of a NodeStore:
+ * a node that is not part of a graph yet has a small store of its own, once it is added to a graph
+ * it is moved inside the store of the graph.
+ * Changing the shape of a node keeps the spatial index of its graph up to date.
+ * Every change is done while holding the write lock of the store, so that other threads can read the graph.
  */
 public class Node {
-    private String name;
-    private Rectangle shape;
+    private static final int DEFAULT_COLOR = 0xFF536271;
+
+    private NodeStore store;
+    private int slot;
+    private int id;
     private boolean isSelected;
-    private Color backgroundColor;
-    private final PropertyChangeSupport propertyChangeSupport;
+    private PropertyChangeSupport propertyChangeSupport;
 
     /**
      * Node constructor. Set a name, the shape with its position and dimension.
-     * Initialize also the edges array.
      *
      * @param name      Name of the node
      * @param position  It is a Point object, it represents a position (x,y)
      * @param dimension It is a Dimension object, it encapsulates width and height
      */
     public Node(String name, Point position, Dimension dimension) {
-        this.name = name;
-        shape = new Rectangle(position, dimension);
-        isSelected = false;
-        propertyChangeSupport = new PropertyChangeSupport(this);
-        backgroundColor = new Color(0x536271);
+        this(new NodeStore(1), name, position, dimension);
+        id = -1;
     }
 
     /**
@@ -39,13 +42,73 @@ public class Node {
         this("none", new Point(200, 200), new Dimension(150, 70));
     }
 
+    /**
+     * Constructor used by the graph, the node is created directly inside a new slot of the store of the graph.
+     * The slot is also the id of the node.
+     *
+     * @param store     store of the graph
+     * @param name      Name of the node
+     * @param position  It is a Point object, it represents a position (x,y)
+     * @param dimension It is a Dimension object, it encapsulates width and height
+     */
+    Node(NodeStore store, String name, Point position, Dimension dimension) {
+        this(store, name, position.x, position.y, dimension.width, dimension.height);
+    }
+
+    /**
+     * Constructor used by the graph while it is loaded, the node is created directly inside a new slot
+     * of the store of the graph without creating a point and a dimension for it.
+     * The slot is also the id of the node.
+     *
+     * @param store  store of the graph
+     * @param name   Name of the node
+     * @param x      horizontal position of the node
+     * @param y      vertical position of the node
+     * @param width  width of the node
+     * @param height height of the node
+     */
+    Node(NodeStore store, String name, int x, int y, int width, int height) {
+        this.store = store;
+        slot = store.allocate();
+        id = slot;
+        store.setBounds(slot, x, y, width, height);
+        store.setColor(slot, DEFAULT_COLOR);
+        store.setName(slot, name);
+        isSelected = false;
+    }
+
+    /**
+     * It moves the data of the node inside a new slot of the store of a graph.
+     * The slot becomes the id of the node.
+     *
+     * @param graphStore store of the graph
+     */
+    void attach(NodeStore graphStore) {
+        int graphSlot = graphStore.allocate();
+        graphStore.copy(store, slot, graphSlot);
+        store = graphStore;
+        slot = graphSlot;
+        id = graphSlot;
+    }
+
+    /**
+     * Checks if the data of the node are stored inside the store of a graph
+     *
+     * @param graphStore store of the graph
+     * @return True if the node uses a slot of graphStore
+     */
+    boolean isStoredIn(NodeStore graphStore) {
+        return store == graphStore;
+    }
+
     /**
      * It changes the state of the node. If the state was true it will be false and vice versa
      */
     public void setSelected() {
-        PropertyChangeEvent event = new PropertyChangeEvent(this, "setSelected", isSelected, !isSelected);
         isSelected = !isSelected;
-        propertyChangeSupport.firePropertyChange(event);
+        if (hasListeners())
+            firePropertyChange(new PropertyChangeEvent(this, "setSelected", !isSelected, isSelected));
+        store.fireNodeChanged(this, "setSelected");
     }
 
 
@@ -55,9 +118,41 @@ public class Node {
      * @param rect the new shape of the node as a rectangle
      */
     public void setShape(Rectangle rect) {
-        PropertyChangeEvent event = new PropertyChangeEvent(this, "setShape", shape, rect);
-        shape = rect;
-        propertyChangeSupport.firePropertyChange(event);
+        setBounds(rect.x, rect.y, rect.width, rect.height);
+    }
+
+    /**
+     * It sets position and dimension of the node.
+     * The rectangles of the event are created only if somebody is listening to the node itself,
+     * the listeners of all the nodes of the graph receive the old bounds as numbers.
+     *
+     * @param x      horizontal position
+     * @param y      vertical position
+     * @param width  width of the node
+     * @param height height of the node
+     */
+    private void setBounds(int x, int y, int width, int height) {
+        boolean listened = hasListeners();
+        Rectangle oldShape = listened ? getShape() : null;
+        int oldX = getX();
+        int oldY = getY();
+        int oldWidth = getWidth();
+        int oldHeight = getHeight();
+
+        Lock writeLock = store.getLock().writeLock();
+        writeLock.lock();
+        try {
+            SpatialIndex spatialIndex = store.getSpatialIndex();
+            if (spatialIndex != null)
+                spatialIndex.update(this, x, y, width, height);
+            store.setBounds(slot, x, y, width, height);
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (listened)
+            firePropertyChange(new PropertyChangeEvent(this, "setShape", oldShape, getShape()));
+        store.fireNodeMoved(this, oldX, oldY, oldWidth, oldHeight);
     }
 
     /**
@@ -66,9 +161,16 @@ public class Node {
      * @param name The new name of the node
      */
     public void setName(String name) {
-        PropertyChangeEvent event = new PropertyChangeEvent(this, "nameChanged", this.name, name);
-        this.name = name;
-        propertyChangeSupport.firePropertyChange(event);
+        PropertyChangeEvent event = new PropertyChangeEvent(this, "nameChanged", getName(), name);
+        Lock writeLock = store.getLock().writeLock();
+        writeLock.lock();
+        try {
+            store.setName(slot, name);
+        } finally {
+            writeLock.unlock();
+        }
+        firePropertyChange(event);
+        store.fireNodeChanged(this, "nameChanged");
     }
 
     /**
@@ -80,17 +182,64 @@ public class Node {
         return isSelected;
     }
 
+    /**
+     * Getter for the id of the node. The id is assigned by the graph the first time the node is added
+     * and it doesn't change when the node is removed and added again
+     *
+     * @return the id of the node, -1 if the node has never been added to a graph
+     */
+    public int getId() {
+        return id;
+    }
+
     public String getName() {
-        return name;
+        return store.getName(slot);
     }
 
     /**
-     * Getter for the shape and size of the node
+     * Getter for the shape and size of the node.
+     * The rectangle is a copy, changing it doesn't change the node.
      *
      * @return a rectangle with the dimensions of the node
      */
     public Rectangle getShape() {
-        return shape;
+        return new Rectangle(getX(), getY(), getWidth(), getHeight());
+    }
+
+    /**
+     * Getter for the horizontal position of the node
+     *
+     * @return x coordinate of the top left corner
+     */
+    public int getX() {
+        return store.getX(slot);
+    }
+
+    /**
+     * Getter for the vertical position of the node
+     *
+     * @return y coordinate of the top left corner
+     */
+    public int getY() {
+        return store.getY(slot);
+    }
+
+    /**
+     * Getter for the width of the node
+     *
+     * @return width of the node
+     */
+    public int getWidth() {
+        return store.getWidth(slot);
+    }
+
+    /**
+     * Getter for the height of the node
+     *
+     * @return height of the node
+     */
+    public int getHeight() {
+        return store.getHeight(slot);
     }
 
     /**
@@ -99,7 +248,16 @@ public class Node {
      * @return background color of the node
      */
     public Color getBackgroundColor() {
-        return backgroundColor;
+        return new Color(store.getColor(slot), true);
+    }
+
+    /**
+     * Getter for the background color of the node, without creating a Color object
+     *
+     * @return background color of the node packed as an ARGB int
+     */
+    public int getBackgroundArgb() {
+        return store.getColor(slot);
     }
 
     /**
@@ -108,7 +266,13 @@ public class Node {
      * @param color the new background of the node
      */
     public void setBackgroundColor(Color color) {
-        backgroundColor = color;
+        Lock writeLock = store.getLock().writeLock();
+        writeLock.lock();
+        try {
+            store.setColor(slot, color.getRGB());
+        } finally {
+            writeLock.unlock();
+        }
     }
 
 
@@ -116,15 +280,44 @@ public class Node {
      * Moves the center of the node to the x and y coordinates
      */
     public void move(int x, int y) {
-        setShape(new Rectangle(x + shape.x - shape.width / 2, y + shape.y - shape.height / 2, shape.width, shape.height));
+        int width = getWidth();
+        int height = getHeight();
+        setBounds(x + getX() - width / 2, y + getY() - height / 2, width, height);
+    }
+
+    /**
+     * Checks if somebody is listening to the node
+     *
+     * @return True if at least one listener has been added
+     */
+    private boolean hasListeners() {
+        return propertyChangeSupport != null && propertyChangeSupport.hasListeners(null);
+    }
+
+    /**
+     * It fires the event to the listeners of the node, if there are any
+     *
+     * @param event event to be fired
+     */
+    private void firePropertyChange(PropertyChangeEvent event) {
+        if (propertyChangeSupport == null)
+            return;
+        EventMonitor monitor = store.getEventMonitor();
+        if (monitor != null)
+            monitor.fire(propertyChangeSupport, event);
+        else
+            propertyChangeSupport.firePropertyChange(event);
     }
 
     /**
-     * Allows adding property change support listeners to nodes
+     * Allows adding property change support listeners to nodes.
+     * The property change support is created when the first listener is added.
      *
      * @param listener the panel we want to listen
      */
     public void addPropertyChangeListener(PropertyChangeListener listener) {
+        if (propertyChangeSupport == null)
+            propertyChangeSupport = new PropertyChangeSupport(this);
         propertyChangeSupport.addPropertyChangeListener(listener);
     }
 }
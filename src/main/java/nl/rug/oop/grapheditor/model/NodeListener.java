@@ -0,0 +1,27 @@
+package nl.rug.oop.grapheditor.model;
+
+/**
+ * NodeListener is told about the changes of all the nodes of a graph. It is added once to the graph instead of
+ * to every node, and a move is described by plain numbers, so a change of a node doesn't create any object.
+ * It is called after the change, by the thread that has changed the node.
+ */
+public interface NodeListener {
+
+    /**
+     * It is called when the position or the dimension of a node has changed
+     *
+     * @param node      node that has changed, it already has its new bounds
+     * @param oldX      horizontal position before the change
+     * @param oldY      vertical position before the change
+     * @param oldWidth  width before the change
+     * @param oldHeight height before the change
+     */
+    void nodeMoved(Node node, int oldX, int oldY, int oldWidth, int oldHeight);
+
+    /**
+     * It is called when the name or the selection of a node has changed
+     *
+     * @param node node that has changed
+     */
+    void nodeChanged(Node node);
+}
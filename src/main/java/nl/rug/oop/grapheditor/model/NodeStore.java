@@ -0,0 +1,381 @@
+package nl.rug.oop.grapheditor.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * NodeStore keeps the geometry and the attributes of the nodes in parallel primitive arrays (structure of arrays),
+ * one slot per node. Node is only a handle on a slot of a store, so that a node doesn't need a Rectangle
+ * and a Color of its own and moving it doesn't allocate anything.
+ * The colors are packed ARGB ints and the names are interned.
+ * The nodes must hold the write lock of the store while they change it.
+ * The slots changed since the last version of the graph are marked as dirty.
+ */
+class NodeStore {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] x;
+    private int[] y;
+    private int[] width;
+    private int[] height;
+    private int[] color;
+    private String[] names;
+    private int size;
+    private long modCount;
+    private final BitSet dirty;
+    private SpatialIndex spatialIndex;
+    private EventMonitor eventMonitor;
+    //created when the first listener is added, the stores of the nodes outside a graph don't have any
+    private ArrayList<NodeListener> nodeListeners;
+    private final ReentrantReadWriteLock lock;
+
+    /**
+     * Constructor for a store with a default initial capacity, protected by the lock of a graph
+     *
+     * @param lock lock of the graph owning the store
+     */
+    NodeStore(ReentrantReadWriteLock lock) {
+        this(DEFAULT_CAPACITY, lock);
+    }
+
+    /**
+     * Constructor for a store that replaces another store of the same graph.
+     * It continues counting the changes from where the old store stopped.
+     *
+     * @param lock     lock of the graph owning the store
+     * @param oldStore store being replaced
+     */
+    NodeStore(ReentrantReadWriteLock lock, NodeStore oldStore) {
+        this(DEFAULT_CAPACITY, lock);
+        modCount = oldStore.modCount + 1;
+        eventMonitor = oldStore.eventMonitor;
+        nodeListeners = oldStore.nodeListeners;
+    }
+
+    /**
+     * Constructor for a store that can contain capacity nodes before growing, with a lock of its own
+     *
+     * @param capacity initial number of slots
+     */
+    NodeStore(int capacity) {
+        this(capacity, new ReentrantReadWriteLock());
+    }
+
+    /**
+     * Constructor for a store that can contain capacity nodes before growing
+     *
+     * @param capacity initial number of slots
+     * @param lock     lock protecting the store
+     */
+    private NodeStore(int capacity, ReentrantReadWriteLock lock) {
+        this.lock = lock;
+        x = new int[capacity];
+        y = new int[capacity];
+        width = new int[capacity];
+        height = new int[capacity];
+        color = new int[capacity];
+        names = new String[capacity];
+        size = 0;
+        modCount = 0;
+        dirty = new BitSet();
+    }
+
+    /**
+     * It copies all the columns of the store. The copy has a lock of its own and no spatial index.
+     * The caller must hold at least the read lock of this store.
+     *
+     * @return a copy of the store, with capacity equal to its size
+     */
+    NodeStore copyColumns() {
+        NodeStore copy = new NodeStore(0);
+        copy.x = Arrays.copyOf(x, size);
+        copy.y = Arrays.copyOf(y, size);
+        copy.width = Arrays.copyOf(width, size);
+        copy.height = Arrays.copyOf(height, size);
+        copy.color = Arrays.copyOf(color, size);
+        copy.names = Arrays.copyOf(names, size);
+        copy.size = size;
+        copy.modCount = modCount;
+        return copy;
+    }
+
+    /**
+     * Getter for the lock protecting the store
+     *
+     * @return the read-write lock of the store
+     */
+    ReentrantReadWriteLock getLock() {
+        return lock;
+    }
+
+    /**
+     * Getter for the number of changes done to the store, used to know if a copy is still up to date
+     *
+     * @return number of changes
+     */
+    long getModCount() {
+        return modCount;
+    }
+
+    /**
+     * It counts a change of the graph that is not stored in the columns, e.g. a new edge
+     */
+    void modified() {
+        modCount++;
+    }
+
+    /**
+     * Getter for the slots changed since the dirty marks have been cleared the last time
+     *
+     * @return the dirty slots, the set is live and it is owned by the store
+     */
+    BitSet getDirty() {
+        return dirty;
+    }
+
+    /**
+     * It marks a slot as changed, e.g. because its node has been added to or removed from the graph
+     *
+     * @param slot slot of the node
+     */
+    void markDirty(int slot) {
+        dirty.set(slot);
+    }
+
+    /**
+     * It clears the dirty marks, once the changes have been recorded in a version of the graph
+     */
+    void clearDirty() {
+        dirty.clear();
+    }
+
+    /**
+     * It makes sure that the store can contain at least capacity slots without growing again
+     *
+     * @param capacity number of slots needed
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity <= x.length)
+            return;
+        int newCapacity = Math.max(capacity, x.length * 2);
+        x = Arrays.copyOf(x, newCapacity);
+        y = Arrays.copyOf(y, newCapacity);
+        width = Arrays.copyOf(width, newCapacity);
+        height = Arrays.copyOf(height, newCapacity);
+        color = Arrays.copyOf(color, newCapacity);
+        names = Arrays.copyOf(names, newCapacity);
+    }
+
+    /**
+     * It reserves a new slot
+     *
+     * @return the index of the new slot
+     */
+    int allocate() {
+        ensureCapacity(size + 1);
+        modCount++;
+        return size++;
+    }
+
+    /**
+     * It copies a slot of another store inside a slot of this store
+     *
+     * @param other     store to copy from
+     * @param otherSlot slot to be copied
+     * @param slot      destination slot
+     */
+    void copy(NodeStore other, int otherSlot, int slot) {
+        setBounds(slot, other.x[otherSlot], other.y[otherSlot], other.width[otherSlot], other.height[otherSlot]);
+        color[slot] = other.color[otherSlot];
+        names[slot] = other.names[otherSlot];
+        dirty.set(slot);
+    }
+
+    /**
+     * Setter for the spatial index that the nodes of this store keep updated
+     *
+     * @param spatialIndex index of the graph owning the store
+     */
+    void setSpatialIndex(SpatialIndex spatialIndex) {
+        this.spatialIndex = spatialIndex;
+    }
+
+    /**
+     * Getter for the spatial index of the store
+     *
+     * @return the index, null if the store doesn't belong to a graph
+     */
+    SpatialIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    /**
+     * Setter for the monitor of the events fired by the nodes of this store
+     *
+     * @param eventMonitor monitor of the graph owning the store, null for none
+     */
+    void setEventMonitor(EventMonitor eventMonitor) {
+        this.eventMonitor = eventMonitor;
+    }
+
+    /**
+     * Getter for the monitor of the events fired by the nodes of this store
+     *
+     * @return the monitor, null if the events are not monitored
+     */
+    EventMonitor getEventMonitor() {
+        return eventMonitor;
+    }
+
+    /**
+     * It adds a listener of all the nodes of this store
+     *
+     * @param listener listener added by the graph owning the store
+     */
+    void addNodeListener(NodeListener listener) {
+        if (nodeListeners == null)
+            nodeListeners = new ArrayList<>(1);
+        nodeListeners.add(listener);
+    }
+
+    /**
+     * It tells the listeners of the nodes that a node has moved, timing them if there is a monitor
+     *
+     * @param node      node that has moved
+     * @param oldX      horizontal position before the move
+     * @param oldY      vertical position before the move
+     * @param oldWidth  width before the move
+     * @param oldHeight height before the move
+     */
+    void fireNodeMoved(Node node, int oldX, int oldY, int oldWidth, int oldHeight) {
+        if (nodeListeners == null)
+            return;
+        for (int i = 0; i < nodeListeners.size(); i++) {
+            NodeListener listener = nodeListeners.get(i);
+            long start = eventMonitor != null ? System.nanoTime() : 0;
+            listener.nodeMoved(node, oldX, oldY, oldWidth, oldHeight);
+            if (eventMonitor != null)
+                eventMonitor.nodeListenerCalled(listener, "setShape", System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * It tells the listeners of the nodes that the name or the selection of a node has changed,
+     * timing them if there is a monitor
+     *
+     * @param node         node that has changed
+     * @param propertyName name of the event of the node describing the change
+     */
+    void fireNodeChanged(Node node, String propertyName) {
+        if (nodeListeners == null)
+            return;
+        for (int i = 0; i < nodeListeners.size(); i++) {
+            NodeListener listener = nodeListeners.get(i);
+            long start = eventMonitor != null ? System.nanoTime() : 0;
+            listener.nodeChanged(node);
+            if (eventMonitor != null)
+                eventMonitor.nodeListenerCalled(listener, propertyName, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Getter for the number of slots that have been allocated
+     *
+     * @return number of slots, which is also an upper bound (exclusive) for the slot indices
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Setter for the position and the dimension of a slot
+     *
+     * @param slot   slot of the node
+     * @param x      horizontal position
+     * @param y      vertical position
+     * @param width  width of the node
+     * @param height height of the node
+     */
+    void setBounds(int slot, int x, int y, int width, int height) {
+        this.x[slot] = x;
+        this.y[slot] = y;
+        this.width[slot] = width;
+        this.height[slot] = height;
+        dirty.set(slot);
+        modCount++;
+    }
+
+    /**
+     * Setter for the color of a slot
+     *
+     * @param slot slot of the node
+     * @param argb color packed as an ARGB int
+     */
+    void setColor(int slot, int argb) {
+        color[slot] = argb;
+        dirty.set(slot);
+        modCount++;
+    }
+
+    /**
+     * Setter for the name of a slot, the name is interned
+     *
+     * @param slot slot of the node
+     * @param name name of the node
+     */
+    void setName(int slot, String name) {
+        names[slot] = name == null ? null : name.intern();
+        dirty.set(slot);
+        modCount++;
+    }
+
+    /**
+     * @param slot slot of the node
+     * @return horizontal position of the node
+     */
+    int getX(int slot) {
+        return x[slot];
+    }
+
+    /**
+     * @param slot slot of the node
+     * @return vertical position of the node
+     */
+    int getY(int slot) {
+        return y[slot];
+    }
+
+    /**
+     * @param slot slot of the node
+     * @return width of the node
+     */
+    int getWidth(int slot) {
+        return width[slot];
+    }
+
+    /**
+     * @param slot slot of the node
+     * @return height of the node
+     */
+    int getHeight(int slot) {
+        return height[slot];
+    }
+
+    /**
+     * @param slot slot of the node
+     * @return color of the node packed as an ARGB int
+     */
+    int getColor(int slot) {
+        return color[slot];
+    }
+
+    /**
+     * @param slot slot of the node
+     * @return name of the node
+     */
+    String getName(int slot) {
+        return names[slot];
+    }
+}
@@ -0,0 +1,377 @@
+package nl.rug.oop.grapheditor.model;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * PersistentLongMap is an immutable map from long keys to values, implemented as a hash array mapped trie (HAMT).
+ * Every change returns a new map that shares with the old one all the nodes of the trie that haven't changed,
+ * so a change costs O(log N) time and memory. Two maps derived one from the other can be compared
+ * in a time proportional to their differences, because the shared subtries are skipped.
+ *
+ * @param <V> type of the values
+ */
+public final class PersistentLongMap<V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentLongMap<?> EMPTY = new PersistentLongMap<>(null, 0);
+
+    private final Trie root;
+    private final int size;
+
+    /**
+     * Interface used to visit the differences between two maps
+     *
+     * @param <V> type of the values
+     */
+    public interface DiffVisitor<V> {
+        /**
+         * Called for a key that is only in the new map
+         *
+         * @param key   the key
+         * @param value value in the new map
+         */
+        void added(long key, V value);
+
+        /**
+         * Called for a key that is only in the old map
+         *
+         * @param key   the key
+         * @param value value in the old map
+         */
+        void removed(long key, V value);
+
+        /**
+         * Called for a key whose value is a different object in the two maps
+         *
+         * @param key      the key
+         * @param oldValue value in the old map
+         * @param newValue value in the new map
+         */
+        void changed(long key, V oldValue, V newValue);
+    }
+
+    /**
+     * A node of the trie. The bitmap says which of the 32 children are present,
+     * the children are stored compacted in the entries array and each one is a Leaf or a Trie.
+     */
+    private static final class Trie {
+        private final int bitmap;
+        private final Object[] entries;
+
+        private Trie(int bitmap, Object[] entries) {
+            this.bitmap = bitmap;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * An entry of the map
+     */
+    private static final class Leaf {
+        private final long key;
+        private final long hash;
+        private final Object value;
+
+        private Leaf(long key, long hash, Object value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+    private PersistentLongMap(Trie root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Getter for the empty map
+     *
+     * @param <V> type of the values
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentLongMap<V> empty() {
+        return (PersistentLongMap<V>) EMPTY;
+    }
+
+    /**
+     * Getter for the number of entries
+     *
+     * @return number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * It finds the value of a key
+     *
+     * @param key the key
+     * @return the value of the key, null if the key is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        long hash = hash(key);
+        Object entry = root;
+        for (int shift = 0; entry != null; shift += BITS) {
+            if (entry instanceof Leaf) {
+                Leaf leaf = (Leaf) entry;
+                return leaf.key == key ? (V) leaf.value : null;
+            }
+            Trie trie = (Trie) entry;
+            int bit = bit(hash, shift);
+            if ((trie.bitmap & bit) == 0)
+                return null;
+            entry = trie.entries[index(trie.bitmap, bit)];
+        }
+        return null;
+    }
+
+    /**
+     * It associates the value to the key
+     *
+     * @param key   the key
+     * @param value the value
+     * @return a new map containing the entry, or this map if the key already had the same value
+     */
+    public PersistentLongMap<V> put(long key, V value) {
+        Leaf leaf = new Leaf(key, hash(key), value);
+        if (root == null)
+            return new PersistentLongMap<>(new Trie(bit(leaf.hash, 0), new Object[]{leaf}), 1);
+        boolean[] added = new boolean[1];
+        Trie newRoot = put(root, leaf, 0, added);
+        if (newRoot == root)
+            return this;
+        return new PersistentLongMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * It removes a key from the map
+     *
+     * @param key the key
+     * @return a new map without the key, or this map if the key was not there
+     */
+    public PersistentLongMap<V> remove(long key) {
+        if (root == null)
+            return this;
+        Object newRoot = remove(root, key, hash(key), 0);
+        if (newRoot == root)
+            return this;
+        if (newRoot instanceof Leaf) {
+            Leaf leaf = (Leaf) newRoot;
+            newRoot = new Trie(bit(leaf.hash, 0), new Object[]{leaf});
+        }
+        return new PersistentLongMap<>((Trie) newRoot, size - 1);
+    }
+
+    /**
+     * It visits all the entries of the map
+     *
+     * @param action action to be performed on each entry
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<Long, V> action) {
+        visit(root, leaf -> action.accept(leaf.key, (V) leaf.value));
+    }
+
+    /**
+     * It finds the differences from this map to another one. The subtries shared by the two maps are skipped,
+     * so comparing two versions of the same map costs a time proportional to the changes between them.
+     * Values are compared by identity.
+     *
+     * @param other   the new map
+     * @param visitor visitor notified of every difference
+     */
+    @SuppressWarnings("unchecked")
+    public void diff(PersistentLongMap<V> other, DiffVisitor<V> visitor) {
+        diffEntries(root, other.root, 0, (DiffVisitor<Object>) visitor);
+    }
+
+    private static Trie put(Trie trie, Leaf leaf, int shift, boolean[] added) {
+        int bit = bit(leaf.hash, shift);
+        int index = index(trie.bitmap, bit);
+        if ((trie.bitmap & bit) == 0) {
+            added[0] = true;
+            Object[] entries = new Object[trie.entries.length + 1];
+            System.arraycopy(trie.entries, 0, entries, 0, index);
+            entries[index] = leaf;
+            System.arraycopy(trie.entries, index, entries, index + 1, trie.entries.length - index);
+            return new Trie(trie.bitmap | bit, entries);
+        }
+
+        Object entry = trie.entries[index];
+        Object newEntry;
+        if (entry instanceof Trie) {
+            newEntry = put((Trie) entry, leaf, shift + BITS, added);
+        } else {
+            Leaf old = (Leaf) entry;
+            if (old.key == leaf.key) {
+                if (old.value == leaf.value)
+                    return trie;
+                newEntry = leaf;
+            } else {
+                added[0] = true;
+                newEntry = merge(old, leaf, shift + BITS);
+            }
+        }
+        if (newEntry == entry)
+            return trie;
+        Object[] entries = trie.entries.clone();
+        entries[index] = newEntry;
+        return new Trie(trie.bitmap, entries);
+    }
+
+    /**
+     * It creates the subtrie containing two leaves whose hashes are equal up to shift
+     */
+    private static Trie merge(Leaf first, Leaf second, int shift) {
+        int firstBit = bit(first.hash, shift);
+        int secondBit = bit(second.hash, shift);
+        if (firstBit == secondBit)
+            return new Trie(firstBit, new Object[]{merge(first, second, shift + BITS)});
+        Object[] entries = Integer.compareUnsigned(firstBit, secondBit) < 0
+                ? new Object[]{first, second} : new Object[]{second, first};
+        return new Trie(firstBit | secondBit, entries);
+    }
+
+    /**
+     * It removes the key from the trie. A trie left with a single leaf is replaced by the leaf,
+     * so that the tries stay as short as possible.
+     *
+     * @return the new trie, a leaf, null if the trie became empty, or the same trie if the key was not there
+     */
+    private static Object remove(Trie trie, long key, long hash, int shift) {
+        int bit = bit(hash, shift);
+        if ((trie.bitmap & bit) == 0)
+            return trie;
+        int index = index(trie.bitmap, bit);
+        Object entry = trie.entries[index];
+        Object newEntry;
+        if (entry instanceof Trie) {
+            newEntry = remove((Trie) entry, key, hash, shift + BITS);
+            if (newEntry == entry)
+                return trie;
+        } else {
+            if (((Leaf) entry).key != key)
+                return trie;
+            newEntry = null;
+        }
+
+        if (newEntry != null) {
+            if (trie.entries.length == 1 && newEntry instanceof Leaf)
+                return newEntry;
+            Object[] entries = trie.entries.clone();
+            entries[index] = newEntry;
+            return new Trie(trie.bitmap, entries);
+        }
+        if (trie.entries.length == 1)
+            return null;
+        if (trie.entries.length == 2 && trie.entries[1 - index] instanceof Leaf)
+            return trie.entries[1 - index];
+        Object[] entries = new Object[trie.entries.length - 1];
+        System.arraycopy(trie.entries, 0, entries, 0, index);
+        System.arraycopy(trie.entries, index + 1, entries, index, entries.length - index);
+        return new Trie(trie.bitmap & ~bit, entries);
+    }
+
+    private static void visit(Object entry, Consumer<Leaf> action) {
+        if (entry == null)
+            return;
+        if (entry instanceof Leaf) {
+            action.accept((Leaf) entry);
+            return;
+        }
+        for (Object child : ((Trie) entry).entries) {
+            visit(child, action);
+        }
+    }
+
+    private static void diffEntries(Object oldEntry, Object newEntry, int shift, DiffVisitor<Object> visitor) {
+        if (oldEntry == newEntry)
+            return;
+        if (oldEntry == null) {
+            visit(newEntry, leaf -> visitor.added(leaf.key, leaf.value));
+        } else if (newEntry == null) {
+            visit(oldEntry, leaf -> visitor.removed(leaf.key, leaf.value));
+        } else if (oldEntry instanceof Trie && newEntry instanceof Trie) {
+            Trie oldTrie = (Trie) oldEntry;
+            Trie newTrie = (Trie) newEntry;
+            int bitmap = oldTrie.bitmap | newTrie.bitmap;
+            while (bitmap != 0) {
+                int bit = Integer.lowestOneBit(bitmap);
+                bitmap &= ~bit;
+                Object oldChild = (oldTrie.bitmap & bit) == 0 ? null : oldTrie.entries[index(oldTrie.bitmap, bit)];
+                Object newChild = (newTrie.bitmap & bit) == 0 ? null : newTrie.entries[index(newTrie.bitmap, bit)];
+                diffEntries(oldChild, newChild, shift + BITS, visitor);
+            }
+        } else if (oldEntry instanceof Leaf && newEntry instanceof Leaf) {
+            Leaf oldLeaf = (Leaf) oldEntry;
+            Leaf newLeaf = (Leaf) newEntry;
+            if (oldLeaf.key == newLeaf.key) {
+                if (oldLeaf.value != newLeaf.value)
+                    visitor.changed(oldLeaf.key, oldLeaf.value, newLeaf.value);
+            } else {
+                visitor.removed(oldLeaf.key, oldLeaf.value);
+                visitor.added(newLeaf.key, newLeaf.value);
+            }
+        } else if (oldEntry instanceof Leaf) {
+            diffLeafTrie((Leaf) oldEntry, newEntry, visitor, true);
+        } else {
+            diffLeafTrie((Leaf) newEntry, oldEntry, visitor, false);
+        }
+    }
+
+    /**
+     * It compares a leaf of one map with a subtrie of the other map
+     *
+     * @param leaf      the leaf
+     * @param trie      the subtrie
+     * @param visitor   visitor notified of every difference
+     * @param leafIsOld True if the leaf belongs to the old map
+     */
+    private static void diffLeafTrie(Leaf leaf, Object trie, DiffVisitor<Object> visitor, boolean leafIsOld) {
+        boolean[] found = new boolean[1];
+        visit(trie, other -> {
+            if (other.key == leaf.key) {
+                found[0] = true;
+                if (other.value != leaf.value) {
+                    if (leafIsOld)
+                        visitor.changed(leaf.key, leaf.value, other.value);
+                    else
+                        visitor.changed(leaf.key, other.value, leaf.value);
+                }
+            } else if (leafIsOld) {
+                visitor.added(other.key, other.value);
+            } else {
+                visitor.removed(other.key, other.value);
+            }
+        });
+        if (!found[0]) {
+            if (leafIsOld)
+                visitor.removed(leaf.key, leaf.value);
+            else
+                visitor.added(leaf.key, leaf.value);
+        }
+    }
+
+    /**
+     * A bijective mix of the key (the finalizer of SplitMix64), so that different keys always
+     * have different hashes and no collision handling is needed
+     */
+    private static long hash(long key) {
+        long hash = key;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+
+    private static int bit(long hash, int shift) {
+        return 1 << ((int) (hash >>> shift) & MASK);
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+}
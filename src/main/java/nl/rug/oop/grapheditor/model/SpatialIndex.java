@@ -0,0 +1,312 @@
+package nl.rug.oop.grapheditor.model;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * SpatialIndex is a uniform grid over the bounds of the nodes of a graph. Every node is stored in all the cells
+ * its rectangle overlaps, so that the nodes containing a point, the nodes intersecting a rectangle and
+ * the nodes nearest to a point can be found by looking only at the cells around them.
+ * The index is updated by the nodes themselves every time their shape changes.
+ */
+public class SpatialIndex {
+    private static final int DEFAULT_CELL_SIZE = 256;
+
+    private final int cellSize;
+    private final HashMap<Long, ArrayList<Node>> cells;
+    private final BitSet indexed;
+    private int size;
+    //cells that have contained a node, they don't shrink when nodes are removed
+    private int minCellX = Integer.MAX_VALUE;
+    private int minCellY = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE;
+    private int maxCellY = Integer.MIN_VALUE;
+
+    /**
+     * Constructor for an empty index with the default cell size
+     */
+    public SpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Constructor for an empty index
+     *
+     * @param cellSize width and height of a cell of the grid
+     */
+    public SpatialIndex(int cellSize) {
+        this.cellSize = cellSize;
+        cells = new HashMap<>();
+        indexed = new BitSet();
+        size = 0;
+    }
+
+    /**
+     * It adds a node of the graph to the index
+     *
+     * @param node node to be added
+     */
+    void insert(Node node) {
+        if (indexed.get(node.getId()))
+            return;
+        indexed.set(node.getId());
+        size++;
+        addToCells(node, node.getX(), node.getY(), node.getWidth(), node.getHeight());
+    }
+
+    /**
+     * It removes a node from the index
+     *
+     * @param node node to be removed
+     */
+    void remove(Node node) {
+        if (!indexed.get(node.getId()))
+            return;
+        indexed.clear(node.getId());
+        size--;
+        removeFromCells(node, node.getX(), node.getY(), node.getWidth(), node.getHeight());
+    }
+
+    /**
+     * It must be called before the bounds of a node change. If the node is indexed and it moves
+     * to different cells, the cells are updated, otherwise nothing happens.
+     *
+     * @param node   node whose bounds are changing
+     * @param x      new horizontal position
+     * @param y      new vertical position
+     * @param width  new width
+     * @param height new height
+     */
+    void update(Node node, int x, int y, int width, int height) {
+        if (node.getId() < 0 || !indexed.get(node.getId()))
+            return;
+        int oldX = node.getX();
+        int oldY = node.getY();
+        int oldWidth = node.getWidth();
+        int oldHeight = node.getHeight();
+        if (cell(oldX) == cell(x) && cell(oldY) == cell(y)
+                && cell(oldX + oldWidth) == cell(x + width) && cell(oldY + oldHeight) == cell(y + height))
+            return;
+        removeFromCells(node, oldX, oldY, oldWidth, oldHeight);
+        addToCells(node, x, y, width, height);
+    }
+
+    /**
+     * Getter for the number of nodes in the index
+     *
+     * @return number of indexed nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * It finds all the nodes whose shape contains the point
+     *
+     * @param x horizontal coordinate of the point
+     * @param y vertical coordinate of the point
+     * @return the nodes that contain the point
+     */
+    public List<Node> nodesAt(int x, int y) {
+        ArrayList<Node> result = new ArrayList<>();
+        ArrayList<Node> cellNodes = cells.get(key(cell(x), cell(y)));
+        if (cellNodes == null)
+            return result;
+        for (Node node : cellNodes) {
+            if (contains(node, x, y))
+                result.add(node);
+        }
+        return result;
+    }
+
+    /**
+     * It finds all the nodes whose shape intersects the rectangle
+     *
+     * @param area rectangle to be checked
+     * @return the nodes that intersect the area, each one only once
+     */
+    public List<Node> nodesIn(Rectangle area) {
+        ArrayList<Node> result = new ArrayList<>();
+        if (area.width < 0 || area.height < 0)
+            return result;
+        int minCellX = cell(area.x);
+        int minCellY = cell(area.y);
+        int maxCellX = cell(area.x + area.width);
+        int maxCellY = cell(area.y + area.height);
+        for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+            for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                ArrayList<Node> cellNodes = cells.get(key(cellX, cellY));
+                if (cellNodes == null)
+                    continue;
+                for (Node node : cellNodes) {
+                    //a node is reported only by the cell containing the top left corner of the intersection
+                    if (intersects(node, area)
+                            && cell(Math.max(node.getX(), area.x)) == cellX
+                            && cell(Math.max(node.getY(), area.y)) == cellY)
+                        result.add(node);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * It finds the k nodes nearest to the point. The distance of a node is the distance between
+     * the point and the closest point of its shape, so it is 0 for the nodes containing the point.
+     *
+     * @param x horizontal coordinate of the point
+     * @param y vertical coordinate of the point
+     * @param k maximum number of nodes to be found
+     * @return the nearest nodes, from the nearest to the farthest
+     */
+    public List<Node> nearest(int x, int y, int k) {
+        ArrayList<Node> result = new ArrayList<>();
+        if (k <= 0 || size == 0)
+            return result;
+
+        //max-heap on the distance, it keeps the k best nodes found so far
+        PriorityQueue<Node> best = new PriorityQueue<>(k,
+                (a, b) -> Long.compare(squaredDistance(b, x, y), squaredDistance(a, x, y)));
+        HashSet<Node> visited = new HashSet<>();
+        int centerX = cell(x);
+        int centerY = cell(y);
+        int found = 0;
+        for (int ring = 0; ; ring++) {
+            //only the cells on the border of the ring, and only the ones that can contain nodes
+            int left = centerX - ring;
+            int right = centerX + ring;
+            int top = centerY - ring;
+            int bottom = centerY + ring;
+            int fromX = Math.max(left, minCellX);
+            int toX = Math.min(right, maxCellX);
+            int fromY = Math.max(top + 1, minCellY);
+            int toY = Math.min(bottom - 1, maxCellY);
+            boolean topRow = top >= minCellY && top <= maxCellY;
+            boolean bottomRow = ring > 0 && bottom >= minCellY && bottom <= maxCellY;
+            boolean leftColumn = left >= minCellX && left <= maxCellX;
+            boolean rightColumn = ring > 0 && right >= minCellX && right <= maxCellX;
+            for (int cellX = fromX; cellX <= toX; cellX++) {
+                if (topRow)
+                    found += collect(cellX, top, x, y, k, best, visited);
+                if (bottomRow)
+                    found += collect(cellX, bottom, x, y, k, best, visited);
+            }
+            for (int cellY = fromY; cellY <= toY; cellY++) {
+                if (leftColumn)
+                    found += collect(left, cellY, x, y, k, best, visited);
+                if (rightColumn)
+                    found += collect(right, cellY, x, y, k, best, visited);
+            }
+            //every node not visited yet is at least this far from the point
+            long ringDistance = (long) ring * cellSize;
+            boolean complete = best.size() == k
+                    && squaredDistance(best.peek(), x, y) <= ringDistance * ringDistance;
+            boolean coversIndex = left <= minCellX && right >= maxCellX && top <= minCellY && bottom >= maxCellY;
+            if (complete || found == size || coversIndex)
+                break;
+        }
+
+        while (!best.isEmpty()) {
+            result.add(0, best.poll());
+        }
+        return result;
+    }
+
+    /**
+     * It adds the nodes of a cell not visited yet to the k best nodes found so far
+     *
+     * @return the number of nodes visited for the first time
+     */
+    private int collect(int cellX, int cellY, int x, int y, int k, PriorityQueue<Node> best, HashSet<Node> visited) {
+        ArrayList<Node> cellNodes = cells.get(key(cellX, cellY));
+        if (cellNodes == null)
+            return 0;
+        int found = 0;
+        for (Node node : cellNodes) {
+            if (!visited.add(node))
+                continue;
+            found++;
+            best.add(node);
+            if (best.size() > k)
+                best.poll();
+        }
+        return found;
+    }
+
+    /**
+     * It adds the node to all the cells overlapped by the bounds
+     */
+    private void addToCells(Node node, int x, int y, int width, int height) {
+        minCellX = Math.min(minCellX, cell(x));
+        minCellY = Math.min(minCellY, cell(y));
+        maxCellX = Math.max(maxCellX, cell(x + width));
+        maxCellY = Math.max(maxCellY, cell(y + height));
+        for (int cellX = cell(x); cellX <= cell(x + width); cellX++) {
+            for (int cellY = cell(y); cellY <= cell(y + height); cellY++) {
+                cells.computeIfAbsent(key(cellX, cellY), c -> new ArrayList<>(4)).add(node);
+            }
+        }
+    }
+
+    /**
+     * It removes the node from all the cells overlapped by the bounds
+     */
+    private void removeFromCells(Node node, int x, int y, int width, int height) {
+        for (int cellX = cell(x); cellX <= cell(x + width); cellX++) {
+            for (int cellY = cell(y); cellY <= cell(y + height); cellY++) {
+                long key = key(cellX, cellY);
+                ArrayList<Node> cellNodes = cells.get(key);
+                if (cellNodes == null)
+                    continue;
+                cellNodes.remove(node);
+                if (cellNodes.isEmpty())
+                    cells.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @param coordinate a horizontal or vertical coordinate
+     * @return the column or the row of the grid containing the coordinate
+     */
+    private int cell(int coordinate) {
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    /**
+     * @return the key of the cell in the map of the cells
+     */
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return True if the shape of the node contains the point
+     */
+    private static boolean contains(Node node, int x, int y) {
+        return x >= node.getX() && x < node.getX() + node.getWidth()
+                && y >= node.getY() && y < node.getY() + node.getHeight();
+    }
+
+    /**
+     * @return True if the shape of the node intersects the area
+     */
+    private static boolean intersects(Node node, Rectangle area) {
+        return node.getX() <= area.x + area.width && area.x <= node.getX() + node.getWidth()
+                && node.getY() <= area.y + area.height && area.y <= node.getY() + node.getHeight();
+    }
+
+    /**
+     * @return squared distance between the point and the closest point of the shape of the node
+     */
+    private static long squaredDistance(Node node, int x, int y) {
+        long dx = Math.max(0, Math.max(node.getX() - x, x - (node.getX() + node.getWidth())));
+        long dy = Math.max(0, Math.max(node.getY() - y, y - (node.getY() + node.getHeight())));
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,82 @@
+package nl.rug.oop.grapheditor.model.algorithms;
+
+import nl.rug.oop.grapheditor.model.CompressedGraph;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * ConnectedComponents finds the weakly connected components of a graph, the direction of the edges is ignored.
+ * It is a lock-free union-find: all the edges are merged in parallel, the roots are linked with a compare and set
+ * always from the larger index to the smaller one, and the paths are halved while they are walked.
+ */
+class ConnectedComponents {
+    private final CompressedGraph graph;
+    private final AtomicIntegerArray parent;
+
+    /**
+     * Constructor for the union-find of a graph, every node starts in a component of its own
+     *
+     * @param graph structure of the graph
+     */
+    ConnectedComponents(CompressedGraph graph) {
+        this.graph = graph;
+        parent = new AtomicIntegerArray(graph.getNumNodes());
+        for (int i = 0; i < graph.getNumNodes(); i++) {
+            parent.set(i, i);
+        }
+    }
+
+    /**
+     * It computes the components. It must be called by a thread of a fork-join pool.
+     *
+     * @return for each node the smallest dense index of its component
+     */
+    int[] compute() {
+        ParallelRange.forEach(graph.getNumNodes(), source -> {
+            for (int position = graph.outStart(source); position < graph.outEnd(source); position++) {
+                union(source, graph.target(position));
+            }
+        });
+        int[] labels = new int[graph.getNumNodes()];
+        ParallelRange.forEach(labels.length, node -> labels[node] = find(node));
+        return labels;
+    }
+
+    /**
+     * It finds the root of the component of a node, halving the path on the way
+     *
+     * @param node dense index of the node
+     * @return dense index of the root
+     */
+    private int find(int node) {
+        while (true) {
+            int up = parent.get(node);
+            if (up == node)
+                return node;
+            int grandparent = parent.get(up);
+            if (up != grandparent)
+                parent.compareAndSet(node, up, grandparent);
+            node = grandparent;
+        }
+    }
+
+    /**
+     * It merges the components of two nodes
+     *
+     * @param first  dense index of the first node
+     * @param second dense index of the second node
+     */
+    private void union(int first, int second) {
+        while (true) {
+            int firstRoot = find(first);
+            int secondRoot = find(second);
+            if (firstRoot == secondRoot)
+                return;
+            //linking the larger root under the smaller one never creates a cycle
+            int larger = Math.max(firstRoot, secondRoot);
+            int smaller = Math.min(firstRoot, secondRoot);
+            if (parent.compareAndSet(larger, larger, smaller))
+                return;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package nl.rug.oop.grapheditor.model.algorithms;
+
+import nl.rug.oop.grapheditor.model.CompressedGraph;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+
+/**
+ * FrontierExpansion visits, in parallel, the neighbours of all the nodes of a frontier and returns the next frontier.
+ * A neighbour is part of the next frontier only if the claim accepts it: the claim must be atomic, so that
+ * a node reached by many threads at the same time is accepted only once (e.g. a compare and set on a visited flag).
+ * The frontier is split in halves until the pieces are small enough to be expanded by a single thread.
+ */
+class FrontierExpansion extends RecursiveTask<int[]> {
+    private static final int GRAIN = 256;
+
+    private final CompressedGraph graph;
+    private final boolean forward;
+    private final IntPredicate claim;
+    private final int[] frontier;
+    private final int start;
+    private final int end;
+
+    /**
+     * Constructor for the expansion of a piece of the frontier
+     *
+     * @param graph    structure of the graph
+     * @param forward  True to follow the outgoing edges, false to follow the incoming ones
+     * @param claim    atomic test deciding if a neighbour joins the next frontier
+     * @param frontier dense indices of the nodes of the frontier
+     * @param start    first position of the piece, inclusive
+     * @param end      last position of the piece, exclusive
+     */
+    private FrontierExpansion(CompressedGraph graph, boolean forward, IntPredicate claim,
+                              int[] frontier, int start, int end) {
+        this.graph = graph;
+        this.forward = forward;
+        this.claim = claim;
+        this.frontier = frontier;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * It visits the graph level by level starting from the sources, which must have already been claimed.
+     * It must be called by a thread of a fork-join pool.
+     *
+     * @param graph   structure of the graph
+     * @param sources dense indices of the starting nodes
+     * @param forward True to follow the outgoing edges, false to follow the incoming ones
+     * @param claim   atomic test deciding if a node is visited
+     * @return the visited nodes, sources included, in the order of their levels
+     */
+    static IntList traverse(CompressedGraph graph, int[] sources, boolean forward, IntPredicate claim) {
+        IntList visited = new IntList(sources.length);
+        int[] frontier = sources;
+        while (frontier.length > 0) {
+            visited.addAll(frontier);
+            frontier = new FrontierExpansion(graph, forward, claim, frontier, 0, frontier.length).invoke();
+        }
+        return visited;
+    }
+
+    @Override
+    protected int[] compute() {
+        if (end - start <= GRAIN)
+            return expand();
+
+        int middle = (start + end) >>> 1;
+        FrontierExpansion left = new FrontierExpansion(graph, forward, claim, frontier, start, middle);
+        left.fork();
+        int[] rightNext = new FrontierExpansion(graph, forward, claim, frontier, middle, end).compute();
+        int[] leftNext = left.join();
+
+        int[] next = new int[leftNext.length + rightNext.length];
+        System.arraycopy(leftNext, 0, next, 0, leftNext.length);
+        System.arraycopy(rightNext, 0, next, leftNext.length, rightNext.length);
+        return next;
+    }
+
+    /**
+     * It expands the piece of the frontier sequentially
+     *
+     * @return the neighbours claimed by this piece
+     */
+    private int[] expand() {
+        IntList next = new IntList(end - start);
+        for (int i = start; i < end; i++) {
+            int node = frontier[i];
+            if (forward) {
+                for (int position = graph.outStart(node); position < graph.outEnd(node); position++) {
+                    int target = graph.target(position);
+                    if (claim.test(target))
+                        next.add(target);
+                }
+            } else {
+                for (int position = graph.inStart(node); position < graph.inEnd(node); position++) {
+                    int source = graph.source(position);
+                    if (claim.test(source))
+                        next.add(source);
+                }
+            }
+        }
+        return next.toArray();
+    }
+}
@@ -0,0 +1,193 @@
+package nl.rug.oop.grapheditor.model.algorithms;
+
+import nl.rug.oop.grapheditor.model.CompressedGraph;
+import nl.rug.oop.grapheditor.model.GraphSnapshot;
+import nl.rug.oop.grapheditor.model.Node;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * GraphAlgorithms runs graph algorithms on a fork-join pool. The algorithms read a snapshot of the graph,
+ * so they can run on any thread while the graph keeps being edited, and they work on the CSR of the snapshot:
+ * nodes are identified by their dense index. The results can be turned back into the nodes of the graph,
+ * e.g. to select them.
+ */
+public class GraphAlgorithms {
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for algorithms that run on the common fork-join pool
+     */
+    public GraphAlgorithms() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for algorithms that run on a given pool
+     *
+     * @param pool pool running the algorithms
+     */
+    public GraphAlgorithms(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * It finds the nodes reachable from the sources. The graph is visited level by level (breadth first),
+     * every level is expanded in parallel. A depth first visit would reach the same nodes,
+     * but it can't be split between threads.
+     *
+     * @param snapshot snapshot of the graph
+     * @param sources  dense indices of the starting nodes
+     * @param forward  True to follow the edges, false to follow them backwards
+     * @return the dense indices of the reachable nodes, sources included
+     */
+    public BitSet reachable(GraphSnapshot snapshot, int[] sources, boolean forward) {
+        CompressedGraph graph = snapshot.getStructure();
+        return run(() -> {
+            AtomicIntegerArray visited = new AtomicIntegerArray(graph.getNumNodes());
+            IntList claimed = new IntList(sources.length);
+            for (int source : sources) {
+                if (visited.compareAndSet(source, 0, 1))
+                    claimed.add(source);
+            }
+            int[] order = FrontierExpansion.traverse(graph, claimed.toArray(), forward,
+                    node -> visited.compareAndSet(node, 0, 1)).toArray();
+            BitSet result = new BitSet(graph.getNumNodes());
+            for (int node : order) {
+                result.set(node);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * It finds the weakly connected components of the graph, ignoring the direction of the edges
+     *
+     * @param snapshot snapshot of the graph
+     * @return for each dense index the label of its component, nodes in the same component have the same label
+     */
+    public int[] connectedComponents(GraphSnapshot snapshot) {
+        CompressedGraph graph = snapshot.getStructure();
+        return run(() -> new ConnectedComponents(graph).compute());
+    }
+
+    /**
+     * It finds the strongly connected components of the graph
+     *
+     * @param snapshot snapshot of the graph
+     * @return for each dense index the label of its component, nodes in the same component have the same label
+     */
+    public int[] stronglyConnectedComponents(GraphSnapshot snapshot) {
+        CompressedGraph graph = snapshot.getStructure();
+        return run(() -> new StronglyConnectedComponents(graph).compute());
+    }
+
+    /**
+     * It sorts the nodes so that every edge goes from a node to a later one (Kahn's algorithm).
+     * All the nodes without incoming edges left form a level, every level is expanded in parallel.
+     * The nodes that are part of a cycle, or reachable from one, can't be sorted and are left out.
+     *
+     * @param snapshot snapshot of the graph
+     * @return the dense indices of the sorted nodes, shorter than the number of nodes if the graph has cycles
+     */
+    public int[] topologicalOrder(GraphSnapshot snapshot) {
+        CompressedGraph graph = snapshot.getStructure();
+        return run(() -> {
+            AtomicIntegerArray inDegree = new AtomicIntegerArray(graph.getNumNodes());
+            ParallelRange.forEach(graph.getNumNodes(),
+                    node -> inDegree.set(node, graph.inEnd(node) - graph.inStart(node)));
+            IntList sources = new IntList(16);
+            for (int node = 0; node < graph.getNumNodes(); node++) {
+                if (inDegree.get(node) == 0)
+                    sources.add(node);
+            }
+            return FrontierExpansion.traverse(graph, sources.toArray(), true,
+                    node -> inDegree.decrementAndGet(node) == 0).toArray();
+        });
+    }
+
+    /**
+     * It finds all the nodes that share a component with at least one of the seeds
+     *
+     * @param labels label of the component of each node
+     * @param seeds  dense indices of the seeds
+     * @return the dense indices of the nodes in the components of the seeds
+     */
+    public static BitSet componentsOf(int[] labels, int[] seeds) {
+        BitSet seedLabels = new BitSet();
+        for (int seed : seeds) {
+            seedLabels.set(labels[seed]);
+        }
+        BitSet result = new BitSet(labels.length);
+        for (int node = 0; node < labels.length; node++) {
+            if (seedLabels.get(labels[node]))
+                result.set(node);
+        }
+        return result;
+    }
+
+    /**
+     * It finds the dense indices of nodes of the graph
+     *
+     * @param snapshot snapshot of the graph
+     * @param nodes    nodes of the graph
+     * @return the dense indices of the nodes that were part of the graph when the snapshot was taken
+     */
+    public static int[] indicesOf(GraphSnapshot snapshot, Collection<Node> nodes) {
+        IntList indices = new IntList(nodes.size());
+        for (Node node : nodes) {
+            int index = snapshot.getStructure().indexOf(node);
+            if (index != -1)
+                indices.add(index);
+        }
+        return indices.toArray();
+    }
+
+    /**
+     * It finds the nodes of the graph of a set of dense indices
+     *
+     * @param snapshot snapshot of the graph
+     * @param indices  dense indices of the nodes
+     * @return the nodes, ordered by dense index
+     */
+    public static List<Node> nodesOf(GraphSnapshot snapshot, BitSet indices) {
+        ArrayList<Node> nodes = new ArrayList<>(indices.cardinality());
+        for (int index = indices.nextSetBit(0); index >= 0; index = indices.nextSetBit(index + 1)) {
+            nodes.add(snapshot.getNode(index));
+        }
+        return nodes;
+    }
+
+    /**
+     * It finds the nodes of the graph of a sequence of dense indices
+     *
+     * @param snapshot snapshot of the graph
+     * @param indices  dense indices of the nodes
+     * @return the nodes, in the same order as the indices
+     */
+    public static List<Node> nodesOf(GraphSnapshot snapshot, int[] indices) {
+        ArrayList<Node> nodes = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            nodes.add(snapshot.getNode(index));
+        }
+        return nodes;
+    }
+
+    /**
+     * It runs the algorithm on a thread of the pool and waits for its result
+     *
+     * @param algorithm algorithm to be run
+     * @param <T>       type of the result
+     * @return the result of the algorithm
+     */
+    private <T> T run(Callable<T> algorithm) {
+        return pool.invoke(ForkJoinTask.adapt(algorithm));
+    }
+}
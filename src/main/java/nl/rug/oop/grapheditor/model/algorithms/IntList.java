@@ -0,0 +1,60 @@
+package nl.rug.oop.grapheditor.model.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * IntList is a growable array of ints, used to collect dense indices without boxing them
+ */
+class IntList {
+    private int[] values;
+    private int size;
+
+    /**
+     * Constructor for an empty list
+     *
+     * @param capacity initial capacity of the list
+     */
+    IntList(int capacity) {
+        values = new int[Math.max(capacity, 4)];
+        size = 0;
+    }
+
+    /**
+     * It adds a value at the end of the list
+     *
+     * @param value value to be added
+     */
+    void add(int value) {
+        if (size == values.length)
+            values = Arrays.copyOf(values, size * 2);
+        values[size++] = value;
+    }
+
+    /**
+     * It adds all the values of an array at the end of the list
+     *
+     * @param array values to be added
+     */
+    void addAll(int[] array) {
+        if (size + array.length > values.length)
+            values = Arrays.copyOf(values, Math.max(size + array.length, size * 2));
+        System.arraycopy(array, 0, values, size, array.length);
+        size += array.length;
+    }
+
+    /**
+     * Getter for the number of values in the list
+     *
+     * @return number of values
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return a copy of the values, with the length of the list
+     */
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
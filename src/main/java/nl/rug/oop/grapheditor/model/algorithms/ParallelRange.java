@@ -0,0 +1,52 @@
+package nl.rug.oop.grapheditor.model.algorithms;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * ParallelRange runs an action on every index of a range, splitting the range in halves
+ * until the pieces are small enough to be run by a single thread
+ */
+class ParallelRange extends RecursiveAction {
+    private static final int GRAIN = 4096;
+
+    private final int start;
+    private final int end;
+    private final IntConsumer action;
+
+    /**
+     * Constructor for a piece of the range
+     *
+     * @param start  first index, inclusive
+     * @param end    last index, exclusive
+     * @param action action to be run on every index
+     */
+    private ParallelRange(int start, int end, IntConsumer action) {
+        this.start = start;
+        this.end = end;
+        this.action = action;
+    }
+
+    /**
+     * It runs the action on every index from 0 to size.
+     * It must be called by a thread of a fork-join pool.
+     *
+     * @param size   number of indices
+     * @param action action to be run on every index, possibly by different threads at the same time
+     */
+    static void forEach(int size, IntConsumer action) {
+        new ParallelRange(0, size, action).invoke();
+    }
+
+    @Override
+    protected void compute() {
+        if (end - start <= GRAIN) {
+            for (int i = start; i < end; i++) {
+                action.accept(i);
+            }
+            return;
+        }
+        int middle = (start + end) >>> 1;
+        invokeAll(new ParallelRange(start, middle, action), new ParallelRange(middle, end, action));
+    }
+}
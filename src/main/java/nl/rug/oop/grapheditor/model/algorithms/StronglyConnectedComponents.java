@@ -0,0 +1,196 @@
+package nl.rug.oop.grapheditor.model.algorithms;
+
+import nl.rug.oop.grapheditor.model.CompressedGraph;
+
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * StronglyConnectedComponents finds the strongly connected components of a graph with the forward-backward algorithm.
+ * The nodes reached both forward and backward from a pivot are a component, the nodes reached only forward,
+ * only backward or not reached at all are three independent subproblems that are solved in parallel.
+ * Before choosing a pivot, the nodes without incoming or outgoing edges inside the subproblem are trimmed
+ * as components of a single node, which removes the long chains that would make the subproblems very unbalanced.
+ * Every subproblem has a label of its own, a node belongs to the subproblem whose label it has.
+ */
+class StronglyConnectedComponents {
+    private static final int DONE = -1;
+
+    private final CompressedGraph graph;
+    private final AtomicIntegerArray labels;
+    private final int[] components;
+    private final int[] inCount;
+    private final int[] outCount;
+    private final AtomicInteger nextLabel;
+    private final AtomicInteger nextComponent;
+
+    /**
+     * Constructor for the components of a graph, all the nodes start in the same subproblem
+     *
+     * @param graph structure of the graph
+     */
+    StronglyConnectedComponents(CompressedGraph graph) {
+        this.graph = graph;
+        int numNodes = graph.getNumNodes();
+        labels = new AtomicIntegerArray(numNodes);
+        components = new int[numNodes];
+        inCount = new int[numNodes];
+        outCount = new int[numNodes];
+        nextLabel = new AtomicInteger(1);
+        nextComponent = new AtomicInteger(0);
+    }
+
+    /**
+     * It computes the components. It must be called by a thread of a fork-join pool.
+     *
+     * @return for each node the number of its component, from 0 to the number of components
+     */
+    int[] compute() {
+        int[] all = new int[graph.getNumNodes()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        new Subproblem(null, all, 0).invoke();
+        return components;
+    }
+
+    /**
+     * A set of nodes that contains every component it intersects.
+     * The children are forked without waiting for them, so a long series of subproblems
+     * doesn't grow the stack: the root completes when all its descendants have completed.
+     */
+    private class Subproblem extends CountedCompleter<Void> {
+        private final int[] nodes;
+        private final int label;
+
+        private Subproblem(CountedCompleter<?> parent, int[] nodes, int label) {
+            super(parent);
+            this.nodes = nodes;
+            this.label = label;
+        }
+
+        @Override
+        public void compute() {
+            int[] remaining = trim(nodes, label);
+            if (remaining.length > 0)
+                split(remaining);
+            tryComplete();
+        }
+
+        /**
+         * It takes out the component of the first node and forks the three subproblems left
+         *
+         * @param remaining nodes of the subproblem after trimming
+         */
+        private void split(int[] remaining) {
+            int pivot = remaining[0];
+            int forwardLabel = nextLabel.getAndIncrement();
+            labels.set(pivot, forwardLabel);
+            FrontierExpansion.traverse(graph, new int[]{pivot}, true,
+                    node -> labels.compareAndSet(node, label, forwardLabel));
+
+            int component = nextComponent.getAndIncrement();
+            int backwardLabel = nextLabel.getAndIncrement();
+            labels.set(pivot, DONE);
+            components[pivot] = component;
+            FrontierExpansion.traverse(graph, new int[]{pivot}, false, node -> {
+                if (labels.compareAndSet(node, forwardLabel, DONE)) {
+                    components[node] = component;
+                    return true;
+                }
+                return labels.compareAndSet(node, label, backwardLabel);
+            });
+
+            IntList forward = new IntList(16);
+            IntList backward = new IntList(16);
+            IntList rest = new IntList(16);
+            for (int node : remaining) {
+                int nodeLabel = labels.get(node);
+                if (nodeLabel == forwardLabel)
+                    forward.add(node);
+                else if (nodeLabel == backwardLabel)
+                    backward.add(node);
+                else if (nodeLabel == label)
+                    rest.add(node);
+            }
+            fork(forward, forwardLabel);
+            fork(backward, backwardLabel);
+            fork(rest, label);
+        }
+
+        /**
+         * It forks a child subproblem, if it is not empty
+         *
+         * @param childNodes nodes of the child
+         * @param childLabel label of the child
+         */
+        private void fork(IntList childNodes, int childLabel) {
+            if (childNodes.size() == 0)
+                return;
+            addToPendingCount(1);
+            new Subproblem(this, childNodes.toArray(), childLabel).fork();
+        }
+    }
+
+    /**
+     * It removes, as components of a single node, the nodes that have no incoming or no outgoing edges
+     * inside the subproblem, again and again until there are none left
+     *
+     * @param nodes nodes of the subproblem
+     * @param label label of the subproblem
+     * @return the nodes left in the subproblem
+     */
+    private int[] trim(int[] nodes, int label) {
+        ParallelRange.forEach(nodes.length, i -> {
+            int node = nodes[i];
+            int in = 0;
+            for (int position = graph.inStart(node); position < graph.inEnd(node); position++) {
+                if (labels.get(graph.source(position)) == label)
+                    in++;
+            }
+            int out = 0;
+            for (int position = graph.outStart(node); position < graph.outEnd(node); position++) {
+                if (labels.get(graph.target(position)) == label)
+                    out++;
+            }
+            inCount[node] = in;
+            outCount[node] = out;
+        });
+
+        IntList queue = new IntList(16);
+        for (int node : nodes) {
+            if (inCount[node] == 0 || outCount[node] == 0)
+                queue.add(node);
+        }
+        int[] pending = queue.toArray();
+        while (pending.length > 0) {
+            IntList next = new IntList(16);
+            for (int node : pending) {
+                //a node can be queued twice, once for each count
+                if (labels.get(node) != label)
+                    continue;
+                labels.set(node, DONE);
+                components[node] = nextComponent.getAndIncrement();
+                for (int position = graph.outStart(node); position < graph.outEnd(node); position++) {
+                    int target = graph.target(position);
+                    if (labels.get(target) == label && --inCount[target] == 0)
+                        next.add(target);
+                }
+                for (int position = graph.inStart(node); position < graph.inEnd(node); position++) {
+                    int source = graph.source(position);
+                    if (labels.get(source) == label && --outCount[source] == 0)
+                        next.add(source);
+                }
+            }
+            pending = next.toArray();
+        }
+
+        IntList remaining = new IntList(nodes.length);
+        for (int node : nodes) {
+            if (labels.get(node) == label)
+                remaining.add(node);
+        }
+        return remaining.toArray();
+    }
+}
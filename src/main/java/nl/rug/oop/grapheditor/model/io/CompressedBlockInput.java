@@ -0,0 +1,126 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * CompressedBlockInput reads the stream written by CompressedBlockOutput. The blocks are read
+ * and decompressed one at a time, when the stream needs them, and their checksum is verified.
+ */
+class CompressedBlockInput {
+    private final ReadableByteChannel channel;
+    private final byte[] block;
+    private int position;
+    private int limit;
+    private final Inflater inflater;
+    private byte[] compressed;
+    private final ByteBuffer frame;
+    private final CRC32 crc;
+
+    /**
+     * Constructor for an input
+     *
+     * @param channel channel of the blocks, positioned at the first one; it is not closed by the input
+     */
+    CompressedBlockInput(ReadableByteChannel channel) {
+        this.channel = channel;
+        block = new byte[GraphCompressedFormat.BLOCK_SIZE];
+        inflater = new Inflater();
+        compressed = new byte[GraphCompressedFormat.BLOCK_SIZE];
+        frame = ByteBuffer.allocate(GraphCompressedFormat.FRAME_HEADER_SIZE).order(GraphCompressedFormat.ORDER);
+        crc = new CRC32();
+    }
+
+    /**
+     * It reads an unsigned int written by writeVarint
+     *
+     * @return the int
+     * @throws IOException if a block can't be read or if the int is too long
+     */
+    int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (position == limit)
+                readBlock();
+            byte b = block[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IOException("Invalid variable-length int");
+    }
+
+    /**
+     * It reads bytes of the stream, which can be split across blocks
+     *
+     * @param bytes  array receiving the bytes
+     * @param offset index of the first byte
+     * @param length number of bytes
+     * @throws IOException if a block can't be read
+     */
+    void readBytes(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == limit)
+                readBlock();
+            int copied = Math.min(length, limit - position);
+            System.arraycopy(block, position, bytes, offset, copied);
+            position += copied;
+            offset += copied;
+            length -= copied;
+        }
+    }
+
+    /**
+     * It releases the decompressor, it must be called once the stream has been read
+     */
+    void finish() {
+        inflater.end();
+    }
+
+    /**
+     * It reads the next block and its frame, decompresses it and checks its checksum
+     *
+     * @throws IOException if the block can't be read or if it is damaged
+     */
+    private void readBlock() throws IOException {
+        frame.clear();
+        readFully(frame);
+        frame.flip();
+        int size = frame.getInt();
+        int compressedSize = frame.getInt();
+        int checksum = frame.getInt();
+        if (size <= 0 || size > block.length || compressedSize < 0
+                || compressedSize > GraphCompressedFormat.MAX_COMPRESSED_SIZE)
+            throw new IOException("Invalid compressed block");
+        if (compressedSize > compressed.length)
+            compressed = new byte[compressedSize];
+        readFully(ByteBuffer.wrap(compressed, 0, compressedSize));
+
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedSize);
+        try {
+            if (inflater.inflate(block, 0, size) != size || !inflater.finished())
+                throw new IOException("Damaged compressed block");
+        } catch (DataFormatException e) {
+            throw new IOException("Damaged compressed block", e);
+        }
+        crc.reset();
+        crc.update(block, 0, size);
+        if ((int) crc.getValue() != checksum)
+            throw new IOException("Damaged compressed block");
+        position = 0;
+        limit = size;
+    }
+
+    private void readFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes) == -1)
+                throw new EOFException("The file has ended before the graph");
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * CompressedBlockOutput writes a stream of variable-length integers and bytes in compressed blocks,
+ * described by GraphCompressedFormat. The stream is collected in a block, which is compressed and written
+ * through the channel with its frame as soon as it is full, so only one block is ever in memory.
+ */
+class CompressedBlockOutput {
+    //the longest variable-length int
+    private static final int MAX_VARINT_LENGTH = 5;
+
+    private final WritableByteChannel channel;
+    private final byte[] block;
+    private int size;
+    private final Deflater deflater;
+    private byte[] compressed;
+    private final ByteBuffer frame;
+    private final CRC32 crc;
+
+    /**
+     * Constructor for an output
+     *
+     * @param channel channel receiving the blocks, it is not closed by the output
+     */
+    CompressedBlockOutput(WritableByteChannel channel) {
+        this.channel = channel;
+        block = new byte[GraphCompressedFormat.BLOCK_SIZE];
+        deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        compressed = new byte[GraphCompressedFormat.BLOCK_SIZE];
+        frame = ByteBuffer.allocate(GraphCompressedFormat.FRAME_HEADER_SIZE).order(GraphCompressedFormat.ORDER);
+        crc = new CRC32();
+    }
+
+    /**
+     * It writes an unsigned int in as many bytes as needed, seven bits in each byte,
+     * the highest bit of a byte telling if another byte follows
+     *
+     * @param value the int, seen as unsigned
+     * @throws IOException if a block can't be written
+     */
+    void writeVarint(int value) throws IOException {
+        if (block.length - size < MAX_VARINT_LENGTH)
+            writeBlock();
+        while ((value & ~0x7F) != 0) {
+            block[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        block[size++] = (byte) value;
+    }
+
+    /**
+     * It writes bytes in the stream, they can be split across blocks
+     *
+     * @param bytes  array with the bytes
+     * @param offset index of the first byte
+     * @param length number of bytes
+     * @throws IOException if a block can't be written
+     */
+    void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (size == block.length)
+                writeBlock();
+            int copied = Math.min(length, block.length - size);
+            System.arraycopy(bytes, offset, block, size, copied);
+            size += copied;
+            offset += copied;
+            length -= copied;
+        }
+    }
+
+    /**
+     * It writes the last block, it must be called after the end of the stream
+     *
+     * @throws IOException if the block can't be written
+     */
+    void finish() throws IOException {
+        if (size > 0)
+            writeBlock();
+        deflater.end();
+    }
+
+    /**
+     * It compresses the block on its own and writes it with its frame
+     *
+     * @throws IOException if the block can't be written
+     */
+    private void writeBlock() throws IOException {
+        deflater.reset();
+        deflater.setInput(block, 0, size);
+        deflater.finish();
+        int compressedSize = 0;
+        while (!deflater.finished()) {
+            if (compressedSize == compressed.length)
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            compressedSize += deflater.deflate(compressed, compressedSize, compressed.length - compressedSize);
+        }
+        crc.reset();
+        crc.update(block, 0, size);
+
+        frame.clear();
+        frame.putInt(size);
+        frame.putInt(compressedSize);
+        frame.putInt((int) crc.getValue());
+        frame.flip();
+        writeFully(frame);
+        writeFully(ByteBuffer.wrap(compressed, 0, compressedSize));
+        size = 0;
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
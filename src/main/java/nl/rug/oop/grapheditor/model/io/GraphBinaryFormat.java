@@ -0,0 +1,42 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * GraphBinaryFormat describes the binary sibling of the ".graph" text format, written in ".bgraph" files.
+ * The file starts with a fixed header:
+ * the magic bytes, the version, the flags, the number of nodes, the number of edges and the length of the names.
+ * Then there is one column of little-endian ints for each attribute of the nodes, in the order of the text format
+ * (x, y, height, width), the colors when the flags say so, the end of each name inside the names,
+ * the start nodes and the end nodes of the edges and at last the names, one after the other as UTF-8 bytes.
+ * Every column can then be mapped in memory and read directly, without parsing anything.
+ */
+final class GraphBinaryFormat {
+    //a text file starts with a digit, so it can't be confused with a binary one
+    static final byte[] MAGIC = {(byte) 0x89, 'G', 'R', 'P', 'H', '\r', '\n', 0x1A};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    //the file contains the colors of the nodes
+    static final int FLAG_COLORS = 1;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private GraphBinaryFormat() {
+    }
+
+    /**
+     * It checks if some bytes are the start of a binary graph file
+     *
+     * @param start the first bytes of a file, from the position to the limit of the buffer
+     * @return True if they start with the magic bytes, false otherwise
+     */
+    static boolean isBinary(ByteBuffer start) {
+        if (start.remaining() < MAGIC.length)
+            return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (start.get(start.position() + i) != MAGIC[i])
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,109 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GraphBinaryReader reads a ".bgraph" file, described by GraphBinaryFormat. Every column of the file is
+ * mapped in memory, so the numbers are read directly from the file without parsing or copying them.
+ * Each column is mapped on its own, so the file can be bigger than a single mapping of 2 GB,
+ * but a single column can't: a graph with more than 536M nodes or edges is rejected.
+ */
+class GraphBinaryReader {
+    private final FileChannel channel;
+
+    /**
+     * Constructor for a reader
+     *
+     * @param channel channel of the file, it is not closed by the reader
+     */
+    GraphBinaryReader(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * It reads the graph, giving its size, its nodes and its edges to a builder
+     *
+     * @param builder builder receiving the graph
+     * @throws IOException if the file can't be read or if it isn't a valid graph
+     */
+    void read(GraphBuilder builder) throws IOException {
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(),
+                GraphBinaryFormat.HEADER_SIZE)).order(GraphBinaryFormat.ORDER);
+        if (header.remaining() < GraphBinaryFormat.HEADER_SIZE || !GraphBinaryFormat.isBinary(header))
+            throw new IOException("The file is not a binary graph");
+        header.position(GraphBinaryFormat.MAGIC.length);
+        int version = header.getInt();
+        int flags = header.getInt();
+        int numberNodes = header.getInt();
+        int numberEdges = header.getInt();
+        int namesLength = header.getInt();
+        if (version != GraphBinaryFormat.VERSION)
+            throw new IOException("Unknown version of the binary graph: " + version);
+        if (numberNodes < 0 || numberEdges < 0 || namesLength < 0)
+            throw new IOException("Invalid size of the graph: " + numberNodes + " " + numberEdges);
+        boolean hasColors = (flags & GraphBinaryFormat.FLAG_COLORS) != 0;
+
+        long nodeColumns = hasColors ? 6 : 5;
+        long expectedSize = GraphBinaryFormat.HEADER_SIZE + 4 * (nodeColumns * numberNodes + 2L * numberEdges)
+                + namesLength;
+        if (channel.size() != expectedSize)
+            throw new IOException("The binary graph should be " + expectedSize + " bytes long, not " + channel.size());
+
+        long position = GraphBinaryFormat.HEADER_SIZE;
+        IntBuffer x = column(position, numberNodes);
+        IntBuffer y = column(position += 4L * numberNodes, numberNodes);
+        IntBuffer height = column(position += 4L * numberNodes, numberNodes);
+        IntBuffer width = column(position += 4L * numberNodes, numberNodes);
+        IntBuffer color = null;
+        if (hasColors)
+            color = column(position += 4L * numberNodes, numberNodes);
+        IntBuffer nameEnds = column(position += 4L * numberNodes, numberNodes);
+        IntBuffer index1 = column(position += 4L * numberNodes, numberEdges);
+        IntBuffer index2 = column(position += 4L * numberEdges, numberEdges);
+        //the names are copied once, so every name is decoded from an array
+        byte[] names = new byte[namesLength];
+        channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * numberEdges, namesLength).get(names);
+
+        builder.setSize(numberNodes, numberEdges);
+        int nameStart = 0;
+        for (int i = 0; i < numberNodes; i++) {
+            int nameEnd = nameEnds.get(i);
+            if (nameEnd < nameStart || nameEnd > namesLength)
+                throw new IOException("Invalid name of the node " + i);
+            String name = new String(names, nameStart, nameEnd - nameStart, StandardCharsets.UTF_8);
+            nameStart = nameEnd;
+            if (hasColors)
+                builder.addNode(x.get(i), y.get(i), width.get(i), height.get(i), color.get(i), name);
+            else
+                builder.addNode(x.get(i), y.get(i), width.get(i), height.get(i), name);
+        }
+        if (nameStart != namesLength)
+            throw new IOException("The names are " + namesLength + " bytes long, but the nodes use " + nameStart);
+        for (int i = 0; i < numberEdges; i++) {
+            int start = index1.get(i);
+            int end = index2.get(i);
+            if (start < 0 || start >= numberNodes || end < 0 || end >= numberNodes)
+                throw new IOException("Invalid edge " + start + " " + end + " of " + numberNodes + " nodes");
+            builder.addEdge(start, end);
+        }
+    }
+
+    /**
+     * It maps a column of ints of the file
+     *
+     * @param position position of the column in the file
+     * @param length   number of ints of the column
+     * @return the column
+     * @throws IOException if the column can't be mapped, also when it is longer than a mapping can be
+     */
+    private IntBuffer column(long position, int length) throws IOException {
+        if (4L * length > Integer.MAX_VALUE)
+            throw new IOException("A column of " + length + " ints is too long to be mapped");
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * length)
+                .order(GraphBinaryFormat.ORDER).asIntBuffer();
+    }
+}
@@ -0,0 +1,148 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GraphBinaryWriter writes a graph in a ".bgraph" file, described by GraphBinaryFormat.
+ * The graph is read once for each column, which is written through a buffer reused for the whole file.
+ */
+class GraphBinaryWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructor for a writer
+     *
+     * @param channel channel receiving the file, it is not closed by the writer
+     */
+    GraphBinaryWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer = ByteBuffer.allocate(BUFFER_SIZE).order(GraphBinaryFormat.ORDER);
+    }
+
+    /**
+     * It writes the whole graph, colors of the nodes included
+     *
+     * @param graph the graph
+     * @throws IOException if the graph can't be written
+     */
+    void write(GraphSource graph) throws IOException {
+        int numberNodes = graph.getNumNodes();
+        int numberEdges = graph.getNumEdges();
+        //the length of the names is needed in the header, before the names are written
+        long namesLength = 0;
+        for (int i = 0; i < numberNodes; i++) {
+            namesLength += encodedLength(name(graph, i));
+        }
+        if (namesLength > Integer.MAX_VALUE)
+            throw new IOException("The names of the nodes are too long for a binary graph");
+
+        buffer.put(GraphBinaryFormat.MAGIC);
+        buffer.putInt(GraphBinaryFormat.VERSION);
+        buffer.putInt(GraphBinaryFormat.FLAG_COLORS);
+        buffer.putInt(numberNodes);
+        buffer.putInt(numberEdges);
+        buffer.putInt((int) namesLength);
+        while (buffer.position() < GraphBinaryFormat.HEADER_SIZE) {
+            buffer.put((byte) 0);
+        }
+
+        for (int i = 0; i < numberNodes; i++) {
+            putInt(graph.getX(i));
+        }
+        for (int i = 0; i < numberNodes; i++) {
+            putInt(graph.getY(i));
+        }
+        for (int i = 0; i < numberNodes; i++) {
+            putInt(graph.getHeight(i));
+        }
+        for (int i = 0; i < numberNodes; i++) {
+            putInt(graph.getWidth(i));
+        }
+        for (int i = 0; i < numberNodes; i++) {
+            putInt(graph.getColor(i));
+        }
+        int nameEnd = 0;
+        for (int i = 0; i < numberNodes; i++) {
+            nameEnd += encodedLength(name(graph, i));
+            putInt(nameEnd);
+        }
+        for (int source = 0; source < numberNodes; source++) {
+            for (int position = graph.outStart(source); position < graph.outEnd(source); position++) {
+                putInt(source);
+            }
+        }
+        for (int source = 0; source < numberNodes; source++) {
+            for (int position = graph.outStart(source); position < graph.outEnd(source); position++) {
+                putInt(graph.target(position));
+            }
+        }
+        for (int i = 0; i < numberNodes; i++) {
+            putName(name(graph, i));
+        }
+        flush();
+    }
+
+    private void putInt(int value) throws IOException {
+        if (buffer.remaining() < 4)
+            flush();
+        buffer.putInt(value);
+    }
+
+    /**
+     * It writes a name as UTF-8 bytes, a name made only of ASCII characters is copied without encoding it
+     *
+     * @param name the name
+     * @throws IOException if the buffer can't be written
+     */
+    private void putName(String name) throws IOException {
+        if (!isAscii(name)) {
+            flush();
+            writeFully(ByteBuffer.wrap(name.getBytes(StandardCharsets.UTF_8)));
+            return;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (!buffer.hasRemaining())
+                flush();
+            buffer.put((byte) name.charAt(i));
+        }
+    }
+
+    private static String name(GraphSource graph, int index) {
+        return String.valueOf(graph.getName(index));
+    }
+
+    private static int encodedLength(String name) {
+        return isAscii(name) ? name.length() : name.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static boolean isAscii(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) >= 0x80)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * It writes the buffer through the channel and empties it
+     *
+     * @throws IOException if the buffer can't be written
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
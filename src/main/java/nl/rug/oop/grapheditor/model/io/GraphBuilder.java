@@ -0,0 +1,52 @@
+package nl.rug.oop.grapheditor.model.io;
+
+/**
+ * GraphBuilder receives a graph while it is being read from a file, one node or edge at a time,
+ * so the graph can be built without keeping the whole file in memory first.
+ * The size is given before any node, then all the nodes are given in the order of the file
+ * and then all the edges, which refer to the nodes by their position in the file.
+ */
+public interface GraphBuilder {
+
+    /**
+     * It receives the size of the graph written at the start of the file
+     *
+     * @param numberNodes number of nodes
+     * @param numberEdges number of edges
+     */
+    void setSize(int numberNodes, int numberEdges);
+
+    /**
+     * It receives the next node of the file
+     *
+     * @param x      horizontal position of the node
+     * @param y      vertical position of the node
+     * @param width  width of the node
+     * @param height height of the node
+     * @param name   name of the node
+     */
+    void addNode(int x, int y, int width, int height, String name);
+
+    /**
+     * It receives the next node of a file that also contains the colors of the nodes.
+     * A builder that doesn't keep colors ignores the color.
+     *
+     * @param x      horizontal position of the node
+     * @param y      vertical position of the node
+     * @param width  width of the node
+     * @param height height of the node
+     * @param color  color of the node, packed as an ARGB int
+     * @param name   name of the node
+     */
+    default void addNode(int x, int y, int width, int height, int color, String name) {
+        addNode(x, y, width, height, name);
+    }
+
+    /**
+     * It receives the next edge of the file
+     *
+     * @param index1 position in the file of the start node of the edge
+     * @param index2 position in the file of the end node of the edge
+     */
+    void addEdge(int index1, int index2);
+}
@@ -0,0 +1,73 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * GraphCompressedFormat describes the compressed variant of the ".graph" format, written in ".zgraph" files.
+ * The file starts with a fixed header: the magic bytes, the version, the flags, the number of nodes
+ * and the number of edges. Then there is a stream of variable-length integers, cut in blocks that are
+ * compressed one by one, so that the file can be written and read one block at a time.
+ * Each block is framed by its length before and after the compression and by the checksum of its bytes.
+ * In the stream, every node is its x and its y as the difference from the node before,
+ * its height, its width, its color as the difference from the color before and its name as UTF-8 bytes
+ * after their number. Then every node gives the number of its outgoing edges and their end nodes, sorted,
+ * the first one as the difference from the node itself and each other as the difference from the one before.
+ * Graphs drawn by hand and big generated graphs are mostly made of small differences,
+ * which take a single byte before the compression.
+ */
+final class GraphCompressedFormat {
+    //a text file starts with a digit and a binary one has a different magic, so they can't be confused
+    static final byte[] MAGIC = {(byte) 0x89, 'G', 'R', 'P', 'H', 'Z', '\n', 0x1A};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 24;
+    //the file contains the colors of the nodes
+    static final int FLAG_COLORS = 1;
+    //bytes of the stream compressed in a block
+    static final int BLOCK_SIZE = 1 << 18;
+    //longest a block can be after the compression, when deflate can't make it shorter
+    static final int MAX_COMPRESSED_SIZE = BLOCK_SIZE + BLOCK_SIZE / 1000 + 64;
+    //length before the compression, length after the compression and checksum of a block
+    static final int FRAME_HEADER_SIZE = 12;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private GraphCompressedFormat() {
+    }
+
+    /**
+     * It checks if some bytes are the start of a compressed graph file
+     *
+     * @param start the first bytes of a file, from the position to the limit of the buffer
+     * @return True if they start with the magic bytes, false otherwise
+     */
+    static boolean isCompressed(ByteBuffer start) {
+        if (start.remaining() < MAGIC.length)
+            return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (start.get(start.position() + i) != MAGIC[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * It maps a signed int on an unsigned one, so that the numbers near 0, negative ones included,
+     * are written in few bytes: 0, -1, 1, -2, 2... become 0, 1, 2, 3, 4...
+     *
+     * @param value the signed int
+     * @return the unsigned int
+     */
+    static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * It gives back the signed int mapped by zigZag
+     *
+     * @param value the unsigned int
+     * @return the signed int
+     */
+    static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,107 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * GraphCompressedReader reads a ".zgraph" file, described by GraphCompressedFormat.
+ * The blocks are decompressed one at a time while the graph is given to the builder,
+ * so the file is never in memory as a whole.
+ */
+class GraphCompressedReader {
+    private final ReadableByteChannel channel;
+
+    /**
+     * Constructor for a reader
+     *
+     * @param channel channel of the file, positioned at its start; it is not closed by the reader
+     */
+    GraphCompressedReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * It reads the graph, giving its size, its nodes and its edges to a builder
+     *
+     * @param builder builder receiving the graph
+     * @throws IOException if the file can't be read or if it isn't a valid graph
+     */
+    void read(GraphBuilder builder) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GraphCompressedFormat.HEADER_SIZE).order(GraphCompressedFormat.ORDER);
+        while (header.hasRemaining()) {
+            if (channel.read(header) == -1)
+                throw new EOFException("The file has ended before the graph");
+        }
+        header.flip();
+        if (!GraphCompressedFormat.isCompressed(header))
+            throw new IOException("The file is not a compressed graph");
+        header.position(GraphCompressedFormat.MAGIC.length);
+        int version = header.getInt();
+        int flags = header.getInt();
+        int numberNodes = header.getInt();
+        int numberEdges = header.getInt();
+        if (version != GraphCompressedFormat.VERSION)
+            throw new IOException("Unknown version of the compressed graph: " + version);
+        if (numberNodes < 0 || numberEdges < 0)
+            throw new IOException("Invalid size of the graph: " + numberNodes + " " + numberEdges);
+        boolean hasColors = (flags & GraphCompressedFormat.FLAG_COLORS) != 0;
+
+        CompressedBlockInput in = new CompressedBlockInput(channel);
+        try {
+            builder.setSize(numberNodes, numberEdges);
+            int x = 0;
+            int y = 0;
+            int color = 0;
+            byte[] name = new byte[64];
+            for (int i = 0; i < numberNodes; i++) {
+                x += GraphCompressedFormat.unZigZag(in.readVarint());
+                y += GraphCompressedFormat.unZigZag(in.readVarint());
+                int height = GraphCompressedFormat.unZigZag(in.readVarint());
+                int width = GraphCompressedFormat.unZigZag(in.readVarint());
+                color += GraphCompressedFormat.unZigZag(in.readVarint());
+                int nameLength = in.readVarint();
+                if (nameLength < 0)
+                    throw new IOException("Invalid name of the node " + i);
+                //the name is read a block at a time, so the array grows with the bytes that are really there
+                //and not with a length that a damaged file could set to anything
+                for (int read = 0; read < nameLength; ) {
+                    int piece = Math.min(nameLength - read, GraphCompressedFormat.BLOCK_SIZE);
+                    if (read + piece > name.length)
+                        name = Arrays.copyOf(name, Math.max(read + piece, name.length * 2));
+                    in.readBytes(name, read, piece);
+                    read += piece;
+                }
+                String nodeName = new String(name, 0, nameLength, StandardCharsets.UTF_8);
+                if (hasColors)
+                    builder.addNode(x, y, width, height, color, nodeName);
+                else
+                    builder.addNode(x, y, width, height, nodeName);
+            }
+
+            long readEdges = 0;
+            for (int source = 0; source < numberNodes; source++) {
+                int degree = in.readVarint();
+                readEdges += degree;
+                if (degree < 0 || readEdges > numberEdges)
+                    throw new IOException("More edges than the " + numberEdges + " of the graph");
+                int target = source;
+                for (int i = 0; i < degree; i++) {
+                    int difference = in.readVarint();
+                    target += i == 0 ? GraphCompressedFormat.unZigZag(difference) : difference;
+                    if (target < 0 || target >= numberNodes)
+                        throw new IOException("Invalid edge " + source + " " + target
+                                + " of " + numberNodes + " nodes");
+                    builder.addEdge(source, target);
+                }
+            }
+            if (readEdges != numberEdges)
+                throw new IOException("Less edges than the " + numberEdges + " of the graph");
+        } finally {
+            in.finish();
+        }
+    }
+}
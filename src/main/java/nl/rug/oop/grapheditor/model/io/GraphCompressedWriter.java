@@ -0,0 +1,81 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * GraphCompressedWriter writes a graph in a ".zgraph" file, described by GraphCompressedFormat.
+ * The graph is read once, node after node, while the compressed blocks are written.
+ */
+class GraphCompressedWriter {
+    private final WritableByteChannel channel;
+
+    /**
+     * Constructor for a writer
+     *
+     * @param channel channel receiving the file, it is not closed by the writer
+     */
+    GraphCompressedWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * It writes the whole graph, colors of the nodes included
+     *
+     * @param graph the graph
+     * @throws IOException if the graph can't be written
+     */
+    void write(GraphSource graph) throws IOException {
+        int numberNodes = graph.getNumNodes();
+        ByteBuffer header = ByteBuffer.allocate(GraphCompressedFormat.HEADER_SIZE).order(GraphCompressedFormat.ORDER);
+        header.put(GraphCompressedFormat.MAGIC);
+        header.putInt(GraphCompressedFormat.VERSION);
+        header.putInt(GraphCompressedFormat.FLAG_COLORS);
+        header.putInt(numberNodes);
+        header.putInt(graph.getNumEdges());
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+
+        CompressedBlockOutput out = new CompressedBlockOutput(channel);
+        int x = 0;
+        int y = 0;
+        int color = 0;
+        for (int i = 0; i < numberNodes; i++) {
+            out.writeVarint(GraphCompressedFormat.zigZag(graph.getX(i) - x));
+            out.writeVarint(GraphCompressedFormat.zigZag(graph.getY(i) - y));
+            out.writeVarint(GraphCompressedFormat.zigZag(graph.getHeight(i)));
+            out.writeVarint(GraphCompressedFormat.zigZag(graph.getWidth(i)));
+            out.writeVarint(GraphCompressedFormat.zigZag(graph.getColor(i) - color));
+            x = graph.getX(i);
+            y = graph.getY(i);
+            color = graph.getColor(i);
+            byte[] name = String.valueOf(graph.getName(i)).getBytes(StandardCharsets.UTF_8);
+            out.writeVarint(name.length);
+            out.writeBytes(name, 0, name.length);
+        }
+
+        int[] targets = new int[16];
+        for (int source = 0; source < numberNodes; source++) {
+            int degree = graph.outEnd(source) - graph.outStart(source);
+            if (degree > targets.length)
+                targets = new int[Math.max(degree, targets.length * 2)];
+            for (int i = 0; i < degree; i++) {
+                targets[i] = graph.target(graph.outStart(source) + i);
+            }
+            //sorted, the end nodes are close to each other and their differences are small
+            Arrays.sort(targets, 0, degree);
+            out.writeVarint(degree);
+            int previous = source;
+            for (int i = 0; i < degree; i++) {
+                out.writeVarint(i == 0 ? GraphCompressedFormat.zigZag(targets[i] - previous) : targets[i] - previous);
+                previous = targets[i];
+            }
+        }
+        out.finish();
+    }
+}
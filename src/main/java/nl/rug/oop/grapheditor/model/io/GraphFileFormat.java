@@ -3,7 +3,10 @@ package nl.rug.oop.grapheditor.model.io;
 import java.awt.*;
 import java.util.ArrayList;
 
-public class GraphFileFormat {
+/**
+ * GraphFileFormat keeps all the data of a ".graph" file in memory, in the order of the file
+ */
+public class GraphFileFormat implements GraphBuilder {
     private final ArrayList<Point> coordinates;
     private final ArrayList<Dimension> dimensions;
     private final ArrayList<String> names;
@@ -42,6 +45,25 @@ public class GraphFileFormat {
         this.numberEdges = numberEdges;
     }
 
+    @Override
+    public void setSize(int numberNodes, int numberEdges) {
+        setNumberNodes(numberNodes);
+        setNumberEdges(numberEdges);
+    }
+
+    @Override
+    public void addNode(int x, int y, int width, int height, String name) {
+        addPoint(new Point(x, y));
+        addDimension(new Dimension(width, height));
+        addName(name);
+    }
+
+    @Override
+    public void addEdge(int index1, int index2) {
+        addIndex1Edge(index1);
+        addIndex2Edge(index2);
+    }
+
     /**
      * Adds a point to the points arraylist in graph file format
      *
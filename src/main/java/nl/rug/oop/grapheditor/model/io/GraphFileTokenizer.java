@@ -0,0 +1,144 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * GraphFileTokenizer splits a .graph file in the words separated by white space, reading the bytes
+ * of the file through a channel in big blocks. Numbers are parsed directly from the bytes, without creating
+ * a string or using regular expressions like a Scanner does, and a string is created only for the names.
+ * A word that continues in the next block is moved to the start of the buffer before the next block is read.
+ */
+class GraphFileTokenizer {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfFile;
+    private int wordStart;
+    private int wordEnd;
+
+    /**
+     * Constructor for a tokenizer reading from a channel
+     *
+     * @param channel channel of the file, it is not closed by the tokenizer
+     */
+    GraphFileTokenizer(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer = new byte[BUFFER_SIZE];
+    }
+
+    /**
+     * It reads the next word as an integer
+     *
+     * @return the integer
+     * @throws IOException if the file can't be read, if it has ended or if the word is not an integer
+     */
+    int nextInt() throws IOException {
+        nextWord();
+        int i = wordStart;
+        boolean negative = buffer[i] == '-';
+        if (negative || buffer[i] == '+')
+            i++;
+        if (i == wordEnd)
+            throw notANumber();
+        //the number is accumulated as a negative one, which also fits the smallest integer
+        int value = 0;
+        for (; i < wordEnd; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || value < (Integer.MIN_VALUE + digit) / 10)
+                throw notANumber();
+            value = value * 10 - digit;
+        }
+        if (negative)
+            return value;
+        if (value == Integer.MIN_VALUE)
+            throw notANumber();
+        return -value;
+    }
+
+    /**
+     * It reads the next word as a string
+     *
+     * @return the word
+     * @throws IOException if the file can't be read or if it has ended
+     */
+    String next() throws IOException {
+        nextWord();
+        return new String(buffer, wordStart, wordEnd - wordStart, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * It finds the next word, which is then between the word start and the word end in the buffer
+     *
+     * @throws IOException if the file can't be read or if it has ended
+     */
+    private void nextWord() throws IOException {
+        while (true) {
+            while (position < limit && isSpace(buffer[position])) {
+                position++;
+            }
+            if (position < limit)
+                break;
+            if (!fill(position))
+                throw new EOFException("The file has ended before the graph");
+        }
+        wordStart = position;
+        while (true) {
+            while (position < limit && !isSpace(buffer[position])) {
+                position++;
+            }
+            if (position < limit || !fill(wordStart))
+                break;
+        }
+        wordEnd = position;
+    }
+
+    /**
+     * It reads the next block of the file, keeping in the buffer the bytes from a given index on
+     *
+     * @param keep index of the first byte to be kept
+     * @return True if some bytes have been read, false if the file has ended
+     * @throws IOException if the file can't be read
+     */
+    private boolean fill(int keep) throws IOException {
+        if (endOfFile)
+            return false;
+        int kept = limit - keep;
+        //a word longer than the buffer makes it grow
+        if (kept == buffer.length)
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        else
+            System.arraycopy(buffer, keep, buffer, 0, kept);
+        position -= keep;
+        wordStart -= keep;
+        limit = kept;
+
+        ByteBuffer target = ByteBuffer.wrap(buffer, limit, buffer.length - limit);
+        int read;
+        do {
+            read = channel.read(target);
+        } while (read == 0);
+        if (read == -1) {
+            endOfFile = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    private IOException notANumber() {
+        return new IOException("\"" + new String(buffer, wordStart, wordEnd - wordStart, StandardCharsets.UTF_8)
+                + "\" is not a number");
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+    }
+}
@@ -2,25 +2,39 @@ package nl.rug.oop.grapheditor.model.io;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
-import java.awt.*;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * GraphLoader is responsible to allow to choose a .graph file to be loaded. It contains all the necessary
- * to allow the user to choose a file by a GUI(chooser) and read the file(scanner)
+ * to allow the user to choose a file by a GUI(chooser) and read the file(tokenizer)
  */
 public class GraphLoader {
-    private Scanner scanner;
-    private final JFileChooser chooser;
+    //text files from this size on are parsed in parallel, if the pool has more than one thread
+    private static final long PARALLEL_THRESHOLD = 1 << 24;
+
+    private final ForkJoinPool pool;
+    private JFileChooser chooser;
 
     /**
-     * Constructor to initialize and configure the file chooser and
+     * Constructor for the loader, the file chooser is created and configured only when a file has to be chosen,
+     * so loading a file from a path doesn't need a screen. Big text files are parsed on the common fork-join pool.
      */
     public GraphLoader() {
-        chooser = new JFileChooser();
-        chooserSetting();
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for a loader that parses big text files on a given pool
+     *
+     * @param pool pool parsing big text files
+     */
+    public GraphLoader(ForkJoinPool pool) {
+        this.pool = pool;
     }
 
     /**
@@ -32,7 +46,7 @@ public class GraphLoader {
         chooser.setCurrentDirectory(new File("."));
 
         FileNameExtensionFilter filter = new FileNameExtensionFilter(
-                "Graph Files", "graph");
+                "Graph Files", "graph", "bgraph", "zgraph");
         chooser.setAcceptAllFileFilterUsed(false);
         chooser.setFileFilter(filter);
     }
@@ -44,6 +58,10 @@ public class GraphLoader {
      * @return It returns a File instance, that is the chosen file.
      */
     private File takeGraphFile() {
+        if (chooser == null) {
+            chooser = new JFileChooser();
+            chooserSetting();
+        }
         int returnVal = chooser.showOpenDialog(null);
         if (returnVal == JFileChooser.APPROVE_OPTION) {
             return chooser.getSelectedFile();
@@ -52,10 +70,11 @@ public class GraphLoader {
     }
 
     /**
-     * Check if the path to the file has the .graph extension
+     * Check if the path to the file has the .graph extension, or the .bgraph one of the binary files
+     * or the .zgraph one of the compressed files
      *
      * @param path path of the graph that needs to be checked
-     * @return True if the path is for a file with extension .graph
+     * @return True if the path is for a file with extension .graph, .bgraph or .zgraph
      * otherwise False
      */
     private boolean isAGraphFile(String path) {
@@ -67,7 +86,8 @@ public class GraphLoader {
             extension = path.substring(path.lastIndexOf("."));
         }
 
-        return indexDot != -1 && extension.equals(".graph");
+        return indexDot != -1 && (extension.equals(".graph") || extension.equals(".bgraph")
+                || extension.equals(".zgraph"));
     }
 
     /**
@@ -80,7 +100,7 @@ public class GraphLoader {
     private File takeGraphFile(String path) {
 
         if (!isAGraphFile(path)) {
-            System.out.println("You can read only .graph file, " +
+            System.out.println("You can read only .graph, .bgraph or .zgraph file, " +
                     "please try again with a different file." +
                     "\nDon't forget to quote the path on the CLI.");
             return null;
@@ -90,35 +110,91 @@ public class GraphLoader {
     }
 
     /**
-     * It reads the file by the scanner and fills the graph with the edges
+     * It chooses the ".graph" file to be loaded: the one at the path if there is a path,
+     * otherwise the one chosen by the user through the file chooser
      *
-     * @param graph       GraphFileFormat to be set
-     * @param numberEdges Numbers of edges
+     * @param path path to the graph file, null to use the file chooser
+     * @return the file, null if no valid file has been chosen
      */
-    private void loadEdges(GraphFileFormat graph, int numberEdges) {
-        for (int i = 0; i < numberEdges; i++) {
-            graph.addIndex1Edge(scanner.nextInt());
-            graph.addIndex2Edge(scanner.nextInt());
+    public File chooseGraphFile(String path) {
+        //if the path of the file is not defined, use the JFileChooser
+        if (path == null) {
+            return takeGraphFile();
         }
+        return takeGraphFile(path);
     }
 
     /**
-     * It reads the file by the scanner and fills the graph with the nodes
+     * It reads a graph file, giving its size, its nodes and its edges to a builder while they are read.
+     * The format is found from the first bytes of the file, whatever its extension is:
+     * a binary file is mapped in memory and read by GraphBinaryReader, a compressed file is decompressed
+     * one block at a time by GraphCompressedReader, a text file is read through a channel
+     * by a tokenizer that parses the numbers directly from the bytes.
+     * A big text file with one node or edge per line, like the ones written by GraphSaver,
+     * is parsed in chunks on the pool by ParallelGraphParser instead.
+     * Nothing but the graph built by the builder is kept in memory.
      *
-     * @param graph       GraphFileFormat to be set
-     * @param numberNodes Numbers of nodes
+     * @param file    the file to be read
+     * @param builder builder receiving the graph
+     * @throws IOException if the file can't be read or if it isn't a valid graph
      */
-    private void loadNodes(GraphFileFormat graph, int numberNodes) {
-        int height, width;
+    public void readGraph(File file, GraphBuilder builder) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(GraphBinaryFormat.MAGIC.length);
+            while (start.hasRemaining()) {
+                if (channel.read(start) == -1)
+                    break;
+            }
+            start.flip();
+            channel.position(0);
+            if (GraphBinaryFormat.isBinary(start)) {
+                new GraphBinaryReader(channel).read(builder);
+                return;
+            }
+            if (GraphCompressedFormat.isCompressed(start)) {
+                new GraphCompressedReader(channel).read(builder);
+                return;
+            }
+            if (channel.size() >= PARALLEL_THRESHOLD && pool.getParallelism() > 1
+                    && new ParallelGraphParser(channel, pool).read(builder)) {
+                return;
+            }
+            readText(channel, builder);
+        }
+    }
+
+    /**
+     * It reads a ".graph" text file through a tokenizer, giving its size, its nodes and its edges to a builder
+     *
+     * @param channel channel of the file, from its start
+     * @param builder builder receiving the graph
+     * @throws IOException if the file can't be read or if it isn't a valid graph
+     */
+    private void readText(FileChannel channel, GraphBuilder builder) throws IOException {
+        GraphFileTokenizer tokenizer = new GraphFileTokenizer(channel);
+
+        //reading the first line
+        int numberNodes = tokenizer.nextInt();
+        int numberEdges = tokenizer.nextInt();
+        if (numberNodes < 0 || numberEdges < 0)
+            throw new IOException("Invalid size of the graph: " + numberNodes + " " + numberEdges);
+        builder.setSize(numberNodes, numberEdges);
+
         for (int i = 0; i < numberNodes; i++) {
-            Point point = new Point(scanner.nextInt(), scanner.nextInt());
-            graph.addPoint(point);
-            height = scanner.nextInt();
-            width = scanner.nextInt();
-            //notice that the file specify the height before the width but the constructor of Dimension has the opposite order
-            Dimension dimension = new Dimension(width, height);
-            graph.addDimension(dimension);
-            graph.addName(scanner.next());
+            int x = tokenizer.nextInt();
+            int y = tokenizer.nextInt();
+            //notice that the file specify the height before the width
+            int height = tokenizer.nextInt();
+            int width = tokenizer.nextInt();
+            builder.addNode(x, y, width, height, tokenizer.next());
+        }
+
+        for (int i = 0; i < numberEdges; i++) {
+            int index1 = tokenizer.nextInt();
+            int index2 = tokenizer.nextInt();
+            if (index1 < 0 || index1 >= numberNodes || index2 < 0 || index2 >= numberNodes)
+                throw new IOException("Invalid edge " + index1 + " " + index2 + " of " + numberNodes + " nodes");
+            builder.addEdge(index1, index2);
         }
     }
 
@@ -126,41 +202,26 @@ public class GraphLoader {
      * loadGraph is responsible to allow to choose a ".graph" file.
      * The file will be translated into a GraphFileFormat object.
      *
-     * @return It returns a GraphFileFormat object
+     * @param path path to the graph file, null to use the file chooser
+     * @return It returns a GraphFileFormat object, null if the file can't be loaded
      */
     public GraphFileFormat loadGraph(String path) {
-        File file;
-        GraphFileFormat graph;
-        //if the path of the file is not defined, use the JFileChooser
-        if (path == null) {
-            file = takeGraphFile();
-        } else {
-            file = takeGraphFile(path);
-        }
-
+        File file = chooseGraphFile(path);
         if (file == null) {
             return null;
         }
-
-        try {
-            scanner = new Scanner(file);
-        } catch (FileNotFoundException e) {
+        if (!file.isFile()) {
             System.out.println("The selected file doesn't exist anymore, try another file or try later ");
             return null;
         }
 
-        graph = new GraphFileFormat();
-
-        //reading the first line
-        int numberNodes = scanner.nextInt();
-        int numberEdges = scanner.nextInt();
-
-        graph.setNumberNodes(numberNodes);
-        graph.setNumberEdges(numberEdges);
-
-        loadNodes(graph, numberNodes);
-        loadEdges(graph, numberEdges);
-
+        GraphFileFormat graph = new GraphFileFormat();
+        try {
+            readGraph(file, graph);
+        } catch (IOException e) {
+            System.out.println("It hasn't been possible to load the graph, try again");
+            return null;
+        }
         return graph;
     }
 
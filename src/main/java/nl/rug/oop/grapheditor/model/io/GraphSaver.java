@@ -4,24 +4,42 @@ import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 
+/**
+ * GraphSaver is responsible to allow to choose where a graph is saved and to write it in a ".graph" file.
+ * The file is written in a temporary file next to it, which replaces the file only once it is complete,
+ * so a save that fails never leaves a half written graph.
+ */
 public class GraphSaver {
-    private FileWriter graphFile;
-    private final JFileChooser chooser;
+    private JFileChooser chooser;
+    private FileNameExtensionFilter binaryFilter;
+    private FileNameExtensionFilter compressedFilter;
 
     /**
-     * Constructor for the graph saver, creates a file chooser with our custom settings
+     * The writing of a whole file through a channel
+     */
+    private interface FileWriting {
+        void write(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * Constructor for the graph saver, the file chooser with our custom settings is created
+     * only when a file has to be chosen
      */
     public GraphSaver() {
-        chooser = new JFileChooser();
-        chooserSetting();
     }
 
     /**
-     * Settings for the file chooser, sets up .graph files as a filter
+     * Settings for the file chooser, sets up .graph files as a filter, .bgraph files for the binary format
+     * and .zgraph files for the compressed one
      */
     private void chooserSetting() {
         chooser.setCurrentDirectory(new File("."));
@@ -29,7 +47,13 @@ public class GraphSaver {
 
         FileNameExtensionFilter filter = new FileNameExtensionFilter(
                 "Graph Files", "graph");
+        binaryFilter = new FileNameExtensionFilter(
+                "Binary Graph Files", "bgraph");
+        compressedFilter = new FileNameExtensionFilter(
+                "Compressed Graph Files", "zgraph");
         chooser.setAcceptAllFileFilterUsed(false);
+        chooser.addChoosableFileFilter(binaryFilter);
+        chooser.addChoosableFileFilter(compressedFilter);
         chooser.setFileFilter(filter);
     }
 
@@ -39,6 +63,10 @@ public class GraphSaver {
      * @return the file chosen by the user
      */
     private File getSaveFile() {
+        if (chooser == null) {
+            chooser = new JFileChooser();
+            chooserSetting();
+        }
         int returnVal = chooser.showSaveDialog(null);
         if (returnVal == JFileChooser.APPROVE_OPTION) {
             return chooser.getSelectedFile();
@@ -50,72 +78,140 @@ public class GraphSaver {
 
 
     /**
-     * Method that saves all the nodes into a GraphFileFormat
+     * The file where a graph is saved: the chosen file with the .graph extension,
+     * which is added only if the name doesn't have it already
      *
-     * @param graph the graph file format object that is storing all the data
+     * @param chosen file chosen by the user
+     * @return the file where the graph is saved
+     */
+    private File graphFile(File chosen) {
+        return withExtension(chosen, ".graph");
+    }
+
+    private File withExtension(File chosen, String extension) {
+        if (chosen.getName().endsWith(extension))
+            return chosen;
+        return new File(chosen.getPath() + extension);
+    }
+
+    /**
+     * It checks if the user wants to save the graph in the binary format,
+     * by choosing its filter or by giving the file the .bgraph extension
+     *
+     * @param chosen file chosen by the user
+     * @return True if the graph has to be saved as binary, false otherwise
+     */
+    private boolean isBinaryChosen(File chosen) {
+        if (chosen.getName().endsWith(".bgraph"))
+            return true;
+        return !chosen.getName().endsWith(".zgraph") && chooser.getFileFilter() == binaryFilter;
+    }
+
+    /**
+     * It checks if the user wants to save the graph in the compressed format,
+     * by choosing its filter or by giving the file the .zgraph extension
+     *
+     * @param chosen file chosen by the user
+     * @return True if the graph has to be saved compressed, false otherwise
      */
-    private void saveNodes(GraphFileFormat graph) {
+    private boolean isCompressedChosen(File chosen) {
+        if (chosen.getName().endsWith(".zgraph"))
+            return true;
+        return !chosen.getName().endsWith(".bgraph") && chooser.getFileFilter() == compressedFilter;
+    }
+
+    /**
+     * Method that writes all the nodes
+     *
+     * @param writer writer of the file
+     * @param graph  the graph file format object that is storing all the data
+     * @throws IOException if the nodes can't be written
+     */
+    private void saveNodes(GraphTextWriter writer, GraphFileFormat graph) throws IOException {
         int numberNodes = graph.getNumberNodes();
         ArrayList<Point> coordinates = graph.getCoordinates();
         ArrayList<Dimension> dimensions = graph.getDimensions();
         ArrayList<String> names = graph.getNames();
 
         for (int i = 0; i < numberNodes; i++) {
-            try {
-                graphFile.write(coordinates.get(i).x + " ");
-                graphFile.write(coordinates.get(i).y + " ");
-                graphFile.write(dimensions.get(i).height + " ");
-                graphFile.write(dimensions.get(i).width + " ");
-                graphFile.write(names.get(i));
-                graphFile.write("\n");
-            } catch (IOException e) {
-                System.out.println("It hasn't been possible to save the graph, try again");
-            }
+            writer.writeNode(coordinates.get(i).x, coordinates.get(i).y,
+                    dimensions.get(i).width, dimensions.get(i).height, names.get(i));
         }
-
     }
 
     /**
-     * Method that saves all the edges into a GraphFileFormat
+     * Method that writes all the edges
      *
-     * @param graph the graph file format object that is storing all the data
+     * @param writer writer of the file
+     * @param graph  the graph file format object that is storing all the data
+     * @throws IOException if the edges can't be written
      */
-    private void saveEdges(GraphFileFormat graph) {
+    private void saveEdges(GraphTextWriter writer, GraphFileFormat graph) throws IOException {
         int numberEdges = graph.getNumberEdges();
         ArrayList<Integer> index1Edge = graph.getIndex1Edge();
         ArrayList<Integer> index2Edge = graph.getIndex2Edge();
 
         for (int i = 0; i < numberEdges; i++) {
-            try {
-                graphFile.write(index1Edge.get(i) + " ");
-                graphFile.write(index2Edge.get(i) + "\n");
-            } catch (IOException e) {
-                System.out.println("It hasn't been possible to save the graph, try again");
-            }
+            writer.writeEdge(index1Edge.get(i), index2Edge.get(i));
         }
+    }
 
+    /**
+     * Method that writes all the nodes, read directly from the graph
+     *
+     * @param writer writer of the file
+     * @param graph  the graph
+     * @throws IOException if the nodes can't be written
+     */
+    private void saveNodes(GraphTextWriter writer, GraphSource graph) throws IOException {
+        for (int i = 0; i < graph.getNumNodes(); i++) {
+            writer.writeNode(graph.getX(i), graph.getY(i), graph.getWidth(i), graph.getHeight(i), graph.getName(i));
+        }
     }
 
     /**
-     * Method that saves the number of edges and nodes into a GraphFileFormat
+     * Method that writes all the edges, read directly from the graph
+     *
+     * @param writer writer of the file
+     * @param graph  the graph
+     * @throws IOException if the edges can't be written
+     */
+    private void saveEdges(GraphTextWriter writer, GraphSource graph) throws IOException {
+        for (int source = 0; source < graph.getNumNodes(); source++) {
+            for (int position = graph.outStart(source); position < graph.outEnd(source); position++) {
+                writer.writeEdge(source, graph.target(position));
+            }
+        }
+    }
+
+    /**
+     * Method to save the whole graph, it asks where the graph has to be saved and writes all the data to a file
      *
      * @param graph the graph file format object that is storing all the data
      */
-    private void saveSize(GraphFileFormat graph) {
+    public void saveGraph(GraphFileFormat graph) {
+        File file = getSaveFile();
+
+        if (file == null) {
+            return;
+        }
+
         try {
-            graphFile.write(graph.getNumberNodes() + " ");
-            graphFile.write(graph.getNumberEdges() + "\n");
+            writeGraph(graphFile(file), graph);
         } catch (IOException e) {
             System.out.println("It hasn't been possible to save the graph, try again");
         }
     }
 
     /**
-     * Method to save the whole graph, writes all the data to a file
+     * Method to save the whole graph, it asks where the graph has to be saved and writes
+     * all the data to a file reading them directly from the graph.
+     * The graph is saved in the binary or in the compressed format, colors of the nodes included,
+     * if the user chooses it.
      *
-     * @param graph the graph file format object that is storing all the data
+     * @param graph the graph
      */
-    public void saveGraph(GraphFileFormat graph) {
+    public void saveGraph(GraphSource graph) {
         File file = getSaveFile();
 
         if (file == null) {
@@ -123,13 +219,130 @@ public class GraphSaver {
         }
 
         try {
-            graphFile = new FileWriter(file + ".graph");
-            saveSize(graph);
-            saveNodes(graph);
-            saveEdges(graph);
-            graphFile.close();
+            if (isBinaryChosen(file))
+                writeBinaryGraph(withExtension(file, ".bgraph"), graph);
+            else if (isCompressedChosen(file))
+                writeCompressedGraph(withExtension(file, ".zgraph"), graph);
+            else
+                writeGraph(graphFile(file), graph);
         } catch (IOException e) {
             System.out.println("It hasn't been possible to save the graph, try again");
         }
     }
+
+    /**
+     * It writes all the data of a graph file format in a ".graph" file
+     *
+     * @param file  the file, it is replaced only once the whole graph has been written
+     * @param graph the graph file format object that is storing all the data
+     * @throws IOException if the graph can't be written, the file is then left as it was
+     */
+    public void writeGraph(File file, GraphFileFormat graph) throws IOException {
+        writeAtomically(file, channel -> {
+            GraphTextWriter writer = new GraphTextWriter(channel);
+            writer.writeSize(graph.getNumberNodes(), graph.getNumberEdges());
+            saveNodes(writer, graph);
+            saveEdges(writer, graph);
+            writer.flush();
+        });
+    }
+
+    /**
+     * It writes a graph in a ".graph" file, reading the nodes and the edges directly from the graph
+     * while the file is written, so the graph is never copied
+     *
+     * @param file  the file, it is replaced only once the whole graph has been written
+     * @param graph the graph
+     * @throws IOException if the graph can't be written, the file is then left as it was
+     */
+    public void writeGraph(File file, GraphSource graph) throws IOException {
+        writeAtomically(file, channel -> {
+            GraphTextWriter writer = new GraphTextWriter(channel);
+            writer.writeSize(graph.getNumNodes(), graph.getNumEdges());
+            saveNodes(writer, graph);
+            saveEdges(writer, graph);
+            writer.flush();
+        });
+    }
+
+    /**
+     * It writes a graph in a ".bgraph" binary file, colors of the nodes included,
+     * reading the nodes and the edges directly from the graph
+     *
+     * @param file  the file, it is replaced only once the whole graph has been written
+     * @param graph the graph
+     * @throws IOException if the graph can't be written, the file is then left as it was
+     */
+    public void writeBinaryGraph(File file, GraphSource graph) throws IOException {
+        writeAtomically(file, channel -> new GraphBinaryWriter(channel).write(graph));
+    }
+
+    /**
+     * It writes a graph in a ".zgraph" compressed file, colors of the nodes included,
+     * reading the nodes and the edges directly from the graph while the compressed blocks are written
+     *
+     * @param file  the file, it is replaced only once the whole graph has been written
+     * @param graph the graph
+     * @throws IOException if the graph can't be written, the file is then left as it was
+     */
+    public void writeCompressedGraph(File file, GraphSource graph) throws IOException {
+        writeAtomically(file, channel -> new GraphCompressedWriter(channel).write(graph));
+    }
+
+    /**
+     * It writes a file in a temporary file, forces it on the disk and then renames it into the file
+     *
+     * @param file    the file, it is replaced only once it has been written completely
+     * @param writing the writing of the whole file
+     * @throws IOException if the file can't be written, the file is then left as it was
+     */
+    private void writeAtomically(File file, FileWriting writing) throws IOException {
+        Path temporary = temporaryFile(file);
+        try (FileChannel channel = openTemporary(temporary)) {
+            writing.write(channel);
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        replace(temporary, file);
+    }
+
+    /**
+     * The temporary file where a graph is written before it replaces the file.
+     * It is in the same directory, so that it can be renamed into the file.
+     *
+     * @param file the file that will be replaced
+     * @return path of the temporary file
+     */
+    private Path temporaryFile(File file) {
+        Path path = file.getAbsoluteFile().toPath();
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    private FileChannel openTemporary(Path temporary) throws IOException {
+        return FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * It renames the temporary file into the file, so that the file is either the old one or the whole new one
+     *
+     * @param temporary the temporary file, completely written
+     * @param file      the file to be replaced
+     * @throws IOException if the file can't be replaced
+     */
+    private void replace(Path temporary, File file) throws IOException {
+        try {
+            try {
+                Files.move(temporary, file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
 }
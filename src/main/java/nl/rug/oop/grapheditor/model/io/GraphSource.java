@@ -0,0 +1,73 @@
+package nl.rug.oop.grapheditor.model.io;
+
+/**
+ * GraphSource gives a graph to be written in a file, reading it directly from where it is kept
+ * without copying it first. Nodes are identified by their position in the file, from 0 to the number of nodes,
+ * and the edges of each node are in a range of positions, like in a CSR.
+ */
+public interface GraphSource {
+
+    /**
+     * @return number of nodes
+     */
+    int getNumNodes();
+
+    /**
+     * @return number of edges
+     */
+    int getNumEdges();
+
+    /**
+     * @param index position of the node
+     * @return horizontal position of the node
+     */
+    int getX(int index);
+
+    /**
+     * @param index position of the node
+     * @return vertical position of the node
+     */
+    int getY(int index);
+
+    /**
+     * @param index position of the node
+     * @return width of the node
+     */
+    int getWidth(int index);
+
+    /**
+     * @param index position of the node
+     * @return height of the node
+     */
+    int getHeight(int index);
+
+    /**
+     * @param index position of the node
+     * @return color of the node, packed as an ARGB int
+     */
+    int getColor(int index);
+
+    /**
+     * @param index position of the node
+     * @return name of the node
+     */
+    String getName(int index);
+
+    /**
+     * @param index position of the node
+     * @return first position of the outgoing edges of the node
+     */
+    int outStart(int index);
+
+    /**
+     * @param index position of the node
+     * @return position after the last outgoing edge of the node
+     */
+    int outEnd(int index);
+
+    /**
+     * @param position position of an edge
+     * @return position of the end node of the edge
+     */
+    int target(int position);
+}
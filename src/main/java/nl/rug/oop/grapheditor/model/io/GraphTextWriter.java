@@ -0,0 +1,154 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GraphTextWriter writes the lines of a .graph file. The numbers are formatted directly as bytes
+ * inside a buffer that is reused for the whole file, without creating a string for each of them,
+ * and the buffer is written through a channel only when it is full.
+ */
+class GraphTextWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    //the longest int, "-2147483648", and a separator
+    private static final int MAX_INT_LENGTH = 12;
+
+    private final WritableByteChannel channel;
+    private final byte[] buffer;
+    private final ByteBuffer wrapped;
+    private int size;
+
+    /**
+     * Constructor for a writer
+     *
+     * @param channel channel receiving the file, it is not closed by the writer
+     */
+    GraphTextWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        buffer = new byte[BUFFER_SIZE];
+        wrapped = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * It writes the first line, with the number of nodes and the number of edges
+     *
+     * @param numberNodes number of nodes
+     * @param numberEdges number of edges
+     * @throws IOException if the line can't be written
+     */
+    void writeSize(int numberNodes, int numberEdges) throws IOException {
+        writeInt(numberNodes, ' ');
+        writeInt(numberEdges, '\n');
+    }
+
+    /**
+     * It writes the line of a node
+     *
+     * @param x      horizontal position of the node
+     * @param y      vertical position of the node
+     * @param width  width of the node
+     * @param height height of the node
+     * @param name   name of the node
+     * @throws IOException if the line can't be written
+     */
+    void writeNode(int x, int y, int width, int height, String name) throws IOException {
+        writeInt(x, ' ');
+        writeInt(y, ' ');
+        //notice that the file specify the height before the width
+        writeInt(height, ' ');
+        writeInt(width, ' ');
+        writeName(String.valueOf(name));
+    }
+
+    /**
+     * It writes the line of an edge
+     *
+     * @param index1 position in the file of the start node of the edge
+     * @param index2 position in the file of the end node of the edge
+     * @throws IOException if the line can't be written
+     */
+    void writeEdge(int index1, int index2) throws IOException {
+        writeInt(index1, ' ');
+        writeInt(index2, '\n');
+    }
+
+    /**
+     * It writes an int followed by a separator
+     *
+     * @param value     the int
+     * @param separator character written after the int
+     * @throws IOException if the buffer can't be written
+     */
+    private void writeInt(int value, char separator) throws IOException {
+        if (buffer.length - size < MAX_INT_LENGTH)
+            flush();
+        //the digits are found from the last one, on a negative number so that the smallest int fits too
+        int negative = value < 0 ? value : -value;
+        int length = 1;
+        for (int rest = negative / 10; rest != 0; rest /= 10) {
+            length++;
+        }
+        if (value < 0)
+            buffer[size++] = '-';
+        int end = size + length;
+        for (int i = end - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' - negative % 10);
+            negative /= 10;
+        }
+        buffer[end] = (byte) separator;
+        size = end + 1;
+    }
+
+    /**
+     * It writes a name at the end of a line
+     *
+     * @param name the name
+     * @throws IOException if the buffer can't be written
+     */
+    private void writeName(String name) throws IOException {
+        //a name made only of ASCII characters, the usual one, is copied without encoding it
+        int length = name.length();
+        if (length < buffer.length && isAscii(name)) {
+            if (buffer.length - size < length + 1)
+                flush();
+            for (int i = 0; i < length; i++) {
+                buffer[size++] = (byte) name.charAt(i);
+            }
+        } else {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            flush();
+            writeFully(ByteBuffer.wrap(bytes));
+        }
+        if (size == buffer.length)
+            flush();
+        buffer[size++] = '\n';
+    }
+
+    private static boolean isAscii(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) >= 0x80)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * It writes the buffer through the channel and empties it, it must be called after the last line
+     *
+     * @throws IOException if the buffer can't be written
+     */
+    void flush() throws IOException {
+        wrapped.clear();
+        wrapped.limit(size);
+        writeFully(wrapped);
+        size = 0;
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * ParallelGraphParser reads a big ".graph" text file on a fork-join pool. After the first line the file is
+ * split in chunks that end at the end of a line, every chunk is mapped in memory and parsed by its own task
+ * into arrays of ints and names, and then the chunks are given to the builder in the order of the file.
+ * It is possible because a node or an edge is identified only by the position of its line:
+ * a line with four numbers and a name is a node, a line with two numbers is an edge.
+ * A file that doesn't have one node or one edge per line is left to the sequential tokenizer.
+ */
+class ParallelGraphParser {
+    private static final int CHUNK_SIZE = 1 << 22;
+    //bytes read at once while looking for the end of a line
+    private static final int WINDOW_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final ForkJoinPool pool;
+
+    /**
+     * The nodes and the edges of a chunk, in the order of the file
+     */
+    private static class Chunk {
+        //x, y, height and width of every node
+        private final IntList nodeValues = new IntList();
+        private final ArrayList<String> names = new ArrayList<>();
+        //start and end node of every edge
+        private final IntList edgeValues = new IntList();
+        private boolean nodeAfterEdge;
+
+        private int numNodes() {
+            return names.size();
+        }
+
+        private int numEdges() {
+            return edgeValues.size / 2;
+        }
+    }
+
+    /**
+     * A list of ints that grows when it is full
+     */
+    private static class IntList {
+        private int[] values = new int[1024];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * Constructor for a parser
+     *
+     * @param channel channel of the file, it is not closed by the parser
+     * @param pool    pool parsing the chunks
+     */
+    ParallelGraphParser(FileChannel channel, ForkJoinPool pool) {
+        this.channel = channel;
+        this.pool = pool;
+    }
+
+    /**
+     * It reads the graph and gives it to a builder, only once the whole file has been parsed
+     *
+     * @param builder builder receiving the graph
+     * @return True if the graph has been read, false if the file doesn't have one node or edge per line
+     * and nothing has been given to the builder
+     * @throws IOException if the file can't be read or if an edge refers to a node that doesn't exist
+     */
+    boolean read(GraphBuilder builder) throws IOException {
+        Line header = new Line(read(0, (int) Math.min(channel.size(), WINDOW_SIZE)));
+        int numberNodes = header.nextInt();
+        int numberEdges = header.nextInt();
+        if (header.failed || !header.atEnd() || header.position == header.limit
+                || numberNodes < 0 || numberEdges < 0)
+            return false;
+
+        List<Chunk> chunks = parseChunks(header.position + 1);
+        if (chunks == null)
+            return false;
+
+        //the nodes must all come before the edges, and be as many as the first line says
+        int totalNodes = 0;
+        long totalEdges = 0;
+        for (Chunk chunk : chunks) {
+            if (chunk.nodeAfterEdge || (totalEdges > 0 && chunk.numNodes() > 0))
+                return false;
+            totalNodes += chunk.numNodes();
+            totalEdges += chunk.numEdges();
+        }
+        if (totalNodes != numberNodes || totalEdges != numberEdges)
+            return false;
+
+        builder.setSize(numberNodes, numberEdges);
+        for (Chunk chunk : chunks) {
+            int[] values = chunk.nodeValues.values;
+            for (int i = 0; i < chunk.numNodes(); i++) {
+                //notice that the file specify the height before the width
+                builder.addNode(values[4 * i], values[4 * i + 1], values[4 * i + 3], values[4 * i + 2],
+                        chunk.names.get(i));
+            }
+        }
+        for (Chunk chunk : chunks) {
+            int[] values = chunk.edgeValues.values;
+            for (int i = 0; i < chunk.numEdges(); i++) {
+                int index1 = values[2 * i];
+                int index2 = values[2 * i + 1];
+                if (index1 < 0 || index1 >= numberNodes || index2 < 0 || index2 >= numberNodes)
+                    throw new IOException("Invalid edge " + index1 + " " + index2 + " of " + numberNodes + " nodes");
+                builder.addEdge(index1, index2);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * It splits the file in chunks ending at the end of a line and parses them on the pool
+     *
+     * @param start position of the first line after the first one
+     * @return the parsed chunks in the order of the file, null if a chunk doesn't have one node or edge per line
+     * @throws IOException if the file can't be read
+     */
+    private List<Chunk> parseChunks(long start) throws IOException {
+        List<Callable<Chunk>> tasks = new ArrayList<>();
+        long size = channel.size();
+        while (start < size) {
+            long end = Math.min(size, lineEnd(Math.min(size, start + CHUNK_SIZE)));
+            long chunkStart = start;
+            tasks.add(() -> parseChunk(chunkStart, end));
+            start = end;
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        for (Future<Chunk> result : pool.invokeAll(tasks)) {
+            try {
+                Chunk chunk = result.get();
+                if (chunk == null)
+                    return null;
+                chunks.add(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("The graph has not been read", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException)
+                    throw (IOException) e.getCause();
+                throw new IOException("The graph has not been read", e.getCause());
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * It finds the position after the end of the line containing a position
+     *
+     * @param position a position in the file
+     * @return the position after the next new line character, or the size of the file if there is none
+     * @throws IOException if the file can't be read
+     */
+    private long lineEnd(long position) throws IOException {
+        long size = channel.size();
+        //a chunk that would end exactly at the start of a line keeps its end
+        if (position == 0 || position >= size)
+            return position;
+        position--;
+        while (position < size) {
+            ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(WINDOW_SIZE, size - position));
+            for (int i = 0; i < window.limit(); i++) {
+                if (window.get(i) == '\n')
+                    return position + i + 1;
+            }
+            position += window.limit();
+        }
+        return size;
+    }
+
+    /**
+     * It parses the lines of a chunk of the file
+     *
+     * @param start position of the first byte of the chunk, at the start of a line
+     * @param end   position after the last byte of the chunk, at the start of a line or at the end of the file
+     * @return the nodes and the edges of the chunk, null if a line is neither a node nor an edge
+     * @throws IOException if the file can't be read
+     */
+    private Chunk parseChunk(long start, long end) throws IOException {
+        Line line = new Line(read(start, (int) (end - start)));
+        Chunk chunk = new Chunk();
+        while (line.position < line.limit) {
+            if (line.atEnd()) {
+                //an empty line
+                line.position++;
+                continue;
+            }
+            int first = line.nextInt();
+            int second = line.nextInt();
+            if (line.atEnd()) {
+                chunk.edgeValues.add(first);
+                chunk.edgeValues.add(second);
+            } else {
+                int third = line.nextInt();
+                int fourth = line.nextInt();
+                String name = line.nextWord();
+                if (name == null || !line.atEnd())
+                    return null;
+                if (chunk.numEdges() > 0)
+                    chunk.nodeAfterEdge = true;
+                chunk.nodeValues.add(first);
+                chunk.nodeValues.add(second);
+                chunk.nodeValues.add(third);
+                chunk.nodeValues.add(fourth);
+                chunk.names.add(name);
+            }
+            if (line.failed)
+                return null;
+            line.position++;
+        }
+        return chunk;
+    }
+
+    /**
+     * It copies a part of the file in an array, through a mapping of that part
+     *
+     * @param start  position of the first byte
+     * @param length number of bytes
+     * @return the bytes
+     * @throws IOException if the file can't be read
+     */
+    private byte[] read(long start, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        channel.map(FileChannel.MapMode.READ_ONLY, start, length).get(bytes);
+        return bytes;
+    }
+
+    /**
+     * A cursor on the words of the lines of an array of bytes
+     */
+    private static class Line {
+        private final byte[] bytes;
+        private final int limit;
+        private int position;
+        //set when a word read as an int is not an int
+        private boolean failed;
+
+        private Line(byte[] bytes) {
+            this.bytes = bytes;
+            limit = bytes.length;
+        }
+
+        /**
+         * It skips the spaces and checks if the line has ended, the position is then on the new line character
+         *
+         * @return True if there are no more words in the line, false otherwise
+         */
+        private boolean atEnd() {
+            while (position < limit) {
+                byte b = bytes[position];
+                if (b != ' ' && b != '\t' && b != '\r' && b != '\f')
+                    return b == '\n';
+                position++;
+            }
+            return true;
+        }
+
+        /**
+         * It reads the next word of the line as an int. If the line has ended or the word isn't an int,
+         * it marks the line as failed.
+         *
+         * @return the int, 0 if the line is failed
+         */
+        private int nextInt() {
+            if (atEnd()) {
+                failed = true;
+                return 0;
+            }
+            boolean negative = bytes[position] == '-';
+            if (negative || bytes[position] == '+')
+                position++;
+            int start = position;
+            long value = 0;
+            while (position < limit && !isSpace(bytes[position])) {
+                int digit = bytes[position++] - '0';
+                if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE) {
+                    failed = true;
+                    return 0;
+                }
+                value = value * 10 + digit;
+            }
+            if (negative)
+                value = -value;
+            if (position == start || value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+                failed = true;
+                return 0;
+            }
+            return (int) value;
+        }
+
+        /**
+         * It reads the next word of the line as a string
+         *
+         * @return the word, null if the line has ended
+         */
+        private String nextWord() {
+            if (atEnd())
+                return null;
+            int start = position;
+            while (position < limit && !isSpace(bytes[position])) {
+                position++;
+            }
+            return new String(bytes, start, position - start, StandardCharsets.UTF_8);
+        }
+
+        private static boolean isSpace(byte b) {
+            return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package nl.rug.oop.grapheditor.view;
+
+/**
+ * DetailLevel is how much of the graph is drawn at a given zoom.
+ * FULL draws the nodes with their border and name and the edges with their arrow,
+ * BOXES draws the nodes as plain rectangles and the edges as thin lines,
+ * DOTS draws how many nodes and edges there are in each small area of the panel.
+ * The level changes at a lower zoom when zooming out than when zooming in, so that a zoom
+ * close to a threshold doesn't keep switching between two levels.
+ */
+enum DetailLevel {
+    FULL(0.4, Double.POSITIVE_INFINITY),
+    BOXES(0.12, 0.5),
+    DOTS(0, 0.15);
+
+    private final double leaveBelow;
+    private final double leaveAbove;
+
+    DetailLevel(double leaveBelow, double leaveAbove) {
+        this.leaveBelow = leaveBelow;
+        this.leaveAbove = leaveAbove;
+    }
+
+    /**
+     * It finds the level for a new zoom, staying at the current level as long as the zoom is inside its range
+     *
+     * @param zoom new zoom of the view
+     * @return the level to be used
+     */
+    DetailLevel forZoom(double zoom) {
+        DetailLevel level = this;
+        while (zoom < level.leaveBelow && level.ordinal() < values().length - 1) {
+            level = values()[level.ordinal() + 1];
+        }
+        while (zoom >= level.leaveAbove && level.ordinal() > 0) {
+            level = values()[level.ordinal() - 1];
+        }
+        return level;
+    }
+}
@@ -0,0 +1,157 @@
+package nl.rug.oop.grapheditor.view;
+
+import nl.rug.oop.grapheditor.model.CompressedGraph;
+import nl.rug.oop.grapheditor.model.Node;
+
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * DragLayer splits the graph in two while nodes are being dragged: the nodes being dragged with their edges,
+ * which are drawn on every frame, and everything else, which doesn't change during the drag
+ * and is drawn only once in an image. A frame of the drag is then the image plus the nodes being dragged.
+ * The nodes connected to the nodes being dragged are drawn on every frame too, over the edges being dragged,
+ * so that those edges still end under the nodes they connect.
+ * The image must be thrown away as soon as anything else in the graph or in the view changes.
+ */
+class DragLayer {
+    private final HashSet<Node> moving;
+    private CompressedGraph graph;
+    private int[] movingNodes;
+    private int[] movingEdges;
+    private BitSet movingNodeSet;
+    private BitSet movingEdgeSet;
+    private BufferedImage image;
+    private double imageScaleX;
+    private double imageScaleY;
+
+    /**
+     * Constructor for the layers of a drag
+     *
+     * @param moving nodes being dragged
+     */
+    DragLayer(Collection<Node> moving) {
+        this.moving = new HashSet<>(moving);
+    }
+
+    /**
+     * Checks if a node is being dragged
+     *
+     * @param node node of the graph
+     * @return True if the node is being dragged
+     */
+    boolean isMoving(Node node) {
+        return moving.contains(node);
+    }
+
+    /**
+     * It finds the dense indices of the nodes being dragged and the positions of their edges in a CSR,
+     * only if the CSR is not the one of the last time
+     *
+     * @param compressed CSR of the graph
+     */
+    void update(CompressedGraph compressed) {
+        if (compressed == graph)
+            return;
+        graph = compressed;
+        movingNodeSet = new BitSet(compressed.getNumNodes());
+        movingEdgeSet = new BitSet(compressed.getNumEdges());
+        for (Node node : moving) {
+            int index = compressed.indexOf(node);
+            if (index == -1)
+                continue;
+            movingNodeSet.set(index);
+            movingEdgeSet.set(compressed.outStart(index), compressed.outEnd(index));
+            for (int position = compressed.inStart(index); position < compressed.inEnd(index); position++) {
+                movingEdgeSet.set(compressed.forwardPosition(position));
+            }
+        }
+        BitSet neighbours = new BitSet(compressed.getNumNodes());
+        for (int index = movingNodeSet.nextSetBit(0); index >= 0; index = movingNodeSet.nextSetBit(index + 1)) {
+            for (int position = compressed.outStart(index); position < compressed.outEnd(index); position++) {
+                neighbours.set(compressed.target(position));
+            }
+            for (int position = compressed.inStart(index); position < compressed.inEnd(index); position++) {
+                neighbours.set(compressed.source(position));
+            }
+        }
+        movingNodeSet.or(neighbours);
+        movingNodes = movingNodeSet.stream().toArray();
+        movingEdges = movingEdgeSet.stream().toArray();
+        image = null;
+    }
+
+    /**
+     * Getter for the dense indices of the nodes drawn on every frame: the nodes being dragged and their neighbours
+     *
+     * @return the indices, sorted
+     */
+    int[] getMovingNodes() {
+        return movingNodes;
+    }
+
+    /**
+     * Getter for the positions in the forward CSR of the edges of the nodes being dragged
+     *
+     * @return the positions, sorted
+     */
+    int[] getMovingEdges() {
+        return movingEdges;
+    }
+
+    /**
+     * Getter for the dense indices of the nodes drawn on every frame: the nodes being dragged and their neighbours
+     *
+     * @return the set of the indices
+     */
+    BitSet getMovingNodeSet() {
+        return movingNodeSet;
+    }
+
+    /**
+     * Getter for the positions in the forward CSR of the edges of the nodes being dragged
+     *
+     * @return the set of the positions
+     */
+    BitSet getMovingEdgeSet() {
+        return movingEdgeSet;
+    }
+
+    /**
+     * Getter for the image of everything that is not being dragged
+     *
+     * @param width  width of the panel in pixels of the screen
+     * @param height height of the panel in pixels of the screen
+     * @param scaleX horizontal pixels of the screen for each pixel of the panel
+     * @param scaleY vertical pixels of the screen for each pixel of the panel
+     * @return the image, null if it has to be drawn again
+     */
+    BufferedImage getImage(int width, int height, double scaleX, double scaleY) {
+        if (image != null && (image.getWidth() != width || image.getHeight() != height
+                || imageScaleX != scaleX || imageScaleY != scaleY))
+            image = null;
+        return image;
+    }
+
+    /**
+     * Setter for the image of everything that is not being dragged
+     *
+     * @param image  the image, as big as the panel on the screen
+     * @param scaleX horizontal pixels of the screen for each pixel of the panel
+     * @param scaleY vertical pixels of the screen for each pixel of the panel
+     */
+    void setImage(BufferedImage image, double scaleX, double scaleY) {
+        this.image = image;
+        imageScaleX = scaleX;
+        imageScaleY = scaleY;
+    }
+
+    /**
+     * It throws away the image, because something that is not being dragged has changed
+     */
+    void invalidate() {
+        image = null;
+    }
+}
@@ -0,0 +1,367 @@
+package nl.rug.oop.grapheditor.view;
+
+import nl.rug.oop.grapheditor.model.CompressedGraph;
+import nl.rug.oop.grapheditor.model.Node;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * EdgeIndex is a uniform grid over the edges of a graph, as they are drawn: a line between the centres
+ * of the two nodes. Every edge is stored in the cells crossed by its line, so that the edges that can be
+ * visible in a small area are found without looking at all of them.
+ * The edges are identified by their position in the forward CSR, so the index belongs to one CSR
+ * and it must be built again when the CSR changes. When a node moves, only its edges are moved in the grid.
+ * The index also keeps what is needed to draw each edge: the two ends of its line and the two lines of its arrow,
+ * so drawing an edge doesn't read its nodes or compute any angle.
+ */
+class EdgeIndex {
+    private static final int CELL_SIZE = 256;
+    private static final float ARROW_LENGTH = 15;
+    private static final float ARROW_COS = (float) Math.cos(Math.PI / 6);
+    private static final float ARROW_SIN = (float) Math.sin(Math.PI / 6);
+    //ints stored for each edge: the two ends of the line and the arrow
+    private static final int GEOMETRY_SIZE = 5;
+
+    private final CompressedGraph graph;
+    private final int[] sources;
+    private final int[] geometry;
+    private final HashMap<Long, Cell> cells;
+    private final int[] stamps;
+    private int stamp;
+    private int[] found;
+
+    /**
+     * The edges stored in a cell of the grid
+     */
+    private static class Cell {
+        private int[] positions = new int[4];
+        private int size;
+
+        private void add(int position) {
+            if (size == positions.length)
+                positions = Arrays.copyOf(positions, size * 2);
+            positions[size++] = position;
+        }
+
+        private void remove(int position) {
+            for (int i = 0; i < size; i++) {
+                if (positions[i] == position) {
+                    positions[i] = positions[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor that indexes all the edges of a CSR with the current position of the nodes
+     *
+     * @param graph CSR of the graph
+     */
+    EdgeIndex(CompressedGraph graph) {
+        this.graph = graph;
+        sources = new int[graph.getNumEdges()];
+        geometry = new int[graph.getNumEdges() * GEOMETRY_SIZE];
+        stamps = new int[graph.getNumEdges()];
+        found = new int[16];
+        cells = new HashMap<>();
+        for (int source = 0; source < graph.getNumNodes(); source++) {
+            Node start = graph.getNode(source);
+            int x1 = centerX(start);
+            int y1 = centerY(start);
+            for (int position = graph.outStart(source); position < graph.outEnd(source); position++) {
+                sources[position] = source;
+                Node end = graph.getNode(graph.target(position));
+                setGeometry(position, x1, y1, centerX(end), centerY(end));
+                addToCells(position, x1, y1, centerX(end), centerY(end));
+            }
+        }
+    }
+
+    /**
+     * Getter for the CSR indexed by this index
+     *
+     * @return the CSR of the graph
+     */
+    CompressedGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Getter for the starting node of an edge
+     *
+     * @param position position of the edge in the forward CSR
+     * @return dense index of the starting node
+     */
+    int getSource(int position) {
+        return sources[position];
+    }
+
+    /**
+     * Getter for the horizontal position of the start of the line of an edge
+     *
+     * @param position position of the edge in the forward CSR
+     * @return the horizontal position of the centre of the starting node
+     */
+    int getStartX(int position) {
+        return geometry[position * GEOMETRY_SIZE];
+    }
+
+    /**
+     * Getter for the vertical position of the start of the line of an edge
+     *
+     * @param position position of the edge in the forward CSR
+     * @return the vertical position of the centre of the starting node
+     */
+    int getStartY(int position) {
+        return geometry[position * GEOMETRY_SIZE + 1];
+    }
+
+    /**
+     * Getter for the horizontal position of the end of the line of an edge
+     *
+     * @param position position of the edge in the forward CSR
+     * @return the horizontal position of the centre of the ending node
+     */
+    int getEndX(int position) {
+        return geometry[position * GEOMETRY_SIZE + 2];
+    }
+
+    /**
+     * Getter for the vertical position of the end of the line of an edge
+     *
+     * @param position position of the edge in the forward CSR
+     * @return the vertical position of the centre of the ending node
+     */
+    int getEndY(int position) {
+        return geometry[position * GEOMETRY_SIZE + 3];
+    }
+
+    /**
+     * Getter for the arrow of an edge
+     *
+     * @param position position of the edge in the forward CSR
+     * @return the arrow packed by arrow(int, int, int, int)
+     */
+    int getArrow(int position) {
+        return geometry[position * GEOMETRY_SIZE + 4];
+    }
+
+    /**
+     * It computes the arrow of a line: two short lines starting from the middle of the line and going back
+     * at 30 degrees from it. The direction of the line is found with a square root, not with an angle,
+     * and it is turned by the sine and cosine of 30 degrees, which are computed once.
+     *
+     * @param x1 horizontal position of the start of the line
+     * @param y1 vertical position of the start of the line
+     * @param x2 horizontal position of the end of the line
+     * @param y2 vertical position of the end of the line
+     * @return the ends of the two lines of the arrow, relative to the middle of the line, packed in a byte each
+     */
+    static int arrow(int x1, int y1, int x2, int y2) {
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length == 0)
+            return 0;
+        //unit vector going back along the line
+        float backX = -dx / length;
+        float backY = -dy / length;
+        int leftX = (int) ((backX * ARROW_COS - backY * ARROW_SIN) * ARROW_LENGTH);
+        int leftY = (int) ((backX * ARROW_SIN + backY * ARROW_COS) * ARROW_LENGTH);
+        int rightX = (int) ((backX * ARROW_COS + backY * ARROW_SIN) * ARROW_LENGTH);
+        int rightY = (int) ((-backX * ARROW_SIN + backY * ARROW_COS) * ARROW_LENGTH);
+        return (leftX & 0xFF) << 24 | (leftY & 0xFF) << 16 | (rightX & 0xFF) << 8 | rightY & 0xFF;
+    }
+
+    static int arrowLeftX(int arrow) {
+        return (byte) (arrow >> 24);
+    }
+
+    static int arrowLeftY(int arrow) {
+        return (byte) (arrow >> 16);
+    }
+
+    static int arrowRightX(int arrow) {
+        return (byte) (arrow >> 8);
+    }
+
+    static int arrowRightY(int arrow) {
+        return (byte) arrow;
+    }
+
+    /**
+     * It must be called after a node has moved. It moves the edges of the node in the grid
+     * and it adds to the damage the area covered by the edges before and after the move.
+     *
+     * @param index      dense index of the node
+     * @param oldCenterX horizontal position of the centre of the node before the move
+     * @param oldCenterY vertical position of the centre of the node before the move
+     * @param reindex    False if the grid already contains the edges with the node in its new place
+     * @param damage     area to be repainted, it is enlarged
+     */
+    void nodeMoved(int index, int oldCenterX, int oldCenterY, boolean reindex, Rectangle damage) {
+        Node node = graph.getNode(index);
+        int newCenterX = centerX(node);
+        int newCenterY = centerY(node);
+        for (int position = graph.outStart(index); position < graph.outEnd(index); position++) {
+            int target = graph.target(position);
+            boolean loop = target == index;
+            Node end = graph.getNode(target);
+            int endX = loop ? oldCenterX : centerX(end);
+            int endY = loop ? oldCenterY : centerY(end);
+            moveEdge(position, oldCenterX, oldCenterY, endX, endY,
+                    newCenterX, newCenterY, centerX(end), centerY(end), reindex, damage);
+        }
+        for (int position = graph.inStart(index); position < graph.inEnd(index); position++) {
+            int source = graph.source(position);
+            //the loops have already been moved with the outgoing edges
+            if (source == index)
+                continue;
+            Node start = graph.getNode(source);
+            int startX = centerX(start);
+            int startY = centerY(start);
+            moveEdge(graph.forwardPosition(position), startX, startY, oldCenterX, oldCenterY,
+                    startX, startY, newCenterX, newCenterY, reindex, damage);
+        }
+    }
+
+    /**
+     * It finds the edges whose line crosses a cell intersecting the area, each edge only once.
+     * The edges found can be outside the area, the caller must check them if it needs to.
+     * They are sorted by position, so that they are always drawn in the same order.
+     * The edges are written in a buffer that is reused by the next search, which is returned by getFound().
+     *
+     * @param area area to be searched
+     * @return the number of edges found
+     */
+    int findEdgesIn(Rectangle area) {
+        if (++stamp == 0) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+        int size = 0;
+        for (int cellX = cell(area.x); cellX <= cell(area.x + area.width); cellX++) {
+            for (int cellY = cell(area.y); cellY <= cell(area.y + area.height); cellY++) {
+                Cell cellEdges = cells.get(key(cellX, cellY));
+                if (cellEdges == null)
+                    continue;
+                for (int i = 0; i < cellEdges.size; i++) {
+                    int position = cellEdges.positions[i];
+                    if (stamps[position] != stamp) {
+                        stamps[position] = stamp;
+                        if (size == found.length)
+                            found = Arrays.copyOf(found, size * 2);
+                        found[size++] = position;
+                    }
+                }
+            }
+        }
+        Arrays.sort(found, 0, size);
+        return size;
+    }
+
+    /**
+     * Getter for the edges found by the last search
+     *
+     * @return the buffer with the positions of the edges at its start
+     */
+    int[] getFound() {
+        return found;
+    }
+
+    /**
+     * It moves an edge from its old line to its new line and it adds both lines to the damage
+     */
+    private void moveEdge(int position, int oldX1, int oldY1, int oldX2, int oldY2,
+                          int newX1, int newY1, int newX2, int newY2, boolean reindex, Rectangle damage) {
+        if (reindex) {
+            removeFromCells(position, oldX1, oldY1, oldX2, oldY2);
+            addToCells(position, newX1, newY1, newX2, newY2);
+            setGeometry(position, newX1, newY1, newX2, newY2);
+        }
+        damage.add(oldX1, oldY1);
+        damage.add(oldX2, oldY2);
+        damage.add(newX1, newY1);
+        damage.add(newX2, newY2);
+    }
+
+    private void setGeometry(int position, int x1, int y1, int x2, int y2) {
+        int offset = position * GEOMETRY_SIZE;
+        geometry[offset] = x1;
+        geometry[offset + 1] = y1;
+        geometry[offset + 2] = x2;
+        geometry[offset + 3] = y2;
+        geometry[offset + 4] = arrow(x1, y1, x2, y2);
+    }
+
+    private void addToCells(int position, int x1, int y1, int x2, int y2) {
+        forEachCell(x1, y1, x2, y2, key -> cells.computeIfAbsent(key, k -> new Cell()).add(position));
+    }
+
+    private void removeFromCells(int position, int x1, int y1, int x2, int y2) {
+        forEachCell(x1, y1, x2, y2, key -> {
+            Cell cellEdges = cells.get(key);
+            if (cellEdges == null)
+                return;
+            cellEdges.remove(position);
+            if (cellEdges.size == 0)
+                cells.remove(key);
+        });
+    }
+
+    /**
+     * It visits the cells crossed by a line, column by column. In each column the rows are the ones
+     * between the heights of the line at the two sides of the column, rounded outwards.
+     * The sides are the real bounds of the column, the right one included, so a steep line
+     * that crosses into the next column between two integer x values still covers all its rows.
+     */
+    private void forEachCell(int x1, int y1, int x2, int y2, LongAction action) {
+        int minX = Math.min(x1, x2);
+        int maxX = Math.max(x1, x2);
+        for (int cellX = cell(minX); cellX <= cell(maxX); cellX++) {
+            long fromX = Math.max(minX, (long) cellX * CELL_SIZE);
+            long toX = Math.min(maxX, (long) (cellX + 1) * CELL_SIZE);
+            int fromY;
+            int toY;
+            if (x1 == x2) {
+                fromY = Math.min(y1, y2);
+                toY = Math.max(y1, y2);
+            } else {
+                double slope = (double) (y2 - y1) / (x2 - x1);
+                double yA = y1 + slope * (fromX - x1);
+                double yB = y1 + slope * (toX - x1);
+                fromY = (int) Math.floor(Math.min(yA, yB));
+                toY = (int) Math.ceil(Math.max(yA, yB));
+            }
+            for (int cellY = cell(fromY); cellY <= cell(toY); cellY++) {
+                action.accept(key(cellX, cellY));
+            }
+        }
+    }
+
+    /**
+     * Action on the key of a cell, without boxing it
+     */
+    private interface LongAction {
+        void accept(long key);
+    }
+
+    static int centerX(Node node) {
+        return node.getX() + node.getWidth() / 2;
+    }
+
+    static int centerY(Node node) {
+        return node.getY() + node.getHeight() / 2;
+    }
+
+    private static int cell(int coordinate) {
+        return Math.floorDiv(coordinate, CELL_SIZE);
+    }
+
+    private static long key(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+}
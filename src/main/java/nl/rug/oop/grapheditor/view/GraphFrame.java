@@ -18,9 +18,10 @@ public class GraphFrame extends JFrame {
         super("Graph Editor");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setPreferredSize(new Dimension(1440, 800));
+        GraphPanel panel = new GraphPanel(graph);
         add(new ToolMenu(graph), BorderLayout.NORTH);
-        setJMenuBar(new MenuBar(graph, this));
-        add(new GraphPanel(graph));
+        setJMenuBar(new MenuBar(graph, this, panel));
+        add(panel);
         pack();
         setLocationRelativeTo(null);
         setVisible(true);
@@ -0,0 +1,435 @@
+package nl.rug.oop.grapheditor.view;
+
+import nl.rug.oop.grapheditor.model.CompressedGraph;
+import nl.rug.oop.grapheditor.model.GraphSnapshot;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * GraphImageExporter draws a snapshot of a graph in an image file, with the same look as the panel
+ * but without any window, so it also works on a machine without a screen.
+ * The image is split in horizontal bands, and every band in tiles that are drawn in parallel on a fork-join pool.
+ * A PNG image is written band by band while the next band is being drawn, so only two bands are in memory
+ * at the same time and the size of the image is not limited by the memory.
+ * Other formats are written by ImageIO, which needs the whole image in memory.
+ * The nodes and the edges are assigned to the bands they cross before drawing, so a tile only looks
+ * at what is in its band. Nodes are drawn as not selected.
+ */
+public class GraphImageExporter {
+    private static final int TILE_WIDTH = 1024;
+    private static final int TILE_HEIGHT = 128;
+    //space left around the graph, in units of the graph
+    private static final int MARGIN = 20;
+    //ints stored for each edge: the two ends of the line and the arrow
+    private static final int GEOMETRY_SIZE = 5;
+
+    private final GraphSnapshot snapshot;
+    private final double scale;
+    private final ForkJoinPool pool;
+    private final int originX;
+    private final int originY;
+    private final int width;
+    private final int height;
+    private final int numBands;
+    private final int[] geometry;
+    private final int[] bandNodeStart;
+    private final int[] bandNodes;
+    private final int[] bandEdgeStart;
+    private final int[] bandEdges;
+
+    /**
+     * The receiver of the rows of the image, from the top to the bottom
+     */
+    private interface RowConsumer {
+        void accept(int[] pixels, int y) throws IOException;
+    }
+
+    /**
+     * Constructor for an exporter that draws on the common fork-join pool
+     *
+     * @param snapshot snapshot of the graph to be drawn
+     * @param scale    pixels of the image for each unit of the graph
+     */
+    public GraphImageExporter(GraphSnapshot snapshot, double scale) {
+        this(snapshot, scale, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for an exporter, it finds the size of the image and the bands crossed by each node and edge
+     *
+     * @param snapshot snapshot of the graph to be drawn
+     * @param scale    pixels of the image for each unit of the graph
+     * @param pool     pool drawing the tiles
+     */
+    public GraphImageExporter(GraphSnapshot snapshot, double scale, ForkJoinPool pool) {
+        if (!(scale > 0))
+            throw new IllegalArgumentException("The scale must be positive: " + scale);
+        this.snapshot = snapshot;
+        this.scale = scale;
+        this.pool = pool;
+
+        int numNodes = snapshot.getNumNodes();
+        int minX = 0;
+        int minY = 0;
+        int maxX = 0;
+        int maxY = 0;
+        for (int node = 0; node < numNodes; node++) {
+            int x = snapshot.getX(node);
+            int y = snapshot.getY(node);
+            if (node == 0) {
+                minX = x;
+                minY = y;
+                maxX = x;
+                maxY = y;
+            }
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x + snapshot.getWidth(node));
+            maxY = Math.max(maxY, y + snapshot.getHeight(node));
+        }
+        originX = minX - MARGIN;
+        originY = minY - MARGIN;
+        width = Math.max(1, (int) Math.ceil((maxX - originX + MARGIN) * scale));
+        height = Math.max(1, (int) Math.ceil((maxY - originY + MARGIN) * scale));
+        numBands = (height + TILE_HEIGHT - 1) / TILE_HEIGHT;
+
+        int[] firstBand = new int[numNodes];
+        int[] lastBand = new int[numNodes];
+        for (int node = 0; node < numNodes; node++) {
+            firstBand[node] = band(snapshot.getY(node) - 1);
+            lastBand[node] = band(snapshot.getY(node) + snapshot.getHeight(node) + 1);
+        }
+        bandNodeStart = new int[numBands + 1];
+        bandNodes = bucket(firstBand, lastBand, bandNodeStart);
+
+        CompressedGraph structure = snapshot.getStructure();
+        int numEdges = structure.getNumEdges();
+        geometry = new int[numEdges * GEOMETRY_SIZE];
+        firstBand = new int[numEdges];
+        lastBand = new int[numEdges];
+        for (int node = 0; node < numNodes; node++) {
+            int x1 = centerX(node);
+            int y1 = centerY(node);
+            for (int position = structure.outStart(node); position < structure.outEnd(node); position++) {
+                int target = structure.target(position);
+                int x2 = centerX(target);
+                int y2 = centerY(target);
+                int offset = position * GEOMETRY_SIZE;
+                geometry[offset] = x1;
+                geometry[offset + 1] = y1;
+                geometry[offset + 2] = x2;
+                geometry[offset + 3] = y2;
+                geometry[offset + 4] = EdgeIndex.arrow(x1, y1, x2, y2);
+                firstBand[position] = band(Math.min(y1, y2) - GraphPanel.EDGE_MARGIN);
+                lastBand[position] = band(Math.max(y1, y2) + GraphPanel.EDGE_MARGIN);
+            }
+        }
+        bandEdgeStart = new int[numBands + 1];
+        bandEdges = bucket(firstBand, lastBand, bandEdgeStart);
+    }
+
+    /**
+     * It exports a snapshot of a graph in a file: as an SVG drawing if the file has the svg extension,
+     * as an image otherwise
+     *
+     * @param snapshot snapshot of the graph
+     * @param scale    pixels of the image for each unit of the graph
+     * @param file     file receiving the image
+     * @throws IOException if the file can't be written
+     */
+    public static void exportFile(GraphSnapshot snapshot, double scale, File file) throws IOException {
+        if ("svg".equals(format(file)))
+            new GraphSvgExporter(snapshot, scale).export(file);
+        else
+            new GraphImageExporter(snapshot, scale).export(file);
+    }
+
+    /**
+     * Getter for the width of the image
+     *
+     * @return width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Getter for the height of the image
+     *
+     * @return height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * It writes the image in a file. The format is given by the extension of the file,
+     * PNG images are written while they are drawn, the other formats are written by ImageIO.
+     *
+     * @param file file receiving the image
+     * @throws IOException if the image can't be written, or if there is no writer for the format
+     */
+    public void export(File file) throws IOException {
+        String format = format(file);
+        if ("png".equals(format)) {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+                writePng(out);
+            }
+            return;
+        }
+        if (!ImageIO.getImageWritersBySuffix(format).hasNext())
+            throw new IOException("There is no writer for the format " + format);
+        if (!ImageIO.write(render(), format, file))
+            throw new IOException("The image can't be written as " + format);
+    }
+
+    /**
+     * It draws the image and writes it as a PNG image, one band at a time
+     *
+     * @param out stream receiving the image, it is not closed
+     * @throws IOException if the image can't be written
+     */
+    public void writePng(OutputStream out) throws IOException {
+        PngWriter png = new PngWriter(out, width, height);
+        renderRows((pixels, y) -> png.writeRow(pixels, 0));
+        png.finish();
+    }
+
+    /**
+     * It draws the whole image in memory
+     *
+     * @return the image
+     */
+    public BufferedImage render() {
+        if ((long) width * height > Integer.MAX_VALUE)
+            throw new IllegalStateException("The image is too big to be kept in memory, it can be written as PNG");
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        try {
+            renderRows((pixels, y) -> System.arraycopy(pixels, 0, data, y * width, width));
+        } catch (IOException e) {
+            //copying the rows in memory doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return image;
+    }
+
+    /**
+     * It draws the bands one after the other and it gives their rows to a consumer.
+     * The tiles of the next band are drawn while the rows of a band are being consumed.
+     *
+     * @param consumer receiver of the rows
+     * @throws IOException if the consumer can't receive a row
+     */
+    private void renderRows(RowConsumer consumer) throws IOException {
+        int[] row = new int[width];
+        List<ForkJoinTask<int[]>> next = renderBand(0);
+        for (int band = 0; band < numBands; band++) {
+            List<ForkJoinTask<int[]>> current = next;
+            next = band + 1 < numBands ? renderBand(band + 1) : null;
+
+            int bandY = band * TILE_HEIGHT;
+            int bandHeight = Math.min(TILE_HEIGHT, height - bandY);
+            int[][] tiles = new int[current.size()][];
+            for (int tile = 0; tile < tiles.length; tile++) {
+                tiles[tile] = current.get(tile).join();
+            }
+            for (int y = 0; y < bandHeight; y++) {
+                for (int tile = 0; tile < tiles.length; tile++) {
+                    int tileX = tile * TILE_WIDTH;
+                    int tileWidth = Math.min(TILE_WIDTH, width - tileX);
+                    System.arraycopy(tiles[tile], y * tileWidth, row, tileX, tileWidth);
+                }
+                consumer.accept(row, bandY + y);
+            }
+        }
+    }
+
+    /**
+     * It starts drawing the tiles of a band on the pool
+     *
+     * @param band index of the band
+     * @return the tasks drawing the tiles, from left to right, their result is the pixels of the tile
+     */
+    private List<ForkJoinTask<int[]>> renderBand(int band) {
+        int bandY = band * TILE_HEIGHT;
+        int bandHeight = Math.min(TILE_HEIGHT, height - bandY);
+        List<ForkJoinTask<int[]>> tiles = new ArrayList<>();
+        for (int tileX = 0; tileX < width; tileX += TILE_WIDTH) {
+            int x = tileX;
+            int tileWidth = Math.min(TILE_WIDTH, width - tileX);
+            tiles.add(pool.submit(() -> renderTile(band, x, bandY, tileWidth, bandHeight)));
+        }
+        return tiles;
+    }
+
+    /**
+     * It draws a tile: the background, then the edges crossing it and then the nodes on top of them,
+     * in the same order as the panel
+     *
+     * @param band       index of the band of the tile
+     * @param tileX      horizontal position of the tile in the image
+     * @param tileY      vertical position of the tile in the image
+     * @param tileWidth  width of the tile
+     * @param tileHeight height of the tile
+     * @return the pixels of the tile, row by row
+     */
+    private int[] renderTile(int band, int tileX, int tileY, int tileWidth, int tileHeight) {
+        BufferedImage tile = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = tile.createGraphics();
+        try {
+            g2d.setColor(GraphPanel.BACKGROUND_COLOR);
+            g2d.fillRect(0, 0, tileWidth, tileHeight);
+            g2d.translate(-tileX, -tileY);
+            g2d.scale(scale, scale);
+            g2d.translate(-originX, -originY);
+
+            //horizontal range of the tile in the graph
+            int minX = (int) Math.floor(tileX / scale) + originX;
+            int maxX = (int) Math.ceil((tileX + tileWidth) / scale) + originX;
+            int minY = (int) Math.floor(tileY / scale) + originY;
+            int maxY = (int) Math.ceil((tileY + tileHeight) / scale) + originY;
+            drawEdges(g2d, band, minX - GraphPanel.EDGE_MARGIN, minY - GraphPanel.EDGE_MARGIN,
+                    maxX + GraphPanel.EDGE_MARGIN, maxY + GraphPanel.EDGE_MARGIN);
+            paintNodes(g2d, band, minX - 1, maxX + 1);
+        } finally {
+            g2d.dispose();
+        }
+        return ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+    }
+
+    /**
+     * It draws the edges of a band that cross an area, first all the lines and then all the arrows
+     *
+     * @param g2d  graphics of the tile, with the transform of the graph
+     * @param band index of the band
+     * @param minX left side of the area in the graph
+     * @param minY top side of the area in the graph
+     * @param maxX right side of the area in the graph
+     * @param maxY bottom side of the area in the graph
+     */
+    private void drawEdges(Graphics2D g2d, int band, int minX, int minY, int maxX, int maxY) {
+        int[] drawn = new int[bandEdgeStart[band + 1] - bandEdgeStart[band]];
+        int numDrawn = 0;
+        for (int i = bandEdgeStart[band]; i < bandEdgeStart[band + 1]; i++) {
+            int offset = bandEdges[i] * GEOMETRY_SIZE;
+            int x1 = geometry[offset];
+            int y1 = geometry[offset + 1];
+            int x2 = geometry[offset + 2];
+            int y2 = geometry[offset + 3];
+            if (Math.max(x1, x2) < minX || Math.min(x1, x2) > maxX
+                    || Math.max(y1, y2) < minY || Math.min(y1, y2) > maxY)
+                continue;
+            drawn[numDrawn++] = offset;
+        }
+
+        g2d.setStroke(GraphPanel.EDGE_STROKE);
+        g2d.setColor(GraphPanel.EDGE_COLOR);
+        for (int i = 0; i < numDrawn; i++) {
+            int offset = drawn[i];
+            g2d.drawLine(geometry[offset], geometry[offset + 1], geometry[offset + 2], geometry[offset + 3]);
+        }
+        g2d.setColor(GraphPanel.ARROW_COLOR);
+        for (int i = 0; i < numDrawn; i++) {
+            int offset = drawn[i];
+            GraphPanel.drawArrow(g2d, geometry[offset], geometry[offset + 1],
+                    geometry[offset + 2], geometry[offset + 3], geometry[offset + 4]);
+        }
+    }
+
+    /**
+     * It paints the nodes of a band that cross a range of columns, from the last to the first one
+     * like the panel does
+     *
+     * @param g2d  graphics of the tile, with the transform of the graph
+     * @param band index of the band
+     * @param minX left side of the range in the graph
+     * @param maxX right side of the range in the graph
+     */
+    private void paintNodes(Graphics2D g2d, int band, int minX, int maxX) {
+        //a painter reuses its rectangles, so every tile needs one of its own
+        NodePainter painter = new NodePainter();
+        painter.prepare(g2d);
+        for (int i = bandNodeStart[band + 1] - 1; i >= bandNodeStart[band]; i--) {
+            int node = bandNodes[i];
+            int x = snapshot.getX(node);
+            int nodeWidth = snapshot.getWidth(node);
+            if (x + nodeWidth < minX || x > maxX)
+                continue;
+            painter.paint(g2d, x, snapshot.getY(node), nodeWidth, snapshot.getHeight(node),
+                    snapshot.getColor(node), snapshot.getName(node));
+        }
+    }
+
+    /**
+     * It finds the band containing a vertical position of the graph
+     *
+     * @param y vertical position in the graph
+     * @return index of the band, the first or the last one if the position is outside of the image
+     */
+    private int band(int y) {
+        int pixel = (int) Math.floor((y - originY) * scale);
+        return Math.max(0, Math.min(numBands - 1, pixel / TILE_HEIGHT));
+    }
+
+    /**
+     * It groups items by band, like a CSR: the items of a band are stored one after the other,
+     * in increasing order
+     *
+     * @param firstBand first band crossed by each item
+     * @param lastBand  last band crossed by each item
+     * @param start     array of the size of the number of bands plus one, it receives the start of each band
+     * @return the items of all the bands
+     */
+    private int[] bucket(int[] firstBand, int[] lastBand, int[] start) {
+        for (int item = 0; item < firstBand.length; item++) {
+            for (int band = firstBand[item]; band <= lastBand[item]; band++) {
+                start[band + 1]++;
+            }
+        }
+        for (int band = 0; band < numBands; band++) {
+            start[band + 1] += start[band];
+        }
+        int[] items = new int[start[numBands]];
+        int[] next = new int[numBands];
+        System.arraycopy(start, 0, next, 0, numBands);
+        for (int item = 0; item < firstBand.length; item++) {
+            for (int band = firstBand[item]; band <= lastBand[item]; band++) {
+                items[next[band]++] = item;
+            }
+        }
+        return items;
+    }
+
+    private int centerX(int node) {
+        return snapshot.getX(node) + snapshot.getWidth(node) / 2;
+    }
+
+    private int centerY(int node) {
+        return snapshot.getY(node) + snapshot.getHeight(node) / 2;
+    }
+
+    /**
+     * It finds the format of an image file from its extension
+     *
+     * @param file image file
+     * @return the extension in lower case, png if the file has none
+     */
+    private static String format(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot == -1 ? "png" : name.substring(dot + 1).toLowerCase();
+    }
+}
@@ -1,23 +1,72 @@
 package nl.rug.oop.grapheditor.view;
 
+import nl.rug.oop.grapheditor.controller.EdgePreviewController;
+import nl.rug.oop.grapheditor.controller.PanelController;
 import nl.rug.oop.grapheditor.controller.SelectionController;
-import nl.rug.oop.grapheditor.model.Edge;
+import nl.rug.oop.grapheditor.model.CompressedGraph;
 import nl.rug.oop.grapheditor.model.GraphModel;
 import nl.rug.oop.grapheditor.model.Node;
+import nl.rug.oop.grapheditor.model.NodeListener;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
 
 import static java.lang.Math.*;
 
-public class GraphPanel extends JPanel implements PropertyChangeListener {
+public class GraphPanel extends JPanel implements PropertyChangeListener, NodeListener {
 
-    private final Color BACKGROUND_COLOR = new Color(0x3E4C5E);
+    static final Color BACKGROUND_COLOR = new Color(0x3E4C5E);
+    private static final Color[] EDGE_DENSITY = densityColors(0x2B2B2B, BACKGROUND_COLOR.getRGB(), 0.35f);
+    private static final Color[] NODE_DENSITY = densityColors(0xD8DEE9, BACKGROUND_COLOR.getRGB(), 0.3f);
+    //half the width of an edge plus the length of its arrow
+    static final int EDGE_MARGIN = 18;
+    private static final double MIN_ZOOM = 0.01;
+    private static final double MAX_ZOOM = 8;
+    //size in pixels of the areas of the panel in which nodes and edges are counted when zoomed out
+    private static final int DOT_SIZE = 4;
+    private static final int EDGE_CELL_SIZE = 8;
+    static final Color EDGE_COLOR = new Color(0x2B2B2B);
+    static final Color ARROW_COLOR = new Color(0x0A1621);
+    static final BasicStroke EDGE_STROKE = new BasicStroke(5);
+    private static final Color SELECTED_DENSITY = new Color(0xFFFF00);
+    private static final BasicStroke THIN_STROKE = new BasicStroke(0);
+    private static final BasicStroke DENSITY_STROKE = new BasicStroke(1);
+    private static final Font METRICS_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color METRICS_BACKGROUND = new Color(0x10161E);
+    private static final Color METRICS_COLOR = new Color(0xD8DEE9);
+    //how often the overlay of the metrics is updated, in milliseconds
+    private static final int METRICS_PERIOD = 1000;
     private ArrayList<NodeLabel> nodes;
     private final GraphModel graph;
+    private final NodePainter nodePainter;
+    private final PanelController panelController;
+    private final EdgePreviewController edgePreviewController;
+    private Point edgePreviewEnd;
+    private DragLayer dragLayer;
+    private boolean paintedNodes;
+    private EdgeIndex edgeIndex;
+    private Rectangle damage;
+    //area damaged by the change of a single node, reused by every change
+    private final Rectangle nodeArea;
+    private final AffineTransform view;
+    private DetailLevel detailLevel;
+    private final Rectangle area;
+    private PanelMetrics metrics;
+    private final Timer metricsTimer;
+    private final Rectangle metricsArea;
+    private int drawnNodes;
+    private int drawnEdges;
 
     /**
      * Default Panel Constructor for the graph editor,
@@ -27,8 +76,23 @@ public class GraphPanel extends JPanel implements PropertyChangeListener {
     public GraphPanel(GraphModel graph) {
         super();
         graph.addPropertyChangeListener(this);
+        graph.addNodeListener(this);
         this.graph = graph;
         SelectionController.setGraph(graph);
+        nodeArea = new Rectangle();
+        nodePainter = new NodePainter();
+        panelController = new PanelController(graph, this);
+        edgePreviewController = new EdgePreviewController(this);
+        addMouseMotionListener(edgePreviewController);
+        view = new AffineTransform();
+        detailLevel = DetailLevel.FULL;
+        area = new Rectangle();
+        metricsArea = new Rectangle();
+        metricsTimer = new Timer(METRICS_PERIOD, e -> repaint(metricsArea));
+        paintedNodes = true;
+        addMouseListener(panelController);
+        addMouseMotionListener(panelController);
+        addMouseWheelListener(panelController);
         initPanel();
 
         panelSettings();
@@ -44,18 +108,223 @@ public class GraphPanel extends JPanel implements PropertyChangeListener {
         setOpaque(true);
     }
 
+    /**
+     * It switches between painting the nodes directly and showing a NodeLabel for each node.
+     * Painting the nodes doesn't create any component, so it scales to much bigger graphs;
+     * the mouse events are then handled by a single controller for the whole panel.
+     * The labels can't be zoomed, so the view is reset when switching to them.
+     *
+     * @param painted True to paint the nodes, false to use the labels
+     */
+    public void setPaintedNodes(boolean painted) {
+        if (painted == paintedNodes)
+            return;
+        paintedNodes = painted;
+        if (painted) {
+            addMouseListener(panelController);
+            addMouseMotionListener(panelController);
+            addMouseWheelListener(panelController);
+        } else {
+            removeMouseListener(panelController);
+            removeMouseMotionListener(panelController);
+            removeMouseWheelListener(panelController);
+            view.setToIdentity();
+            detailLevel = DetailLevel.FULL;
+        }
+        initPanel();
+        removeAll();
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * It shows or hides the metrics of the panel, drawn over the graph in the top left corner.
+     * While they are shown, the paints of the panel and the events of the graph are measured.
+     *
+     * @param shown True to measure and show the metrics
+     */
+    public void setMetricsShown(boolean shown) {
+        if (shown == (metrics != null))
+            return;
+        metrics = shown ? new PanelMetrics() : null;
+        graph.setEventMonitor(metrics);
+        if (shown)
+            metricsTimer.start();
+        else
+            metricsTimer.stop();
+        repaint();
+    }
+
+    /**
+     * Getter for the metrics of the panel
+     *
+     * @return the metrics, null if they are not being measured
+     */
+    public PanelMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Checks if the nodes are painted directly by the panel
+     *
+     * @return True if the nodes are painted, false if they are shown by labels
+     */
+    public boolean isPaintedNodes() {
+        return paintedNodes;
+    }
+
+    /**
+     * It tells the panel that some nodes are going to be dragged. Until the drag ends, everything else
+     * is drawn once in an image, and only the nodes being dragged and their edges are drawn on every frame.
+     *
+     * @param moving nodes being dragged
+     */
+    public void beginDrag(Collection<Node> moving) {
+        dragLayer = moving.isEmpty() ? null : new DragLayer(moving);
+    }
+
+    /**
+     * It tells the panel that the drag has ended, the whole graph is drawn again as usual
+     */
+    public void endDrag() {
+        if (dragLayer == null)
+            return;
+        dragLayer = null;
+        repaint();
+    }
+
+    /**
+     * It throws away the image of what is not being dragged, if there is a drag
+     */
+    private void invalidateDragLayer() {
+        if (dragLayer != null)
+            dragLayer.invalidate();
+    }
+
+    /**
+     * Getter for the zoom of the view
+     *
+     * @return how many pixels of the panel a unit of the graph takes
+     */
+    public double getZoom() {
+        return view.getScaleX();
+    }
+
+    /**
+     * It zooms the view, keeping still the point of the graph under a point of the panel.
+     * The zoom is kept between 1% and 800%.
+     *
+     * @param factor how much the zoom is multiplied by
+     * @param x      horizontal coordinate of the point of the panel
+     * @param y      vertical coordinate of the point of the panel
+     */
+    public void zoom(double factor, int x, int y) {
+        double zoom = min(MAX_ZOOM, max(MIN_ZOOM, getZoom() * factor));
+        double scale = zoom / getZoom();
+        AffineTransform step = AffineTransform.getTranslateInstance(x, y);
+        step.scale(scale, scale);
+        step.translate(-x, -y);
+        view.preConcatenate(step);
+        detailLevel = detailLevel.forZoom(zoom);
+        invalidateDragLayer();
+        repaint();
+    }
+
+    /**
+     * It moves the view
+     *
+     * @param dx horizontal movement in pixels of the panel
+     * @param dy vertical movement in pixels of the panel
+     */
+    public void pan(int dx, int dy) {
+        view.preConcatenate(AffineTransform.getTranslateInstance(dx, dy));
+        invalidateDragLayer();
+        repaint();
+    }
+
+    /**
+     * It brings the view back to no zoom and no movement
+     */
+    public void resetView() {
+        view.setToIdentity();
+        detailLevel = DetailLevel.FULL;
+        invalidateDragLayer();
+        repaint();
+    }
+
+    /**
+     * It converts a point of the panel in a point of the graph, undoing the zoom and the movement of the view
+     *
+     * @param x horizontal coordinate of the point of the panel
+     * @param y vertical coordinate of the point of the panel
+     * @return the point of the graph
+     */
+    public Point toGraph(int x, int y) {
+        Point2D point = new Point2D.Double(x, y);
+        try {
+            view.inverseTransform(point, point);
+        } catch (NoninvertibleTransformException e) {
+            //the zoom is never 0, so the view can always be inverted
+        }
+        return new Point((int) floor(point.getX()), (int) floor(point.getY()));
+    }
+
+    /**
+     * It converts an area of the graph in the area of the panel where it is shown
+     *
+     * @param area area of the graph
+     * @return the area of the panel covering it
+     */
+    private Rectangle toPanel(Rectangle area) {
+        Rectangle bounds = view.createTransformedShape(area).getBounds();
+        //the pixels partially covered are repainted too, and when zoomed out the squares of the density around them
+        int margin = detailLevel == DetailLevel.DOTS ? EDGE_CELL_SIZE : 1;
+        bounds.grow(margin, margin);
+        return bounds;
+    }
+
+    /**
+     * It converts an area of the panel in the area of the graph shown there
+     *
+     * @param area area of the panel
+     * @return the area of the graph covering it
+     */
+    private Rectangle toGraph(Rectangle area) {
+        Point topLeft = toGraph(area.x, area.y);
+        Point bottomRight = toGraph(area.x + area.width, area.y + area.height);
+        return new Rectangle(topLeft.x, topLeft.y, bottomRight.x - topLeft.x + 1, bottomRight.y - topLeft.y + 1);
+    }
+
+    /**
+     * It finds the area of the graph that has to be painted: the clip of the graphics,
+     * which is already in the coordinates of the graph, or else the whole visible part of the graph
+     *
+     * @param g graphics with the transform of the view
+     * @return the area of the graph to be painted
+     */
+    private Rectangle visibleArea(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip != null)
+            return clip;
+        return toGraph(new Rectangle(0, 0, getWidth(), getHeight()));
+    }
+
     /**
      * Method to add a Node Label to the panel
      *
      * @param node the node to create the node label
      */
     private void addNodePanel(Node node) {
-        node.addPropertyChangeListener(this);
-        nodes.add(new NodeLabel(node));
+        if (!paintedNodes) {
+            NodeLabel label = new NodeLabel(node);
+            label.addMouseMotionListener(edgePreviewController);
+            nodes.add(label);
+        }
     }
 
     /**
-     * Initialises the node labels in the panel by resetting the nodes arraylist
+     * Initialises the node labels in the panel by resetting the nodes arraylist.
+     * When the nodes are painted no label is created.
      */
     private void initPanel() {
         nodes = new ArrayList<>();
@@ -65,104 +334,380 @@ public class GraphPanel extends JPanel implements PropertyChangeListener {
     }
 
     /**
-     * Method to draw Edges that have an arrow showing direction
+     * It makes sure that the edge index belongs to the current CSR of the graph
      *
-     * @param g graphics needed to paint components
+     * @return True if the index has been built again, with the nodes in their current place
      */
-    private void drawEdges(Graphics g) {
+    private boolean updateEdgeIndex() {
+        CompressedGraph compressed = graph.getCompressedGraph();
+        if (edgeIndex != null && edgeIndex.getGraph() == compressed)
+            return false;
+        edgeIndex = new EdgeIndex(compressed);
+        return true;
+    }
 
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setStroke(new BasicStroke(5));
-        g2d.setColor(new Color(0x2B2B2B));
+    /**
+     * Method to draw Edges that have an arrow showing direction.
+     * The edges are read from the CSR of the graph, so no Edge object is visited,
+     * and only the edges crossing the area being repainted are drawn.
+     *
+     * @param g       graphics needed to paint components
+     * @param skipped positions in the forward CSR of the edges not to be drawn, null to draw all of them
+     */
+    private void drawEdges(Graphics g, BitSet skipped) {
+        updateEdgeIndex();
+        //without a clip the rectangle is left as it is, so it can't tell if there is one
+        if (g.getClip() == null)
+            area.setBounds(visibleArea(g));
+        else
+            g.getClipBounds(area);
+        area.grow(EDGE_MARGIN, EDGE_MARGIN);
+        int minX = area.x;
+        int minY = area.y;
+        int maxX = area.x + area.width;
+        int maxY = area.y + area.height;
 
-        for (Edge edge : graph.getEdges()) {
-            int nodeX = edge.getEndpoint1().getShape().x + edge.getEndpoint1().getShape().width / 2;
-            int nodeY = edge.getEndpoint1().getShape().y + edge.getEndpoint1().getShape().height / 2;
-            int endNodeX = edge.getEndpoint2().getShape().x + edge.getEndpoint2().getShape().width / 2;
-            int endNodeY = edge.getEndpoint2().getShape().y + edge.getEndpoint2().getShape().height / 2;
-            g2d.drawLine(nodeX, nodeY, endNodeX, endNodeY);
-            drawArrow(g2d, nodeX, nodeY, endNodeX, endNodeY);
+        //the edges are sorted, so that overlapping edges always look the same
+        int numVisible = edgeIndex.findEdgesIn(area);
+        int[] visible = edgeIndex.getFound();
+        int numDrawn = 0;
+        for (int i = 0; i < numVisible; i++) {
+            int position = visible[i];
+            if (skipped != null && skipped.get(position))
+                continue;
+            int nodeX = edgeIndex.getStartX(position);
+            int nodeY = edgeIndex.getStartY(position);
+            int endNodeX = edgeIndex.getEndX(position);
+            int endNodeY = edgeIndex.getEndY(position);
+            if (max(nodeX, endNodeX) < minX || min(nodeX, endNodeX) > maxX
+                    || max(nodeY, endNodeY) < minY || min(nodeY, endNodeY) > maxY)
+                continue;
+            //the buffer of the index is reused to keep the edges to be drawn
+            visible[numDrawn++] = position;
         }
+        drawEdgePositions((Graphics2D) g, visible, numDrawn);
     }
 
     /**
-     * Draws an edge to the cursor from a starting node and repaints until you end the node
+     * It draws a list of edges.
+     * The lines and arrows come from the edge index, which computes them only when a node moves.
+     * All the lines are drawn first and then all the arrows, so the graphics changes color only once,
+     * and the strokes and colors are shared, so drawing the edges doesn't allocate anything.
+     * With less detail the edges are thin lines without an arrow.
      *
-     * @param g a set of graphics to use to draw
+     * @param g2d       graphics with the transform of the view
+     * @param positions positions of the edges in the forward CSR
+     * @param count     number of edges to be drawn, from the start of the positions
      */
-    private void drawNewEdge(Graphics g) {
-        Graphics2D g2d = (Graphics2D) g;
-        g2d.setStroke(new BasicStroke(5));
-        g2d.setColor(new Color(0x2B2B2B));
+    private void drawEdgePositions(Graphics2D g2d, int[] positions, int count) {
+        drawnEdges += count;
+        boolean full = detailLevel == DetailLevel.FULL;
+        g2d.setStroke(full ? EDGE_STROKE : THIN_STROKE);
+        g2d.setColor(EDGE_COLOR);
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            g2d.drawLine(edgeIndex.getStartX(position), edgeIndex.getStartY(position),
+                    edgeIndex.getEndX(position), edgeIndex.getEndY(position));
+        }
 
-        Node startingNode = graph.getStartPointEdge();
-        Point cursor = MouseInfo.getPointerInfo().getLocation();
-
-        int nodeX = startingNode.getShape().x + startingNode.getShape().width / 2;
-        int nodeY = startingNode.getShape().y + startingNode.getShape().height / 2;
-        int endX = cursor.x - this.getLocationOnScreen().x;
-        int endY = cursor.y - this.getLocationOnScreen().y;
-        g2d.drawLine(nodeX, nodeY, endX, endY);
-        drawArrow(g2d, nodeX, nodeY, endX, endY);
-        repaint();
+        if (!full)
+            return;
+        g2d.setColor(ARROW_COLOR);
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            drawArrow(g2d, edgeIndex.getStartX(position), edgeIndex.getStartY(position),
+                    edgeIndex.getEndX(position), edgeIndex.getEndY(position), edgeIndex.getArrow(position));
+        }
+    }
+
+    /**
+     * It draws the graph when it is too small to see single nodes and edges, directly in the pixels of the panel.
+     * The panel is divided in small squares and every square with nodes is filled, brighter if it has more nodes
+     * and yellow if one of them is selected. The edges between the same two squares are drawn as a single line,
+     * darker if it stands for more edges. Every square and line is drawn from everything in it,
+     * also when only a part of the panel is repainted.
+     * When the whole panel is repainted most of the graph is usually visible, so the nodes and edges
+     * are read in the order of the CSR instead of being looked for in the indices.
+     *
+     * @param g2d graphics of the panel, without the transform of the view
+     */
+    private void paintDensity(Graphics2D g2d) {
+        Rectangle clip = g2d.getClipBounds();
+        if (clip == null)
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        boolean wholePanel = clip.contains(new Rectangle(0, 0, getWidth(), getHeight()));
+        updateEdgeIndex();
+        drawDensityLines(g2d, clip, wholePanel);
+        fillDensityDots(g2d, clip, wholePanel);
+    }
+
+    /**
+     * It draws a line for each pair of squares of the panel with edges between them
+     *
+     * @param g2d        graphics of the panel, without the transform of the view
+     * @param clip       area of the panel being repainted
+     * @param wholePanel True to read all the edges instead of looking for the ones in the clip
+     */
+    private void drawDensityLines(Graphics2D g2d, Rectangle clip, boolean wholePanel) {
+        CompressedGraph compressed = edgeIndex.getGraph();
+        long[] lines;
+        int numLines = 0;
+        if (wholePanel) {
+            int[] cells = new int[compressed.getNumNodes()];
+            for (int index = 0; index < cells.length; index++) {
+                cells[index] = screenCell(compressed.getNode(index), EDGE_CELL_SIZE);
+            }
+            lines = new long[compressed.getNumEdges()];
+            for (int source = 0; source < cells.length; source++) {
+                for (int position = compressed.outStart(source); position < compressed.outEnd(source); position++) {
+                    int target = compressed.target(position);
+                    if (cells[source] != cells[target])
+                        lines[numLines++] = (long) cells[source] << 32 | cells[target] & 0xFFFFFFFFL;
+                }
+            }
+        } else {
+            //the edges of a line crossing the clip are less than a square away from the clip
+            Rectangle area = toGraph(clip);
+            int margin = (int) ceil(EDGE_CELL_SIZE / getZoom()) + EDGE_MARGIN;
+            area.grow(margin, margin);
+            int numVisible = edgeIndex.findEdgesIn(area);
+            int[] visible = edgeIndex.getFound();
+            lines = new long[numVisible];
+            for (int i = 0; i < numVisible; i++) {
+                int position = visible[i];
+                int from = screenCell(compressed.getNode(edgeIndex.getSource(position)), EDGE_CELL_SIZE);
+                int to = screenCell(compressed.getNode(compressed.target(position)), EDGE_CELL_SIZE);
+                if (from != to)
+                    lines[numLines++] = (long) from << 32 | to & 0xFFFFFFFFL;
+            }
+        }
+
+        //after sorting, the edges between the same two squares are next to each other and can be counted
+        Arrays.sort(lines, 0, numLines);
+        g2d.setStroke(DENSITY_STROKE);
+        int half = EDGE_CELL_SIZE / 2;
+        for (int i = 0; i < numLines; ) {
+            int count = 1;
+            while (i + count < numLines && lines[i + count] == lines[i])
+                count++;
+            int x1 = cellX((int) (lines[i] >>> 32)) * EDGE_CELL_SIZE + half;
+            int y1 = cellY((int) (lines[i] >>> 32)) * EDGE_CELL_SIZE + half;
+            int x2 = cellX((int) lines[i]) * EDGE_CELL_SIZE + half;
+            int y2 = cellY((int) lines[i]) * EDGE_CELL_SIZE + half;
+            i += count;
+            if (max(x1, x2) < clip.x || min(x1, x2) > clip.x + clip.width
+                    || max(y1, y2) < clip.y || min(y1, y2) > clip.y + clip.height)
+                continue;
+            g2d.setColor(densityColor(EDGE_DENSITY, count));
+            g2d.drawLine(x1, y1, x2, y2);
+        }
     }
 
     /**
-     * Method to add an arrow to an edge to show direction. Arrow does not work yet
+     * It fills the squares of the clip that contain the centre of some node
+     *
+     * @param g2d        graphics of the panel, without the transform of the view
+     * @param clip       area of the panel being repainted
+     * @param wholePanel True to read all the nodes instead of looking for the ones in the clip
      */
-    private void drawArrow(Graphics2D g2d, int x1, int y1, int x2, int y2) {
-        g2d.setStroke(new BasicStroke(5));
-        g2d.setColor(new Color(0x0A1621));
-        float dx = x2 - x1;
-        float dy = y2 - y1;
-        int midX = (int) (dx / 2) + x1;
-        int midY = (int) (dy / 2) + y1;
-        if (dx < 0) {
-            angleLine(g2d, midX, midY, (float) atan(dy / dx) + (float) PI / 6, 15);
-            angleLine(g2d, midX, midY, (float) atan(dy / dx) - (float) PI / 6, 15);
+    private void fillDensityDots(Graphics2D g2d, Rectangle clip, boolean wholePanel) {
+        //the nodes are counted in a grid of the squares covering the clip
+        int firstColumn = floorDiv(clip.x, DOT_SIZE);
+        int firstRow = floorDiv(clip.y, DOT_SIZE);
+        int columns = floorDiv(clip.x + clip.width - 1, DOT_SIZE) - firstColumn + 1;
+        int rows = floorDiv(clip.y + clip.height - 1, DOT_SIZE) - firstRow + 1;
+        int[] dots = new int[columns * rows];
+        BitSet selectedDots = new BitSet();
+        Collection<Node> visible;
+        if (wholePanel) {
+            visible = graph.getNodes();
         } else {
-            angleLine(g2d, midX, midY, (float) (atan(dy / dx) + (float) PI / 6), -15);
-            angleLine(g2d, midX, midY, (float) (atan(dy / dx) - (float) PI / 6), -15);
+            Rectangle area = toGraph(clip);
+            int margin = (int) ceil(DOT_SIZE / getZoom());
+            area.grow(margin, margin);
+            visible = graph.getSpatialIndex().nodesIn(area);
+        }
+        for (Node node : visible) {
+            int cell = screenCell(node, DOT_SIZE);
+            int column = cellX(cell) - firstColumn;
+            int row = cellY(cell) - firstRow;
+            if (column < 0 || column >= columns || row < 0 || row >= rows)
+                continue;
+            dots[row * columns + column]++;
+            if (node.getSelected())
+                selectedDots.set(row * columns + column);
+        }
+        for (int dot = 0; dot < dots.length; dot++) {
+            if (dots[dot] == 0)
+                continue;
+            g2d.setColor(selectedDots.get(dot) ? SELECTED_DENSITY : densityColor(NODE_DENSITY, dots[dot]));
+            g2d.fillRect((firstColumn + dot % columns) * DOT_SIZE, (firstRow + dot / columns) * DOT_SIZE,
+                    DOT_SIZE, DOT_SIZE);
+        }
+    }
+
+    /**
+     * It finds the square of the panel containing the centre of a node
+     *
+     * @param node node of the graph
+     * @param size size of the squares
+     * @return the square, packed by cellKey
+     */
+    private int screenCell(Node node, int size) {
+        return cellKey(EdgeIndex.centerX(node) * view.getScaleX() + view.getTranslateX(),
+                EdgeIndex.centerY(node) * view.getScaleY() + view.getTranslateY(), size);
+    }
+
+    /**
+     * It finds the square of the panel containing a point, packed in an int.
+     * Points far outside the panel are moved to the last square that can be packed.
+     *
+     * @param x    horizontal coordinate of the point in the panel
+     * @param y    vertical coordinate of the point in the panel
+     * @param size size of the squares
+     * @return the column of the square in the upper 16 bits and its row in the lower 16 bits
+     */
+    private static int cellKey(double x, double y, int size) {
+        int cellX = (int) max(Short.MIN_VALUE, min(Short.MAX_VALUE, floor(x / size)));
+        int cellY = (int) max(Short.MIN_VALUE, min(Short.MAX_VALUE, floor(y / size)));
+        return (cellX << 16) | (cellY & 0xFFFF);
+    }
+
+    private static int cellX(int key) {
+        return key >> 16;
+    }
+
+    private static int cellY(int key) {
+        return (short) key;
+    }
+
+    /**
+     * It creates the colors used for a growing number of elements: the more elements, the closer the color
+     * gets from the background to the color of the elements. The colors are mixed here and not drawn
+     * with transparency, because drawing transparent lines and squares is many times slower.
+     *
+     * @param rgb          color of the elements
+     * @param background   color of the background
+     * @param minimumAlpha how much of the color of the elements a single element shows
+     * @return the colors for 1, 2, 4, 8... elements
+     */
+    private static Color[] densityColors(int rgb, int background, float minimumAlpha) {
+        Color[] colors = new Color[8];
+        for (int i = 0; i < colors.length; i++) {
+            float alpha = minimumAlpha + (1 - minimumAlpha) * i / (colors.length - 1);
+            int mixed = 0;
+            for (int shift = 0; shift < 24; shift += 8) {
+                int channel = (rgb >> shift) & 0xFF;
+                int backgroundChannel = (background >> shift) & 0xFF;
+                mixed |= round(backgroundChannel + (channel - backgroundChannel) * alpha) << shift;
+            }
+            colors[i] = new Color(mixed);
         }
-        g2d.setStroke(new BasicStroke(5));
-        g2d.setColor(new Color(0x2B2B2B));
+        return colors;
     }
 
     /**
-     * Method to draw a line at an angle
+     * It finds the color of a number of elements
      *
-     * @param g2d   2d Graphics used to draw the line
-     * @param x     initial x coordinate of the line
-     * @param y     initial y coordinate of the line
-     * @param angle the degree of the line in radians at which the line is drawn
-     * @param len   the length of the line
+     * @param colors colors for 1, 2, 4, 8... elements
+     * @param count  number of elements
+     * @return the color
      */
-    private void angleLine(Graphics2D g2d, int x, int y, float angle, float len) {
-        float dx = xChange(angle, len);
-        float dy = yChange(angle, len);
-        g2d.drawLine(x, y, (int) (x + dx), (int) (y + dy));
+    private static Color densityColor(Color[] colors, int count) {
+        int level = 31 - Integer.numberOfLeadingZeros(count);
+        return colors[min(level, colors.length - 1)];
     }
 
     /**
-     * Method to get the x coordinate of the end of an angled line
+     * It moves the end of the edge being added, drawn from its starting node to the mouse.
+     * Only the area covered by the edge before and after the move is repainted.
+     * Nothing happens when no edge is being added.
      *
-     * @param angle the angle the line is at
-     * @param len   how long it should be
-     * @return an int that specifies the change in the x value of a line going at that angle with that length
+     * @param x horizontal coordinate of the mouse in the panel
+     * @param y vertical coordinate of the mouse in the panel
      */
-    private int xChange(float angle, float len) {
-        return (int) (cos(angle) * len);
+    public void moveEdgePreview(int x, int y) {
+        if (!graph.isAddingNewEdge() || graph.getStartPointEdge() == null)
+            return;
+        Rectangle damaged = edgePreviewBounds();
+        edgePreviewEnd = toGraph(x, y);
+        if (damaged == null)
+            damaged = edgePreviewBounds();
+        else
+            damaged.add(edgePreviewBounds());
+        repaint(toPanel(damaged));
     }
 
     /**
-     * Method to get the y coordinate of the end of an angled line
+     * It removes the edge being added when the graph is not adding an edge anymore
+     */
+    private void updateEdgePreview() {
+        if (edgePreviewEnd == null || graph.isAddingNewEdge())
+            return;
+        Rectangle damaged = edgePreviewBounds();
+        edgePreviewEnd = null;
+        if (damaged != null)
+            repaint(toPanel(damaged));
+    }
+
+    /**
+     * It finds the area covered by the edge being added, with its arrow
      *
-     * @param angle the angle the line is at
-     * @param len   how long it should be
-     * @return an int that specifies the change in the y value of a line going at that angle with that length
+     * @return the area of the graph, null if the edge is not drawn
      */
-    private int yChange(float angle, float len) {
-        return (int) (sin(angle) * len);
+    private Rectangle edgePreviewBounds() {
+        Node startingNode = graph.getStartPointEdge();
+        if (edgePreviewEnd == null || startingNode == null)
+            return null;
+        Rectangle bounds = new Rectangle(EdgeIndex.centerX(startingNode), EdgeIndex.centerY(startingNode), 0, 0);
+        bounds.add(edgePreviewEnd);
+        bounds.grow(EDGE_MARGIN, EDGE_MARGIN);
+        return bounds;
+    }
+
+    /**
+     * Draws the edge being added, from its starting node to the last position of the mouse.
+     * It is drawn over the nodes, labels included.
+     *
+     * @param g a set of graphics to use to draw
+     */
+    private void drawEdgePreview(Graphics g) {
+        Node startingNode = graph.getStartPointEdge();
+        if (edgePreviewEnd == null || startingNode == null || !graph.isAddingNewEdge())
+            return;
+        Graphics2D g2d = (Graphics2D) g.create();
+        try {
+            g2d.transform(view);
+            g2d.setStroke(EDGE_STROKE);
+            g2d.setColor(EDGE_COLOR);
+            int nodeX = EdgeIndex.centerX(startingNode);
+            int nodeY = EdgeIndex.centerY(startingNode);
+            int endX = edgePreviewEnd.x;
+            int endY = edgePreviewEnd.y;
+            g2d.drawLine(nodeX, nodeY, endX, endY);
+            g2d.setColor(ARROW_COLOR);
+            drawArrow(g2d, nodeX, nodeY, endX, endY, EdgeIndex.arrow(nodeX, nodeY, endX, endY));
+        } finally {
+            g2d.dispose();
+        }
+    }
+
+    /**
+     * Method to draw the arrow of an edge, showing its direction, with the stroke and color of the graphics.
+     * The arrow is made of two short lines starting from the middle of the edge.
+     *
+     * @param g2d   2d Graphics used to draw the arrow
+     * @param x1    horizontal position of the start of the edge
+     * @param y1    vertical position of the start of the edge
+     * @param x2    horizontal position of the end of the edge
+     * @param y2    vertical position of the end of the edge
+     * @param arrow the arrow of the edge, computed by the edge index
+     */
+    static void drawArrow(Graphics2D g2d, int x1, int y1, int x2, int y2, int arrow) {
+        int midX = (x2 - x1) / 2 + x1;
+        int midY = (y2 - y1) / 2 + y1;
+        g2d.drawLine(midX, midY, midX + EdgeIndex.arrowLeftX(arrow), midY + EdgeIndex.arrowLeftY(arrow));
+        g2d.drawLine(midX, midY, midX + EdgeIndex.arrowRightX(arrow), midY + EdgeIndex.arrowRightY(arrow));
     }
 
     /**
@@ -176,18 +721,207 @@ public class GraphPanel extends JPanel implements PropertyChangeListener {
     }
 
     /**
-     * Overridden paint component command that paints the panel then draws edges then nodes
+     * It paints the nodes intersecting the area being repainted, found with the spatial index.
+     *
+     * @param g       graphics set to use to draw
+     * @param skipped dense indices of the nodes not to be painted, null to paint all of them
+     */
+    private void paintNodes(Graphics g, BitSet skipped) {
+        CompressedGraph compressed = graph.getCompressedGraph();
+        List<Node> visible = graph.getSpatialIndex().nodesIn(visibleArea(g));
+        int[] order = new int[visible.size()];
+        int count = 0;
+        for (Node node : visible) {
+            int index = compressed.indexOf(node);
+            if (skipped == null || !skipped.get(index))
+                order[count++] = index;
+        }
+        Arrays.sort(order, 0, count);
+        paintNodeIndices(g, compressed, order, count);
+    }
+
+    /**
+     * It paints a list of nodes. The nodes are painted from the last to the first one,
+     * so that the first nodes are on top like the labels that are added first.
+     *
+     * @param g          graphics set to use to draw
+     * @param compressed CSR of the graph
+     * @param order      dense indices of the nodes, sorted
+     * @param count      number of nodes to be painted, from the start of the indices
+     */
+    private void paintNodeIndices(Graphics g, CompressedGraph compressed, int[] order, int count) {
+        drawnNodes += count;
+        Graphics2D g2d = (Graphics2D) g.create();
+        try {
+            nodePainter.prepare(g2d);
+            boolean full = detailLevel == DetailLevel.FULL;
+            for (int i = count - 1; i >= 0; i--) {
+                if (full)
+                    nodePainter.paint(g2d, compressed.getNode(order[i]));
+                else
+                    nodePainter.paintBox(g2d, compressed.getNode(order[i]));
+            }
+        } finally {
+            g2d.dispose();
+        }
+    }
+
+    /**
+     * It paints a frame of a drag: the image of what is not being dragged, drawn again only if it has been
+     * thrown away, and over it the edges and the nodes being dragged.
+     * The image has the resolution of the screen, which on a HiDPI screen has more pixels than the panel.
+     *
+     * @param g graphics of the panel
+     */
+    private void paintDrag(Graphics g) {
+        updateEdgeIndex();
+        CompressedGraph compressed = edgeIndex.getGraph();
+        dragLayer.update(compressed);
+        AffineTransform screen = ((Graphics2D) g).getTransform();
+        double scaleX = Math.hypot(screen.getScaleX(), screen.getShearY());
+        double scaleY = Math.hypot(screen.getShearX(), screen.getScaleY());
+        int imageWidth = Math.max(1, (int) Math.ceil(getWidth() * scaleX));
+        int imageHeight = Math.max(1, (int) Math.ceil(getHeight() * scaleY));
+        BufferedImage image = dragLayer.getImage(imageWidth, imageHeight, scaleX, scaleY);
+        if (image == null) {
+            image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D imageGraphics = image.createGraphics();
+            try {
+                imageGraphics.scale(scaleX, scaleY);
+                imageGraphics.setColor(getBackground());
+                imageGraphics.fillRect(0, 0, getWidth(), getHeight());
+                imageGraphics.transform(view);
+                drawEdges(imageGraphics, dragLayer.getMovingEdgeSet());
+                paintNodes(imageGraphics, dragLayer.getMovingNodeSet());
+            } finally {
+                imageGraphics.dispose();
+            }
+            dragLayer.setImage(image, scaleX, scaleY);
+        }
+        //one pixel of the image on each pixel of the screen
+        ((Graphics2D) g).drawImage(image, AffineTransform.getScaleInstance(1 / scaleX, 1 / scaleY), null);
+
+        Graphics2D g2d = (Graphics2D) g.create();
+        try {
+            g2d.transform(view);
+            int[] movingEdges = dragLayer.getMovingEdges();
+            drawEdgePositions(g2d, movingEdges, movingEdges.length);
+            int[] movingNodes = dragLayer.getMovingNodes();
+            paintNodeIndices(g2d, compressed, movingNodes, movingNodes.length);
+        } finally {
+            g2d.dispose();
+        }
+    }
+
+    /**
+     * Overridden paint component command that paints the panel then draws edges then nodes.
+     * Everything is drawn in the coordinates of the graph, through the transform of the view,
+     * so the clip is in the coordinates of the graph too and only what is visible is drawn.
+     * When zoomed out far, the density of the graph is drawn instead.
+     * While nodes are dragged, what doesn't move is drawn from an image.
      *
      * @param g graphics set to use to draw
      */
     @Override
     protected void paintComponent(Graphics g) {
+        if (dragLayer != null && paintedNodes && detailLevel != DetailLevel.DOTS) {
+            paintDrag(g);
+            return;
+        }
         super.paintComponent(g);
-        if (graph.isAddingNewEdge()) {
-            drawNewEdge(g);
+        Graphics2D g2d = (Graphics2D) g.create();
+        try {
+            if (detailLevel == DetailLevel.DOTS)
+                paintDensity(g2d);
+            g2d.transform(view);
+            if (detailLevel != DetailLevel.DOTS) {
+                drawEdges(g2d, null);
+                if (paintedNodes)
+                    paintNodes(g2d, null);
+            }
+        } finally {
+            g2d.dispose();
+        }
+        if (!paintedNodes)
+            drawNodes();
+    }
+
+    /**
+     * Overridden paint children command that paints the labels of the nodes, if there are any,
+     * and then the edge being added over them
+     *
+     * @param g graphics set to use to draw
+     */
+    @Override
+    protected void paintChildren(Graphics g) {
+        super.paintChildren(g);
+        drawEdgePreview(g);
+        if (metrics != null) {
+            if (!paintedNodes)
+                countDrawnLabels(g);
+            drawMetrics(g);
+        }
+    }
+
+    /**
+     * Overridden paint command, it measures the time spent painting the panel when the metrics are shown.
+     * The updates of the overlay alone are not measured.
+     *
+     * @param g graphics set to use to draw
+     */
+    @Override
+    public void paint(Graphics g) {
+        if (metrics == null) {
+            super.paint(g);
+            return;
+        }
+        drawnNodes = 0;
+        drawnEdges = 0;
+        Rectangle clip = g.getClipBounds();
+        boolean overlayOnly = clip != null && metricsArea.contains(clip);
+        long start = System.nanoTime();
+        super.paint(g);
+        if (!overlayOnly)
+            metrics.paintDone(System.nanoTime() - start, drawnNodes, drawnEdges);
+    }
+
+    /**
+     * It counts the labels of the nodes that have been painted, the ones crossing the area being repainted
+     *
+     * @param g graphics set to use to draw
+     */
+    private void countDrawnLabels(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        for (Component label : getComponents()) {
+            if (clip == null || label.getBounds().intersects(clip))
+                drawnNodes++;
+        }
+    }
+
+    /**
+     * It draws the report of the metrics over the graph, in the top left corner
+     *
+     * @param g graphics set to use to draw
+     */
+    private void drawMetrics(Graphics g) {
+        List<String> lines = metrics.report();
+        FontMetrics fontMetrics = g.getFontMetrics(METRICS_FONT);
+        int width = 0;
+        for (String line : lines) {
+            width = max(width, fontMetrics.stringWidth(line));
+        }
+        int lineHeight = fontMetrics.getHeight();
+        int padding = 4;
+        //the area only grows, so that the next update also clears the longer lines of the last one
+        metricsArea.add(new Rectangle(0, 0, width + 2 * padding, lines.size() * lineHeight + 2 * padding));
+
+        g.setColor(METRICS_BACKGROUND);
+        g.fillRect(0, 0, width + 2 * padding, lines.size() * lineHeight + 2 * padding);
+        g.setFont(METRICS_FONT);
+        g.setColor(METRICS_COLOR);
+        for (int i = 0; i < lines.size(); i++) {
+            g.drawString(lines.get(i), padding, padding + i * lineHeight + fontMetrics.getAscent());
         }
-        drawEdges(g);
-        drawNodes();
     }
 
     /**
@@ -198,17 +932,146 @@ public class GraphPanel extends JPanel implements PropertyChangeListener {
      */
     @Override
     public void propertyChange(PropertyChangeEvent evt) {
-        switch (evt.getPropertyName()) {
+        //the edge being added disappears when it is added or given up
+        updateEdgePreview();
+        if ("newEdgeCreation".equals(evt.getPropertyName()) && !GraphicsEnvironment.isHeadless()) {
+            Point mouse = getMousePosition(true);
+            if (mouse != null)
+                moveEdgePreview(mouse.x, mouse.y);
+        }
+
+        boolean init = needsInit(evt.getPropertyName());
+        boolean full = needsFullRepaint(evt.getPropertyName());
+        boolean changed = changesGraph(evt.getPropertyName());
+        if ("batch".equals(evt.getPropertyName())) {
+            for (Object event : (List<?>) evt.getNewValue()) {
+                init |= needsInit(((PropertyChangeEvent) event).getPropertyName());
+                full |= needsFullRepaint(((PropertyChangeEvent) event).getPropertyName());
+                changed |= changesGraph(((PropertyChangeEvent) event).getPropertyName());
+            }
+        }
+        if (changed)
+            invalidateDragLayer();
+        if (init) {
+            initPanel();
+            //the graph may have been replaced, the edge index is built again
+            edgeIndex = null;
+        }
+        if (full) {
+            if (!paintedNodes) {
+                removeAll();
+                revalidate();
+            }
+            damage = null;
+            repaint();
+        } else {
+            repaintDamage();
+        }
+    }
+
+    /**
+     * A move of a node damages its old place, its new place and the lines of its edges before and after the move.
+     * Only the edges of the node are visited, so a move costs as much as the neighbourhood of the node.
+     * Inside a batch the damage is repainted by the batch event.
+     */
+    @Override
+    public void nodeMoved(Node node, int oldX, int oldY, int oldWidth, int oldHeight) {
+        if (dragLayer != null && !dragLayer.isMoving(node))
+            dragLayer.invalidate();
+        nodeArea.setBounds(node.getX(), node.getY(), node.getWidth(), node.getHeight());
+        boolean rebuilt = updateEdgeIndex();
+        //the CSR is the one of the current graph, so a node that isn't in the graph has no index
+        int index = edgeIndex.getGraph().indexOf(node);
+        if (index != -1) {
+            nodeArea.add(oldX, oldY);
+            nodeArea.add(oldX + oldWidth, oldY + oldHeight);
+            edgeIndex.nodeMoved(index, oldX + oldWidth / 2, oldY + oldHeight / 2, !rebuilt, nodeArea);
+        }
+        addNodeDamage();
+    }
+
+    /**
+     * A change of the name or of the selection of a node damages only the node
+     */
+    @Override
+    public void nodeChanged(Node node) {
+        if (dragLayer != null)
+            dragLayer.invalidate();
+        nodeArea.setBounds(node.getX(), node.getY(), node.getWidth(), node.getHeight());
+        addNodeDamage();
+    }
+
+    /**
+     * It adds the area of the node that has changed, with the margin of the edges, to the damage
+     * waiting to be repainted, and it repaints it unless a batch is in progress
+     */
+    private void addNodeDamage() {
+        nodeArea.grow(EDGE_MARGIN, EDGE_MARGIN);
+        if (damage == null)
+            damage = new Rectangle(nodeArea);
+        else
+            damage.add(nodeArea);
+        if (!graph.isBatching())
+            repaintDamage();
+    }
+
+    /**
+     * It repaints the damaged area, if there is one
+     */
+    private void repaintDamage() {
+        if (damage == null)
+            return;
+        repaint(toPanel(damage));
+        damage = null;
+    }
+
+    /**
+     * Checks if an event can change any part of the panel. The events that only
+     * change some nodes are repainted from the damage of the nodes.
+     *
+     * @param propertyName name of the event
+     * @return True if the whole panel must be repainted
+     */
+    private boolean needsFullRepaint(String propertyName) {
+        switch (propertyName) {
+            case "batch":
+            case "nodeSelected":
+            case "edgePresent":
+            case "addOperation":
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Checks if an event can change how the graph looks. A batch changes the graph only through the events
+     * it contains, and the operations added for undo don't change the graph.
+     *
+     * @param propertyName name of the event
+     * @return True if the graph may look different after the event
+     */
+    private boolean changesGraph(String propertyName) {
+        return !"batch".equals(propertyName) && !"addOperation".equals(propertyName);
+    }
+
+    /**
+     * Checks if an event changes the node labels that the panel has to create
+     *
+     * @param propertyName name of the event
+     * @return True if the node labels must be created again
+     */
+    private boolean needsInit(String propertyName) {
+        switch (propertyName) {
             case "changeNodesColor":
             case "addNode":
             case "removeNode":
             case "resetGraph":
             case "loadGraph":
-                initPanel();
-                break;
+            case "restoreVersion":
+                return true;
+            default:
+                return false;
         }
-        removeAll();
-        revalidate();
-        repaint();
     }
 }
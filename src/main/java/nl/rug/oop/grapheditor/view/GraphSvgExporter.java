@@ -0,0 +1,287 @@
+package nl.rug.oop.grapheditor.view;
+
+import nl.rug.oop.grapheditor.model.CompressedGraph;
+import nl.rug.oop.grapheditor.model.GraphSnapshot;
+
+import java.awt.*;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GraphSvgExporter writes a snapshot of a graph as an SVG drawing, with the same look as the panel.
+ * The drawing is written while the graph is read, element after element, through a buffered writer:
+ * no document is built in memory, so the exporter itself only needs its buffer, whatever the size of the graph.
+ * The snapshot it reads is not free though: it is a copy of the columns of the nodes and it needs the CSR
+ * of the graph, so it takes memory linear in the nodes and the edges. In the editor the CSR is usually
+ * the one already built for the panel, and the snapshot is what lets the graph be edited during the export.
+ * The lines of the edges and their arrows are written in paths of many segments, which keeps the file small,
+ * then the nodes are written from the last to the first one, so the first nodes are on top like in the panel.
+ * Nodes are drawn as not selected.
+ */
+public class GraphSvgExporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    //space left around the graph, in units of the graph
+    private static final int MARGIN = 20;
+    //segments written in a single path
+    private static final int SEGMENTS_PER_PATH = 1024;
+    private static final String TEXT_COLOR = "#333333";
+    private static final int BORDER_WIDTH = 2;
+    private static final int FONT_SIZE = 15;
+
+    private final GraphSnapshot snapshot;
+    private final double scale;
+    private int lastArgb;
+    private String lastColor;
+
+    /**
+     * Constructor for an exporter
+     *
+     * @param snapshot snapshot of the graph to be written, taken by GraphModel.getSnapshot at a cost linear
+     *                 in the size of the graph
+     * @param scale    size in the drawing of a unit of the graph, used for its width and height
+     */
+    public GraphSvgExporter(GraphSnapshot snapshot, double scale) {
+        if (!(scale > 0))
+            throw new IllegalArgumentException("The scale must be positive: " + scale);
+        this.snapshot = snapshot;
+        this.scale = scale;
+    }
+
+    /**
+     * It writes the drawing in a file
+     *
+     * @param file file receiving the drawing
+     * @throws IOException if the drawing can't be written
+     */
+    public void export(File file) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            write(out);
+        }
+    }
+
+    /**
+     * It writes the drawing
+     *
+     * @param out writer receiving the drawing, it is flushed but not closed
+     * @throws IOException if the drawing can't be written
+     */
+    public void write(Writer out) throws IOException {
+        Rectangle bounds = bounds();
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        out.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+        out.write(Long.toString(Math.round(bounds.width * scale)));
+        out.write("\" height=\"");
+        out.write(Long.toString(Math.round(bounds.height * scale)));
+        out.write("\" viewBox=\"");
+        writeInts(out, bounds.x, bounds.y, bounds.width, bounds.height);
+        out.write("\">\n<style>path{fill:none;stroke-width:");
+        out.write(Integer.toString((int) GraphPanel.EDGE_STROKE.getLineWidth()));
+        out.write("}rect{stroke:");
+        out.write(hex(GraphPanel.ARROW_COLOR.getRGB()));
+        out.write(";stroke-width:" + BORDER_WIDTH + "}text{font:bold " + FONT_SIZE + "px monospace;fill:");
+        out.write(TEXT_COLOR);
+        out.write(";text-anchor:middle;dominant-baseline:central}</style>\n");
+
+        out.write("<rect style=\"stroke:none\" fill=\"");
+        out.write(hex(GraphPanel.BACKGROUND_COLOR.getRGB()));
+        out.write("\" x=\"");
+        writeInts(out, bounds.x);
+        out.write("\" y=\"");
+        writeInts(out, bounds.y);
+        out.write("\" width=\"100%\" height=\"100%\"/>\n");
+
+        writeEdges(out, false);
+        writeEdges(out, true);
+        writeNodes(out);
+        out.write("</svg>\n");
+        out.flush();
+    }
+
+    /**
+     * It writes the lines or the arrows of all the edges, in paths of many segments
+     *
+     * @param out    writer receiving the drawing
+     * @param arrows True to write the arrows, false to write the lines
+     * @throws IOException if the edges can't be written
+     */
+    private void writeEdges(Writer out, boolean arrows) throws IOException {
+        CompressedGraph structure = snapshot.getStructure();
+        String color = hex((arrows ? GraphPanel.ARROW_COLOR : GraphPanel.EDGE_COLOR).getRGB());
+        int segments = 0;
+        for (int node = 0; node < structure.getNumNodes(); node++) {
+            int x1 = centerX(node);
+            int y1 = centerY(node);
+            for (int position = structure.outStart(node); position < structure.outEnd(node); position++) {
+                int target = structure.target(position);
+                int x2 = centerX(target);
+                int y2 = centerY(target);
+                if (segments % SEGMENTS_PER_PATH == 0) {
+                    if (segments > 0)
+                        out.write("\"/>\n");
+                    out.write("<path stroke=\"");
+                    out.write(color);
+                    out.write("\" d=\"");
+                }
+                segments++;
+                if (!arrows) {
+                    writeSegment(out, x1, y1, x2, y2);
+                    continue;
+                }
+                int arrow = EdgeIndex.arrow(x1, y1, x2, y2);
+                int midX = (x2 - x1) / 2 + x1;
+                int midY = (y2 - y1) / 2 + y1;
+                writeSegment(out, midX, midY, midX + EdgeIndex.arrowLeftX(arrow), midY + EdgeIndex.arrowLeftY(arrow));
+                writeSegment(out, midX, midY, midX + EdgeIndex.arrowRightX(arrow), midY + EdgeIndex.arrowRightY(arrow));
+            }
+        }
+        if (segments > 0)
+            out.write("\"/>\n");
+    }
+
+    /**
+     * It writes the nodes, each one as a rectangle with its name in the centre
+     *
+     * @param out writer receiving the drawing
+     * @throws IOException if the nodes can't be written
+     */
+    private void writeNodes(Writer out) throws IOException {
+        for (int node = snapshot.getNumNodes() - 1; node >= 0; node--) {
+            int x = snapshot.getX(node);
+            int y = snapshot.getY(node);
+            int width = snapshot.getWidth(node);
+            int height = snapshot.getHeight(node);
+            int argb = snapshot.getColor(node);
+            //the border is drawn inside the node, like in the panel
+            out.write("<rect x=\"");
+            writeInts(out, x + BORDER_WIDTH / 2);
+            out.write("\" y=\"");
+            writeInts(out, y + BORDER_WIDTH / 2);
+            out.write("\" width=\"");
+            writeInts(out, width - BORDER_WIDTH);
+            out.write("\" height=\"");
+            writeInts(out, height - BORDER_WIDTH);
+            out.write("\" fill=\"");
+            out.write(color(argb));
+            if (argb >>> 24 != 0xFF) {
+                out.write("\" fill-opacity=\"");
+                out.write(Float.toString((argb >>> 24) / 255f));
+            }
+            out.write("\"/>\n");
+
+            String name = snapshot.getName(node);
+            if (name == null || name.isEmpty())
+                continue;
+            out.write("<text x=\"");
+            writeInts(out, x + width / 2);
+            out.write("\" y=\"");
+            writeInts(out, y + height / 2);
+            out.write("\">");
+            writeEscaped(out, name);
+            out.write("</text>\n");
+        }
+    }
+
+    /**
+     * It finds the area of the graph that is drawn: all the nodes with a margin around them
+     *
+     * @return the area in units of the graph
+     */
+    private Rectangle bounds() {
+        int numNodes = snapshot.getNumNodes();
+        if (numNodes == 0)
+            return new Rectangle(-MARGIN, -MARGIN, 2 * MARGIN, 2 * MARGIN);
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int node = 0; node < numNodes; node++) {
+            minX = Math.min(minX, snapshot.getX(node));
+            minY = Math.min(minY, snapshot.getY(node));
+            maxX = Math.max(maxX, snapshot.getX(node) + snapshot.getWidth(node));
+            maxY = Math.max(maxY, snapshot.getY(node) + snapshot.getHeight(node));
+        }
+        return new Rectangle(minX - MARGIN, minY - MARGIN, maxX - minX + 2 * MARGIN, maxY - minY + 2 * MARGIN);
+    }
+
+    private void writeSegment(Writer out, int x1, int y1, int x2, int y2) throws IOException {
+        out.write('M');
+        writeInts(out, x1, y1);
+        out.write('L');
+        writeInts(out, x2, y2);
+    }
+
+    /**
+     * It writes numbers separated by spaces
+     *
+     * @param out     writer receiving the numbers
+     * @param numbers the numbers
+     * @throws IOException if the numbers can't be written
+     */
+    private static void writeInts(Writer out, int... numbers) throws IOException {
+        for (int i = 0; i < numbers.length; i++) {
+            if (i > 0)
+                out.write(' ');
+            out.write(Integer.toString(numbers[i]));
+        }
+    }
+
+    /**
+     * It writes a text with the characters that have a meaning in XML escaped,
+     * the control characters that XML doesn't allow are left out
+     *
+     * @param out  writer receiving the text
+     * @param text the text
+     * @throws IOException if the text can't be written
+     */
+    private static void writeEscaped(Writer out, String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    out.write("&amp;");
+                    break;
+                case '<':
+                    out.write("&lt;");
+                    break;
+                case '>':
+                    out.write("&gt;");
+                    break;
+                default:
+                    if (c >= ' ' || c == '\t')
+                        out.write(c);
+            }
+        }
+    }
+
+    /**
+     * It returns the SVG color of an ARGB int, reusing the last color when it is the same
+     *
+     * @param argb color packed as an ARGB int
+     * @return the color, without its alpha
+     */
+    private String color(int argb) {
+        if (lastColor == null || lastArgb != argb) {
+            lastColor = hex(argb);
+            lastArgb = argb;
+        }
+        return lastColor;
+    }
+
+    private static String hex(int rgb) {
+        return String.format("#%06X", rgb & 0xFFFFFF);
+    }
+
+    private int centerX(int node) {
+        return snapshot.getX(node) + snapshot.getWidth(node) / 2;
+    }
+
+    private int centerY(int node) {
+        return snapshot.getY(node) + snapshot.getHeight(node) / 2;
+    }
+}
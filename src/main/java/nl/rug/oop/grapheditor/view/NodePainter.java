@@ -0,0 +1,140 @@
+package nl.rug.oop.grapheditor.view;
+
+import nl.rug.oop.grapheditor.model.Node;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Map;
+
+/**
+ * NodePainter draws a node directly on the graphics of the panel, with the same look as a NodeLabel:
+ * a 2 pixels border, the background color (yellow when the node is selected) and the name in the centre,
+ * shortened with "..." when it doesn't fit. The text is laid out by the same code used by JLabel.
+ * The rectangles used for the layout are reused, so painting a node doesn't allocate anything
+ * unless its color differs from the previous node.
+ */
+public class NodePainter {
+    private static final Color BORDER_COLOR = new Color(0x0A1621);
+    private static final Color SELECTED_COLOR = new Color(0xFFFF00);
+    private static final int BORDER_WIDTH = 2;
+    private static final int TEXT_ICON_GAP = 4;
+
+    private final Font font;
+    private final Color textColor;
+    private final Rectangle viewBounds;
+    private final Rectangle iconBounds;
+    private final Rectangle textBounds;
+    private int lastArgb;
+    private Color lastColor;
+
+    /**
+     * Constructor for a painter with the font and the colors of a NodeLabel
+     */
+    public NodePainter() {
+        font = new Font(Font.MONOSPACED, Font.BOLD, 15);
+        Color labelForeground = UIManager.getColor("Label.foreground");
+        textColor = labelForeground == null ? Color.BLACK : labelForeground;
+        viewBounds = new Rectangle();
+        iconBounds = new Rectangle();
+        textBounds = new Rectangle();
+    }
+
+    /**
+     * It prepares the graphics for painting nodes, using the text rendering hints of the desktop like JLabel does
+     *
+     * @param g2d graphics of the panel
+     */
+    public void prepare(Graphics2D g2d) {
+        Object desktopHints = Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+        if (desktopHints instanceof Map)
+            g2d.addRenderingHints((Map<?, ?>) desktopHints);
+        g2d.setFont(font);
+    }
+
+    /**
+     * It paints a node, the graphics must have been prepared
+     *
+     * @param g2d  graphics of the panel
+     * @param node node to be painted
+     */
+    public void paint(Graphics2D g2d, Node node) {
+        paint(g2d, node.getX(), node.getY(), node.getWidth(), node.getHeight(),
+                node.getSelected() ? SELECTED_COLOR : color(node.getBackgroundArgb()), node.getName());
+    }
+
+    /**
+     * It paints a node that is not selected from its values, e.g. the ones of a snapshot of the graph.
+     * The graphics must have been prepared.
+     *
+     * @param g2d    graphics to paint on
+     * @param x      horizontal position of the node
+     * @param y      vertical position of the node
+     * @param width  width of the node
+     * @param height height of the node
+     * @param argb   color of the node, packed as an ARGB int
+     * @param name   name of the node
+     */
+    public void paint(Graphics2D g2d, int x, int y, int width, int height, int argb, String name) {
+        paint(g2d, x, y, width, height, color(argb), name);
+    }
+
+    /**
+     * It paints the background, the border and the name of a node
+     *
+     * @param g2d        graphics to paint on
+     * @param x          horizontal position of the node
+     * @param y          vertical position of the node
+     * @param width      width of the node
+     * @param height     height of the node
+     * @param background color of the background of the node
+     * @param name       name of the node
+     */
+    private void paint(Graphics2D g2d, int x, int y, int width, int height, Color background, String name) {
+        g2d.setColor(background);
+        g2d.fillRect(x, y, width, height);
+
+        g2d.setColor(BORDER_COLOR);
+        g2d.fillRect(x, y, width, BORDER_WIDTH);
+        g2d.fillRect(x, y + height - BORDER_WIDTH, width, BORDER_WIDTH);
+        g2d.fillRect(x, y, BORDER_WIDTH, height);
+        g2d.fillRect(x + width - BORDER_WIDTH, y, BORDER_WIDTH, height);
+
+        if (name == null || name.isEmpty())
+            return;
+        FontMetrics metrics = g2d.getFontMetrics(font);
+        viewBounds.setBounds(x + BORDER_WIDTH, y + BORDER_WIDTH,
+                width - 2 * BORDER_WIDTH, height - 2 * BORDER_WIDTH);
+        iconBounds.setBounds(0, 0, 0, 0);
+        textBounds.setBounds(0, 0, 0, 0);
+        String text = SwingUtilities.layoutCompoundLabel(metrics, name, null,
+                SwingConstants.CENTER, SwingConstants.CENTER, SwingConstants.CENTER, SwingConstants.RIGHT,
+                viewBounds, iconBounds, textBounds, TEXT_ICON_GAP);
+        g2d.setColor(textColor);
+        g2d.drawString(text, textBounds.x, textBounds.y + metrics.getAscent());
+    }
+
+    /**
+     * It paints a node as a plain rectangle of its color, for when the name and the border would be too small to see
+     *
+     * @param g2d  graphics of the panel
+     * @param node node to be painted
+     */
+    public void paintBox(Graphics2D g2d, Node node) {
+        g2d.setColor(node.getSelected() ? SELECTED_COLOR : color(node.getBackgroundArgb()));
+        g2d.fillRect(node.getX(), node.getY(), node.getWidth(), node.getHeight());
+    }
+
+    /**
+     * It returns the color of an ARGB int, reusing the last color when it is the same
+     *
+     * @param argb color packed as an ARGB int
+     * @return the color
+     */
+    private Color color(int argb) {
+        if (lastColor == null || lastArgb != argb) {
+            lastColor = new Color(argb, true);
+            lastArgb = argb;
+        }
+        return lastColor;
+    }
+}
@@ -0,0 +1,209 @@
+package nl.rug.oop.grapheditor.view;
+
+import nl.rug.oop.grapheditor.model.EventMonitor;
+import nl.rug.oop.grapheditor.model.NodeListener;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * PanelMetrics measures how a panel and the listeners of its graph are doing: how long the last paints took,
+ * how many paints there are in a second, how many nodes and edges the last paint has drawn,
+ * how many events of each property the graph and its nodes fire in a second and how long each kind of listener
+ * spends handling them. Rates are the counts of the last whole second, so they don't depend on
+ * when they are read. It must be used by the event dispatch thread.
+ */
+public class PanelMetrics implements EventMonitor {
+    private static final int PAINTS_KEPT = 128;
+    private static final long SECOND = 1_000_000_000L;
+
+    private final long[] paintTimes;
+    private final long[] paintEnds;
+    private int numPaints;
+    private int drawnNodes;
+    private int drawnEdges;
+    private final Map<String, Counter> events;
+    private final Map<String, Counter> listenerTimes;
+
+    /**
+     * A count split by second: the count of the current second and the one of the second before
+     */
+    private static class Counter {
+        private long second;
+        private long current;
+        private long last;
+        private long total;
+
+        private void add(long now, long amount) {
+            roll(now);
+            current += amount;
+            total += amount;
+        }
+
+        private long lastSecond(long now) {
+            roll(now);
+            return last;
+        }
+
+        private void roll(long now) {
+            long nowSecond = now / SECOND;
+            if (nowSecond == second)
+                return;
+            last = nowSecond == second + 1 ? current : 0;
+            current = 0;
+            second = nowSecond;
+        }
+    }
+
+    /**
+     * Constructor for empty metrics
+     */
+    public PanelMetrics() {
+        paintTimes = new long[PAINTS_KEPT];
+        paintEnds = new long[PAINTS_KEPT];
+        events = new TreeMap<>();
+        listenerTimes = new TreeMap<>();
+    }
+
+    /**
+     * It records a paint of the panel
+     *
+     * @param nanos time spent painting, in nanoseconds
+     * @param nodes number of nodes drawn
+     * @param edges number of edges drawn
+     */
+    void paintDone(long nanos, int nodes, int edges) {
+        int index = numPaints % PAINTS_KEPT;
+        paintTimes[index] = nanos;
+        paintEnds[index] = System.nanoTime();
+        numPaints++;
+        drawnNodes = nodes;
+        drawnEdges = edges;
+    }
+
+    @Override
+    public void eventFired(PropertyChangeEvent event) {
+        events.computeIfAbsent(event.getPropertyName(), name -> new Counter()).add(System.nanoTime(), 1);
+    }
+
+    @Override
+    public void listenerCalled(PropertyChangeListener listener, PropertyChangeEvent event, long nanos) {
+        listenerTimes.computeIfAbsent(listener.getClass().getSimpleName(), name -> new Counter())
+                .add(System.nanoTime(), nanos);
+    }
+
+    @Override
+    public void nodeListenerCalled(NodeListener listener, String propertyName, long nanos) {
+        long now = System.nanoTime();
+        events.computeIfAbsent(propertyName, name -> new Counter()).add(now, 1);
+        listenerTimes.computeIfAbsent(listener.getClass().getSimpleName(), name -> new Counter()).add(now, nanos);
+    }
+
+    /**
+     * It finds a percentile of the time spent by the last paints
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return time in milliseconds, 0 if there has been no paint
+     */
+    public double getPaintPercentile(double percentile) {
+        int kept = Math.min(numPaints, PAINTS_KEPT);
+        if (kept == 0)
+            return 0;
+        long[] sorted = Arrays.copyOf(paintTimes, kept);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * kept) - 1;
+        return sorted[Math.max(0, Math.min(kept - 1, index))] / 1e6;
+    }
+
+    /**
+     * Getter for the number of paints done in the last second
+     *
+     * @return number of paints
+     */
+    public int getPaintsPerSecond() {
+        long since = System.nanoTime() - SECOND;
+        int count = 0;
+        for (int i = 0; i < Math.min(numPaints, PAINTS_KEPT); i++) {
+            if (paintEnds[i] > since)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * Getter for the number of nodes drawn by the last paint
+     *
+     * @return number of nodes
+     */
+    public int getDrawnNodes() {
+        return drawnNodes;
+    }
+
+    /**
+     * Getter for the number of edges drawn by the last paint
+     *
+     * @return number of edges
+     */
+    public int getDrawnEdges() {
+        return drawnEdges;
+    }
+
+    /**
+     * Getter for the number of events fired in the last second, by property name
+     *
+     * @return the number of events of each property, sorted by name
+     */
+    public Map<String, Long> getEventsPerSecond() {
+        long now = System.nanoTime();
+        TreeMap<String, Long> rates = new TreeMap<>();
+        events.forEach((name, counter) -> rates.put(name, counter.lastSecond(now)));
+        return rates;
+    }
+
+    /**
+     * Getter for the time spent by the listeners in the last second, by class of the listener
+     *
+     * @return milliseconds spent by the listeners of each class, sorted by name
+     */
+    public Map<String, Double> getListenerMillisPerSecond() {
+        long now = System.nanoTime();
+        TreeMap<String, Double> times = new TreeMap<>();
+        listenerTimes.forEach((name, counter) -> times.put(name, counter.lastSecond(now) / 1e6));
+        return times;
+    }
+
+    /**
+     * Getter for the time spent by the listeners since the metrics started, by class of the listener
+     *
+     * @return milliseconds spent by the listeners of each class, sorted by name
+     */
+    public Map<String, Double> getListenerMillisTotal() {
+        TreeMap<String, Double> times = new TreeMap<>();
+        listenerTimes.forEach((name, counter) -> times.put(name, counter.total / 1e6));
+        return times;
+    }
+
+    /**
+     * It describes the metrics in a few lines of text, the ones shown by the overlay of the panel
+     *
+     * @return the lines
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("paint p50 %.1f ms  p90 %.1f ms  p99 %.1f ms  %d/s",
+                getPaintPercentile(50), getPaintPercentile(90), getPaintPercentile(99), getPaintsPerSecond()));
+        lines.add("drawn " + drawnNodes + " nodes  " + drawnEdges + " edges");
+        getEventsPerSecond().forEach((name, rate) -> {
+            if (rate > 0)
+                lines.add("event " + name + " " + rate + "/s");
+        });
+        getListenerMillisPerSecond().forEach((name, millis) ->
+                lines.add(String.format("listener %s %.1f ms/s", name, millis)));
+        return lines;
+    }
+}
@@ -0,0 +1,165 @@
+package nl.rug.oop.grapheditor.view;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * PngWriter writes an RGB PNG image one row at a time, so an image can be written while it is being drawn
+ * and it never has to be in memory as a whole, as it happens with ImageIO.
+ * Every row is filtered with the difference from the pixel on its left, which makes the plain background
+ * and the straight lines of a graph compress very well, and the compressed rows are written
+ * in IDAT chunks of a fixed size.
+ */
+class PngWriter {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int BIT_DEPTH = 8;
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final byte FILTER_SUB = 1;
+
+    private final OutputStream out;
+    private final int width;
+    private final int height;
+    private final byte[] row;
+    private final Deflater deflater;
+    private final ChunkStream chunks;
+    private final DeflaterOutputStream compressed;
+    private int writtenRows;
+
+    /**
+     * Constructor for a writer, it writes the header of the image
+     *
+     * @param out    stream receiving the image, it is not closed by the writer
+     * @param width  width of the image
+     * @param height height of the image
+     * @throws IOException if the header can't be written
+     */
+    PngWriter(OutputStream out, int width, int height) throws IOException {
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        row = new byte[1 + 3 * width];
+        row[0] = FILTER_SUB;
+
+        out.write(SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        writeInt(header, width);
+        writeInt(header, height);
+        header.write(BIT_DEPTH);
+        header.write(COLOR_TYPE_RGB);
+        //compression, filter and interlace methods: the only ones defined, and no interlace
+        header.write(0);
+        header.write(0);
+        header.write(0);
+        writeChunk("IHDR", header.toByteArray(), header.size());
+
+        deflater = new Deflater(Deflater.BEST_SPEED);
+        chunks = new ChunkStream();
+        compressed = new DeflaterOutputStream(chunks, deflater, CHUNK_SIZE);
+    }
+
+    /**
+     * It writes the next row of the image
+     *
+     * @param pixels array with the pixels of the row, as RGB ints, the alpha is ignored
+     * @param offset index in the array of the first pixel of the row
+     * @throws IOException if the row can't be written
+     */
+    void writeRow(int[] pixels, int offset) throws IOException {
+        int left = 0;
+        for (int x = 0, i = 1; x < width; x++) {
+            int pixel = pixels[offset + x];
+            row[i++] = (byte) ((pixel >> 16) - (left >> 16));
+            row[i++] = (byte) ((pixel >> 8) - (left >> 8));
+            row[i++] = (byte) (pixel - left);
+            left = pixel;
+        }
+        compressed.write(row);
+        writtenRows++;
+    }
+
+    /**
+     * It writes what is left of the image and its end. All the rows must have been written.
+     *
+     * @throws IOException if the image can't be written
+     */
+    void finish() throws IOException {
+        if (writtenRows != height)
+            throw new IllegalStateException("Only " + writtenRows + " rows of " + height + " have been written");
+        compressed.finish();
+        chunks.flush();
+        deflater.end();
+        writeChunk("IEND", new byte[0], 0);
+        out.flush();
+    }
+
+    /**
+     * It writes a chunk of the PNG format: its length, its type, its data and the checksum of type and data
+     *
+     * @param type   type of the chunk, four letters
+     * @param data   array with the data of the chunk
+     * @param length length of the data, from the start of the array
+     * @throws IOException if the chunk can't be written
+     */
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        writeInt(out, length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        writeInt(out, (int) crc.getValue());
+    }
+
+    private static void writeInt(OutputStream stream, int value) throws IOException {
+        stream.write(value >>> 24);
+        stream.write(value >>> 16);
+        stream.write(value >>> 8);
+        stream.write(value);
+    }
+
+    /**
+     * The stream receiving the compressed rows, it writes them in IDAT chunks
+     */
+    private class ChunkStream extends OutputStream {
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int size;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int copied = Math.min(len, buffer.length - size);
+                System.arraycopy(b, off, buffer, size, copied);
+                size += copied;
+                off += copied;
+                len -= copied;
+                if (size == buffer.length)
+                    flush();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (size == 0)
+                return;
+            writeChunk("IDAT", buffer, size);
+            size = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
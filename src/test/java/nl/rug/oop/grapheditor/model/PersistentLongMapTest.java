@@ -0,0 +1,146 @@
+package nl.rug.oop.grapheditor.model;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests of PersistentLongMap, compared with a HashMap doing the same changes
+ */
+public class PersistentLongMapTest {
+
+    @Test
+    public void putAndRemoveMatchHashMap() {
+        Random random = new Random(1);
+        PersistentLongMap<String> map = PersistentLongMap.empty();
+        Map<Long, String> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            //a small range of keys, so that keys are often replaced and removed
+            long key = random.nextInt(3000) - 1500L;
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                String value = "v" + i;
+                map = map.put(key, value);
+                expected.put(key, value);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = -1600; key < 1600; key++) {
+            assertSame(expected.get(key), map.get(key));
+        }
+        Map<Long, String> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    public void keysFarApart() {
+        long[] keys = {0, 1, -1, Long.MIN_VALUE, Long.MAX_VALUE, 1L << 32, (1L << 32) + 1};
+        PersistentLongMap<Long> map = PersistentLongMap.empty();
+        for (long key : keys) {
+            map = map.put(key, key);
+        }
+        assertEquals(keys.length, map.size());
+        for (long key : keys) {
+            assertEquals(Long.valueOf(key), map.get(key));
+        }
+        for (long key : keys) {
+            map = map.remove(key);
+            assertNull(map.get(key));
+        }
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void oldVersionsDoNotChange() {
+        PersistentLongMap<String> first = PersistentLongMap.<String>empty().put(1, "a").put(2, "b");
+        PersistentLongMap<String> second = first.put(1, "c").remove(2).put(3, "d");
+        assertEquals(2, first.size());
+        assertEquals("a", first.get(1));
+        assertEquals("b", first.get(2));
+        assertNull(first.get(3));
+        assertEquals(2, second.size());
+        assertEquals("c", second.get(1));
+        assertNull(second.get(2));
+    }
+
+    @Test
+    public void unchangedMapIsReturned() {
+        String value = "a";
+        PersistentLongMap<String> map = PersistentLongMap.<String>empty().put(1, value);
+        assertSame(map, map.put(1, value));
+        assertSame(map, map.remove(2));
+        PersistentLongMap<String> empty = PersistentLongMap.empty();
+        assertSame(empty, empty.remove(1));
+    }
+
+    @Test
+    public void diffReportsEveryChange() {
+        PersistentLongMap<String> old = PersistentLongMap.empty();
+        for (long key = 0; key < 1000; key++) {
+            old = old.put(key, "v" + key);
+        }
+        String changed = "changed";
+        PersistentLongMap<String> current = old.remove(10).remove(500).put(20, changed).put(5000, "new");
+
+        Map<Long, String> added = new TreeMap<>();
+        Map<Long, String> removed = new TreeMap<>();
+        Map<Long, String> changedValues = new TreeMap<>();
+        old.diff(current, new PersistentLongMap.DiffVisitor<String>() {
+            @Override
+            public void added(long key, String value) {
+                added.put(key, value);
+            }
+
+            @Override
+            public void removed(long key, String value) {
+                removed.put(key, value);
+            }
+
+            @Override
+            public void changed(long key, String oldValue, String newValue) {
+                assertEquals("v" + key, oldValue);
+                changedValues.put(key, newValue);
+            }
+        });
+        assertEquals(1, added.size());
+        assertEquals("new", added.get(5000L));
+        assertEquals(2, removed.size());
+        assertEquals("v10", removed.get(10L));
+        assertEquals("v500", removed.get(500L));
+        assertEquals(1, changedValues.size());
+        assertSame(changed, changedValues.get(20L));
+    }
+
+    @Test
+    public void diffOfTheSameMapIsEmpty() {
+        PersistentLongMap<String> map = PersistentLongMap.<String>empty().put(1, "a").put(2, "b");
+        int[] calls = new int[1];
+        map.diff(map, new PersistentLongMap.DiffVisitor<String>() {
+            @Override
+            public void added(long key, String value) {
+                calls[0]++;
+            }
+
+            @Override
+            public void removed(long key, String value) {
+                calls[0]++;
+            }
+
+            @Override
+            public void changed(long key, String oldValue, String newValue) {
+                calls[0]++;
+            }
+        });
+        assertEquals(0, calls[0]);
+    }
+}
@@ -0,0 +1,82 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the ".bgraph" binary files written by GraphSaver and read by GraphBinaryReader
+ */
+public class GraphBinaryFormatTest {
+    //position of the length of the names in the header
+    private static final int NAMES_LENGTH_POSITION = 24;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        RecordedGraph graph = RecordedGraph.random(500, 1500, 3);
+        RecordedGraph read = new RecordedGraph();
+        new GraphLoader().readGraph(write(graph), read);
+        assertEquals(500, read.getSizeNodes());
+        assertEquals(1500, read.getSizeEdges());
+        assertEquals(graph.nodesText(true), read.nodesText(true));
+        assertEquals(graph.edgesText(), read.edgesText());
+    }
+
+    @Test
+    public void emptyGraph() throws IOException {
+        RecordedGraph read = new RecordedGraph();
+        new GraphLoader().readGraph(write(new RecordedGraph()), read);
+        assertEquals(0, read.getNumNodes());
+        assertEquals(0, read.getNumEdges());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFileIsRejected() throws IOException {
+        File file = write(RecordedGraph.random(20, 30, 4));
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+        new GraphLoader().readGraph(file, new RecordedGraph());
+    }
+
+    @Test(expected = IOException.class)
+    public void bytesAfterTheNamesAreRejected() throws IOException {
+        File file = write(RecordedGraph.random(20, 30, 5));
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        ByteBuffer buffer = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length + 3)).order(GraphBinaryFormat.ORDER);
+        buffer.putInt(NAMES_LENGTH_POSITION, buffer.getInt(NAMES_LENGTH_POSITION) + 3);
+        Files.write(file.toPath(), buffer.array());
+        new GraphLoader().readGraph(file, new RecordedGraph());
+    }
+
+    @Test(expected = IOException.class)
+    public void edgeToMissingNodeIsRejected() throws IOException {
+        RecordedGraph graph = new RecordedGraph();
+        graph.addNode(0, 0, 10, 10, "a");
+        graph.addNode(5, 5, 10, 10, "b");
+        graph.addEdge(0, 1);
+        File file = write(graph);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        //the end node of the edge is after the six columns of the nodes and the column of the start nodes
+        int position = GraphBinaryFormat.HEADER_SIZE + 6 * 4 * 2 + 4;
+        ByteBuffer.wrap(bytes).order(GraphBinaryFormat.ORDER).putInt(position, 7);
+        Files.write(file.toPath(), bytes);
+        new GraphLoader().readGraph(file, new RecordedGraph());
+    }
+
+    private File write(RecordedGraph graph) throws IOException {
+        File file = new File(folder.getRoot(), "graph.bgraph");
+        new GraphSaver().writeBinaryGraph(file, graph);
+        return file;
+    }
+}
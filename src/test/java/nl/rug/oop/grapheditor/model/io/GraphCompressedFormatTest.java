@@ -0,0 +1,117 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the ".zgraph" compressed files written by GraphSaver and read by GraphCompressedReader
+ */
+public class GraphCompressedFormatTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        RecordedGraph graph = RecordedGraph.random(500, 1500, 6);
+        RecordedGraph read = new RecordedGraph();
+        new GraphLoader().readGraph(write(graph), read);
+        assertEquals(500, read.getSizeNodes());
+        assertEquals(1500, read.getSizeEdges());
+        assertEquals(graph.nodesText(true), read.nodesText(true));
+        assertEquals(graph.edgesText(), read.edgesText());
+    }
+
+    @Test
+    public void roundTripOfManyBlocks() throws IOException {
+        RecordedGraph graph = RecordedGraph.random(100000, 200000, 7);
+        File file = write(graph);
+        //random numbers don't compress much, so the stream takes several blocks
+        assertTrue(file.length() > 2 * GraphCompressedFormat.BLOCK_SIZE);
+        RecordedGraph read = new RecordedGraph();
+        new GraphLoader().readGraph(file, read);
+        assertEquals(graph.nodesText(true), read.nodesText(true));
+        assertEquals(graph.edgesText(), read.edgesText());
+    }
+
+    @Test
+    public void emptyGraph() throws IOException {
+        RecordedGraph read = new RecordedGraph();
+        new GraphLoader().readGraph(write(new RecordedGraph()), read);
+        assertEquals(0, read.getNumNodes());
+        assertEquals(0, read.getNumEdges());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFileIsRejected() throws IOException {
+        File file = write(RecordedGraph.random(20, 30, 8));
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+        new GraphLoader().readGraph(file, new RecordedGraph());
+    }
+
+    @Test(expected = IOException.class)
+    public void damagedBlockIsRejected() throws IOException {
+        File file = write(RecordedGraph.random(20, 30, 9));
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[bytes.length - 1] ^= 0x55;
+        Files.write(file.toPath(), bytes);
+        new GraphLoader().readGraph(file, new RecordedGraph());
+    }
+
+    @Test(expected = IOException.class)
+    public void wrongChecksumIsRejected() throws IOException {
+        File file = write(RecordedGraph.random(20, 30, 10));
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        //the checksum is the last int of the frame of the first block
+        bytes[GraphCompressedFormat.HEADER_SIZE + 8] ^= 1;
+        Files.write(file.toPath(), bytes);
+        new GraphLoader().readGraph(file, new RecordedGraph());
+    }
+
+    @Test(expected = IOException.class)
+    public void blockLongerThanDeflateCanWriteIsRejected() throws IOException {
+        File file = write(RecordedGraph.random(20, 30, 11));
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        ByteBuffer.wrap(bytes).order(GraphCompressedFormat.ORDER).putInt(GraphCompressedFormat.HEADER_SIZE + 4, 0x7FFFFFF0);
+        Files.write(file.toPath(), bytes);
+        new GraphLoader().readGraph(file, new RecordedGraph());
+    }
+
+    @Test(expected = IOException.class)
+    public void nameLongerThanTheFileIsRejected() throws IOException {
+        File file = folder.newFile("name.zgraph");
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(GraphCompressedFormat.HEADER_SIZE).order(GraphCompressedFormat.ORDER);
+            header.put(GraphCompressedFormat.MAGIC).putInt(GraphCompressedFormat.VERSION).putInt(0).putInt(1).putInt(0);
+            header.flip();
+            channel.write(header);
+            CompressedBlockOutput out = new CompressedBlockOutput(channel);
+            for (int i = 0; i < 5; i++) {
+                out.writeVarint(0);
+            }
+            //a name of almost 2 GB, followed by three bytes only
+            out.writeVarint(0x7FFFFFF0);
+            out.writeBytes(new byte[]{'a', 'b', 'c'}, 0, 3);
+            out.finish();
+        }
+        new GraphLoader().readGraph(file, new RecordedGraph());
+    }
+
+    private File write(RecordedGraph graph) throws IOException {
+        File file = new File(folder.getRoot(), "graph.zgraph");
+        new GraphSaver().writeCompressedGraph(file, graph);
+        return file;
+    }
+}
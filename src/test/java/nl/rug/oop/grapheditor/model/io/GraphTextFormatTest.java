@@ -0,0 +1,128 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the ".graph" text files: written by GraphSaver, read by the tokenizer of GraphLoader
+ * and by ParallelGraphParser
+ */
+public class GraphTextFormatTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws IOException {
+        RecordedGraph graph = RecordedGraph.random(500, 1500, 1);
+        File file = folder.newFile("round.graph");
+        new GraphSaver().writeGraph(file, graph);
+
+        RecordedGraph read = new RecordedGraph();
+        new GraphLoader().readGraph(file, read);
+        assertEquals(500, read.getSizeNodes());
+        assertEquals(1500, read.getSizeEdges());
+        //the text format has no colors
+        assertEquals(graph.nodesText(false), read.nodesText(false));
+        assertEquals(graph.edgesText(), read.edgesText());
+    }
+
+    @Test
+    public void emptyGraph() throws IOException {
+        File file = write("empty.graph", "0 0\n");
+        RecordedGraph read = new RecordedGraph();
+        new GraphLoader().readGraph(file, read);
+        assertEquals(0, read.getNumNodes());
+        assertEquals(0, read.getNumEdges());
+    }
+
+    @Test
+    public void parallelParseMatchesSequentialParse() throws IOException {
+        //big enough to be split in a few chunks
+        RecordedGraph graph = RecordedGraph.random(200000, 300000, 2);
+        File file = folder.newFile("big.graph");
+        new GraphSaver().writeGraph(file, graph);
+
+        RecordedGraph sequential = new RecordedGraph();
+        new GraphLoader().readGraph(file, sequential);
+        RecordedGraph parallel = new RecordedGraph();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            assertTrue(new ParallelGraphParser(channel, pool).read(parallel));
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(sequential.getSizeNodes(), parallel.getSizeNodes());
+        assertEquals(sequential.getSizeEdges(), parallel.getSizeEdges());
+        assertEquals(sequential.nodesText(false), parallel.nodesText(false));
+        assertEquals(sequential.edgesText(), parallel.edgesText());
+    }
+
+    @Test
+    public void parallelParserLeavesIrregularFilesToTheTokenizer() throws IOException {
+        //a node after an edge, and two nodes on one line
+        assertFalse(parseInParallel(write("late.graph", "2 1\n0 0 10 10 a\n0 0\n5 5 10 10 b\n")));
+        assertFalse(parseInParallel(write("line.graph", "2 0\n0 0 10 10 a 5 5 10 10 b\n")));
+        //the tokenizer reads the one on a single line
+        RecordedGraph read = new RecordedGraph();
+        new GraphLoader().readGraph(new File(folder.getRoot(), "line.graph"), read);
+        assertEquals(2, read.getNumNodes());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFileIsRejected() throws IOException {
+        new GraphLoader().readGraph(write("truncated.graph", "3 1\n0 0 10 10 a\n5 5 10 10 b\n"), new RecordedGraph());
+    }
+
+    @Test(expected = IOException.class)
+    public void missingEdgesAreRejected() throws IOException {
+        new GraphLoader().readGraph(write("edges.graph", "2 2\n0 0 10 10 a\n5 5 10 10 b\n0 1\n"), new RecordedGraph());
+    }
+
+    @Test(expected = IOException.class)
+    public void edgeToMissingNodeIsRejected() throws IOException {
+        new GraphLoader().readGraph(write("edge.graph", "2 1\n0 0 10 10 a\n5 5 10 10 b\n0 2\n"), new RecordedGraph());
+    }
+
+    @Test(expected = IOException.class)
+    public void wordInsteadOfNumberIsRejected() throws IOException {
+        new GraphLoader().readGraph(write("word.graph", "1 0\n0 zero 10 10 a\n"), new RecordedGraph());
+    }
+
+    @Test(expected = IOException.class)
+    public void negativeSizeIsRejected() throws IOException {
+        new GraphLoader().readGraph(write("negative.graph", "-1 0\n"), new RecordedGraph());
+    }
+
+    @Test(expected = IOException.class)
+    public void sizeLargerThanTheFileIsRejected() throws IOException {
+        new GraphLoader().readGraph(write("lie.graph", "200000000 200000000\n1 2 3 4 a\n"), new RecordedGraph());
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private boolean parseInParallel(File file) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new ParallelGraphParser(channel, pool).read(new RecordedGraph());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
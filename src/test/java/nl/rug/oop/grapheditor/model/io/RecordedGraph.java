@@ -0,0 +1,191 @@
+package nl.rug.oop.grapheditor.model.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * RecordedGraph keeps in plain lists whatever a reader gives to it, and it gives it back to a writer,
+ * so a graph can go through a file and be compared with what it was.
+ * Its edges are kept in the order they are received, and they are grouped by their start node
+ * only when they are written.
+ */
+class RecordedGraph implements GraphBuilder, GraphSource {
+    private final List<int[]> nodes = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<int[]> edges = new ArrayList<>();
+    private int sizeNodes = -1;
+    private int sizeEdges = -1;
+    private int[] outStart;
+    private int[] targets;
+
+    /**
+     * It creates a random graph, with names that aren't only ASCII and colors with any alpha
+     *
+     * @param numNodes number of nodes
+     * @param numEdges number of edges
+     * @param seed     seed of the random numbers
+     * @return the graph
+     */
+    static RecordedGraph random(int numNodes, int numEdges, long seed) {
+        Random random = new Random(seed);
+        RecordedGraph graph = new RecordedGraph();
+        graph.setSize(numNodes, numEdges);
+        for (int i = 0; i < numNodes; i++) {
+            graph.addNode(random.nextInt(20000) - 10000, random.nextInt(20000) - 10000,
+                    1 + random.nextInt(300), 1 + random.nextInt(100), random.nextInt(), "n" + i + (i % 7 == 0 ? "é" : ""));
+        }
+        for (int i = 0; i < numEdges; i++) {
+            graph.addEdge(random.nextInt(numNodes), random.nextInt(numNodes));
+        }
+        return graph;
+    }
+
+    @Override
+    public void setSize(int numberNodes, int numberEdges) {
+        sizeNodes = numberNodes;
+        sizeEdges = numberEdges;
+    }
+
+    @Override
+    public void addNode(int x, int y, int width, int height, String name) {
+        addNode(x, y, width, height, 0, name);
+    }
+
+    @Override
+    public void addNode(int x, int y, int width, int height, int color, String name) {
+        nodes.add(new int[]{x, y, width, height, color});
+        names.add(name);
+    }
+
+    @Override
+    public void addEdge(int index1, int index2) {
+        edges.add(new int[]{index1, index2});
+        outStart = null;
+    }
+
+    /**
+     * @return the number of nodes given by setSize, -1 if it hasn't been called
+     */
+    int getSizeNodes() {
+        return sizeNodes;
+    }
+
+    /**
+     * @return the number of edges given by setSize, -1 if it hasn't been called
+     */
+    int getSizeEdges() {
+        return sizeEdges;
+    }
+
+    /**
+     * @param withColors True to compare the colors too
+     * @return the nodes as text, one line for each node, to be compared
+     */
+    String nodesText(boolean withColors) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < nodes.size(); i++) {
+            int[] node = nodes.get(i);
+            text.append(node[0]).append(' ').append(node[1]).append(' ').append(node[2]).append(' ').append(node[3]);
+            if (withColors)
+                text.append(' ').append(node[4]);
+            text.append(' ').append(names.get(i)).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return the edges as text, sorted by start and end node, to be compared
+     */
+    String edgesText() {
+        long[] sorted = new long[edges.size()];
+        for (int i = 0; i < edges.size(); i++) {
+            sorted[i] = (long) edges.get(i)[0] << 32 | edges.get(i)[1];
+        }
+        Arrays.sort(sorted);
+        StringBuilder text = new StringBuilder();
+        for (long edge : sorted) {
+            text.append(edge >>> 32).append(' ').append((int) edge).append('\n');
+        }
+        return text.toString();
+    }
+
+    @Override
+    public int getNumNodes() {
+        return nodes.size();
+    }
+
+    @Override
+    public int getNumEdges() {
+        return edges.size();
+    }
+
+    @Override
+    public int getX(int index) {
+        return nodes.get(index)[0];
+    }
+
+    @Override
+    public int getY(int index) {
+        return nodes.get(index)[1];
+    }
+
+    @Override
+    public int getWidth(int index) {
+        return nodes.get(index)[2];
+    }
+
+    @Override
+    public int getHeight(int index) {
+        return nodes.get(index)[3];
+    }
+
+    @Override
+    public int getColor(int index) {
+        return nodes.get(index)[4];
+    }
+
+    @Override
+    public String getName(int index) {
+        return names.get(index);
+    }
+
+    @Override
+    public int outStart(int index) {
+        groupEdges();
+        return outStart[index];
+    }
+
+    @Override
+    public int outEnd(int index) {
+        groupEdges();
+        return outStart[index + 1];
+    }
+
+    @Override
+    public int target(int position) {
+        groupEdges();
+        return targets[position];
+    }
+
+    /**
+     * It groups the edges by their start node, like in a CSR
+     */
+    private void groupEdges() {
+        if (outStart != null)
+            return;
+        outStart = new int[nodes.size() + 1];
+        for (int[] edge : edges) {
+            outStart[edge[0] + 1]++;
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            outStart[i + 1] += outStart[i];
+        }
+        targets = new int[edges.size()];
+        int[] next = Arrays.copyOf(outStart, nodes.size());
+        for (int[] edge : edges) {
+            targets[next[edge[0]]++] = edge[1];
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package nl.rug.oop.grapheditor.view;
+
+import nl.rug.oop.grapheditor.model.Edge;
+import nl.rug.oop.grapheditor.model.GraphModel;
+import nl.rug.oop.grapheditor.model.Node;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * EdgeRenderingBenchmark measures how long the panel takes to paint a frame of a graph with many edges,
+ * all of them visible, and how many bytes it allocates for each frame.
+ * It is not a unit test, it is run by hand: java EdgeRenderingBenchmark [nodes] [edges] [frames]
+ */
+public class EdgeRenderingBenchmark {
+    private static final int WIDTH = 1440;
+    private static final int HEIGHT = 800;
+
+    public static void main(String[] args) {
+        int numNodes = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int numEdges = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+        int frames = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        System.setProperty("java.awt.headless", "true");
+
+        GraphModel graph = randomGraph(numNodes, numEdges, new Random(42));
+        GraphPanel panel = new GraphPanel(graph);
+        panel.setSize(WIDTH, HEIGHT);
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+        for (int i = 0; i < frames; i++) {
+            paint(panel, image);
+        }
+        long[] times = new long[frames];
+        long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < frames; i++) {
+            long start = System.nanoTime();
+            paint(panel, image);
+            times[i] = System.nanoTime() - start;
+        }
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        Arrays.sort(times);
+        System.out.printf("%d nodes, %d edges, %d frames%n", graph.getNumNodes(), graph.getEdges().size(), frames);
+        System.out.printf("median %.2f ms, 90th percentile %.2f ms, min %.2f ms%n",
+                times[frames / 2] / 1e6, times[frames * 9 / 10] / 1e6, times[0] / 1e6);
+        if (allocated >= 0)
+            System.out.printf("allocated %d bytes per frame%n", allocated / frames);
+    }
+
+    /**
+     * It creates a graph whose nodes are all inside the panel, every edge links two nodes close to each other.
+     * There must be enough nodes to have the number of edges wanted.
+     */
+    private static GraphModel randomGraph(int numNodes, int numEdges, Random random) {
+        GraphModel graph = new GraphModel();
+        graph.batch(() -> {
+            for (int i = 0; i < numNodes; i++) {
+                graph.addNode(new Point(random.nextInt(WIDTH - 60), random.nextInt(HEIGHT - 30)),
+                        new Dimension(60, 30), "n" + i);
+            }
+        });
+        List<Node> nodes = new ArrayList<>(graph.getNodes());
+        graph.batch(() -> {
+            //an edge that is already in the graph isn't added again, so edges are tried until there are enough
+            int numNear = Math.min(nodes.size(), 2 * numEdges / nodes.size() + 8);
+            while (graph.getEdges().size() < numEdges) {
+                Node start = nodes.get(random.nextInt(nodes.size()));
+                List<Node> near = graph.getSpatialIndex().nearest(start.getX(), start.getY(), numNear);
+                Node end = near.get(random.nextInt(near.size()));
+                if (end != start)
+                    graph.addNewEdge(new Edge(start, end));
+            }
+        });
+        return graph;
+    }
+
+    private static void paint(GraphPanel panel, BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        panel.paint(g);
+        g.dispose();
+    }
+
+    /**
+     * It finds how many bytes the current thread has allocated, if the JVM can tell
+     *
+     * @return the allocated bytes, -1 if they are not known
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean)
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        return -1;
+    }
+}